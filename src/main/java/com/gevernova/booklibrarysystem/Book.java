@@ -1,15 +1,53 @@
 package com.gevernova.booklibrarysystem;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * A book the library holds in one or more interchangeable physical copies. The shared details are kept
+ * once, with a counter of copies on the shelf and one bit per copy saying whether it is out, so a title
+ * with 40 copies is one object rather than 40. Copies are numbered from 1 and their IDs
+ * ({@link #getCopyId}) are derived on demand rather than stored.
+ * <p>
+ * A checkout is a compare-and-set on the counter, which also decides whether a copy is left, followed
+ * by a compare-and-set claiming the bit of a free copy; a return clears the bit, then bumps the counter.
+ * Since a bit is always freed before the counter admits anyone to it, a checkout that got past the
+ * counter always finds a free bit.
+ */
 public class Book {
+    private static final AtomicIntegerFieldUpdater<Book> AVAILABLE =
+            AtomicIntegerFieldUpdater.newUpdater(Book.class, "availableCopies");
+
     private final String id;
     private String title;
     private String author;
     private String genre;
-    private boolean isBorrowed;
+    private final int copies;
+    // Taken by compare-and-set, never below zero; a return adds back the copy whose bit it just cleared
+    private volatile int availableCopies;
+    private final AtomicLongArray copiesOut; // bit n - 1 is set while copy n is out
 
     public Book(String title, String author, String genre) {
+        this(title, author, genre, 1);
+    }
+
+    public Book(String title, String author, String genre, int copies) {
+        this(UUID.randomUUID().toString(), title, author, genre, copies);
+    }
+
+    /**
+     * Rebuilds a book that already has an ID, e.g. when a library is reloaded and its loan ledger
+     * refers to books by their original IDs.
+     */
+    public Book(String id, String title, String author, String genre) {
+        this(id, title, author, genre, 1);
+    }
+
+    public Book(String id, String title, String author, String genre, int copies) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Book ID cannot be null or blank.");
+        }
         if (title == null || title.isBlank()) {
             throw new IllegalArgumentException("Book title cannot be null or blank.");
         }
@@ -19,11 +57,16 @@ public class Book {
         if (genre == null || genre.isBlank()) {
             throw new IllegalArgumentException("Book genre cannot be null or blank.");
         }
-        this.id = UUID.randomUUID().toString();
+        if (copies <= 0) {
+            throw new IllegalArgumentException("A book needs at least one copy.");
+        }
+        this.id = id;
         this.title = title;
         this.author = author;
         this.genre = genre;
-        this.isBorrowed = false;
+        this.copies = copies;
+        this.availableCopies = copies;
+        this.copiesOut = new AtomicLongArray((copies + 63) / 64);
     }
 
     public String getId() {
@@ -42,12 +85,140 @@ public class Book {
         return genre;
     }
 
+    public int getCopies() {
+        return copies;
+    }
+
+    public int getAvailableCopies() {
+        return availableCopies;
+    }
+
+    /**
+     * True while at least one copy is on the shelf.
+     */
+    public boolean isAvailable() {
+        return availableCopies > 0;
+    }
+
+    /**
+     * True while at least one copy is out; for a single-copy book, the opposite of {@link #isAvailable()}.
+     */
     public boolean isBorrowed() {
-        return isBorrowed;
+        return availableCopies < copies;
     }
 
+    /**
+     * Marks every copy as out, or every copy as back on the shelf. Not atomic with concurrent checkouts.
+     */
     public void setBorrowed(boolean borrowed) {
-        isBorrowed = borrowed;
+        for (int word = 0; word < copiesOut.length(); word++) {
+            copiesOut.set(word, borrowed ? copyBits(word) : 0);
+        }
+        availableCopies = borrowed ? 0 : copies;
+    }
+
+    /**
+     * The ID of one copy, e.g. for the loan ledger. Copy 1 goes by the book's own ID, so a single-copy
+     * book is recorded under its ID as before; copy n of a larger stock is the book ID, '#' and n.
+     */
+    public String getCopyId(int copyNumber) {
+        checkCopyNumber(copyNumber);
+        return copyNumber == 1 ? id : id + "#" + copyNumber;
+    }
+
+    /**
+     * Atomically takes a copy if one is available, so of many concurrent checkouts of the last copy exactly one wins.
+     * @return the number of the copy taken, or 0 if every copy is out.
+     */
+    public int tryBorrowCopy() {
+        while (true) {
+            int available = availableCopies;
+            if (available == 0) {
+                return 0;
+            }
+            if (AVAILABLE.compareAndSet(this, available, available - 1)) {
+                return claimFreeCopy();
+            }
+        }
+    }
+
+    /**
+     * Atomically puts a copy back.
+     * @return false if that copy was not out, so of two concurrent returns of one copy exactly one succeeds.
+     */
+    public boolean returnCopy(int copyNumber) {
+        checkCopyNumber(copyNumber);
+        if (!flip(copyNumber - 1, true)) {
+            return false;
+        }
+        AVAILABLE.incrementAndGet(this);
+        return true;
+    }
+
+    /**
+     * Marks a specific copy as out, for re-applying a recorded loan; false if it already is.
+     * The copy is taken from the counter first, like a checkout, so the counter never goes negative and
+     * a checkout admitted meanwhile still finds a free bit.
+     */
+    boolean restoreBorrowedCopy(int copyNumber) {
+        checkCopyNumber(copyNumber);
+        while (true) {
+            int available = availableCopies;
+            if (available == 0) {
+                return false; // every copy is out, this one included
+            }
+            if (AVAILABLE.compareAndSet(this, available, available - 1)) {
+                break;
+            }
+        }
+        if (flip(copyNumber - 1, false)) {
+            return true;
+        }
+        AVAILABLE.incrementAndGet(this); // that copy was already out; hand the count back
+        return false;
+    }
+
+    // Caller already took one from the counter, so at least one bit is clear for it
+    private int claimFreeCopy() {
+        while (true) {
+            for (int word = 0; word < copiesOut.length(); word++) {
+                long out;
+                long free;
+                while ((free = ~(out = copiesOut.get(word)) & copyBits(word)) != 0) {
+                    long bit = Long.lowestOneBit(free);
+                    if (copiesOut.compareAndSet(word, out, out | bit)) {
+                        return word * 64 + Long.numberOfTrailingZeros(bit) + 1;
+                    }
+                }
+            }
+        }
+    }
+
+    // The bits of a word that stand for copies; the last word may have spare bits
+    private long copyBits(int word) {
+        int copiesInWord = copies - word * 64;
+        return copiesInWord >= 64 ? -1L : (1L << copiesInWord) - 1;
+    }
+
+    // Sets (or clears, when wasOut) bit index if it currently has the opposite value
+    private boolean flip(int index, boolean wasOut) {
+        int word = index / 64;
+        long bit = 1L << (index % 64);
+        while (true) {
+            long out = copiesOut.get(word);
+            if (((out & bit) != 0) != wasOut) {
+                return false;
+            }
+            if (copiesOut.compareAndSet(word, out, out ^ bit)) {
+                return true;
+            }
+        }
+    }
+
+    private void checkCopyNumber(int copyNumber) {
+        if (copyNumber < 1 || copyNumber > copies) {
+            throw new IllegalArgumentException("Book '" + title + "' has no copy " + copyNumber + ".");
+        }
     }
 
     @Override
@@ -66,11 +237,12 @@ public class Book {
     @Override
     public String toString() {
         return "Book{" +
-                "id='" + id.substring(0, 8) + '\'' + // Shorten ID for readability
+                "id='" + id.substring(0, Math.min(8, id.length())) + '\'' + // Shorten ID for readability
                 ", title='" + title + '\'' +
                 ", author='" + author + '\'' +
                 ", genre='" + genre + '\'' +
-                ", isBorrowed=" + isBorrowed +
+                ", isBorrowed=" + isBorrowed() +
+                ", availableCopies=" + availableCopies + "/" + copies +
                 '}';
     }
 }
@@ -0,0 +1,203 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Word-prefix index on author names. Every word of a normalized author name is a key in a sorted map,
+ * so the words starting with a prefix are one contiguous range of keys: a skip-list seek does what a
+ * trie walk would, and the whole range is read in O(log w + matches) for w distinct words.
+ * A query matches a book when each of its words is the start of some word of the book's author,
+ * so "tolk", "Tolkien" and "J.R.R. Tol" all find "J.R.R. Tolkien".
+ * Each word's books are kept in ID order, so matches stream out in ID order and can resume after a
+ * given ID without reading the matches before it. A book's normalized author words are worked out once,
+ * when it is added, and kept with it, so checking a candidate against a multi-word query allocates nothing.
+ */
+public class BookAuthorIndex {
+    // Key: one normalized word of an author name, Value: books whose author has that word, by book ID
+    private final NavigableMap<String, NavigableMap<String, Entry>> booksByWord = new ConcurrentSkipListMap<>();
+    // The same buckets by word. Adds and removes go through its compute, which holds the word's bin lock for
+    // the whole function; a skip list's compute may run the function more than once and gives no such guarantee.
+    private final Map<String, NavigableMap<String, Entry>> bucketsByWord = new ConcurrentHashMap<>();
+
+    // A book as indexed, with its normalized author words; one instance is shared by all of the book's words
+    private static final class Entry {
+        private final Book book;
+        private final String[] authorWords;
+
+        private Entry(Book book, Collection<String> authorWords) {
+            this.book = book;
+            this.authorWords = authorWords.toArray(new String[0]);
+        }
+    }
+
+    public void add(Book book) {
+        Collection<String> authorWords = words(book.getAuthor());
+        Entry entry = new Entry(book, authorWords);
+        for (String word : authorWords) {
+            bucketsByWord.compute(word, (key, books) -> {
+                if (books == null) {
+                    books = new ConcurrentSkipListMap<>();
+                    booksByWord.put(key, books);
+                }
+                books.put(book.getId(), entry);
+                return books;
+            });
+        }
+    }
+
+    public void remove(Book book) {
+        // Drop the word once it is empty; a concurrent add of the same word waits for this to finish
+        for (String word : words(book.getAuthor())) {
+            bucketsByWord.computeIfPresent(word, (key, books) -> {
+                Entry entry = books.get(book.getId());
+                if (entry != null && entry.book.equals(book)) {
+                    books.remove(book.getId(), entry);
+                }
+                if (!books.isEmpty()) {
+                    return books;
+                }
+                booksByWord.remove(key, books);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Finds books whose author has, for every word of {@code query}, a word starting with it (ignoring case).
+     */
+    public List<Book> search(String query) {
+        return stream(query, null).collect(Collectors.toList());
+    }
+
+    /**
+     * Lazily streams the matches of {@link #search} in book ID order, starting after {@code afterId}
+     * (or from the first match when it is null). The books under the longest query word, usually the
+     * most selective, are walked and each is checked against the other words, so reading the first
+     * n matches costs about n times the longest word's share of non-matching books.
+     */
+    public Stream<Book> stream(String query, String afterId) {
+        Collection<String> prefixes = words(query);
+        String driver = null;
+        for (String prefix : prefixes) {
+            if (driver == null || prefix.length() > driver.length()) {
+                driver = prefix;
+            }
+        }
+        if (driver == null) {
+            return Stream.empty();
+        }
+        List<Iterator<Entry>> sources = new ArrayList<>();
+        for (NavigableMap<String, Entry> books : wordsStartingWith(driver).values()) {
+            sources.add((afterId == null ? books : books.tailMap(afterId, false)).values().iterator());
+        }
+        Stream<Entry> candidates = mergeById(sources);
+        if (prefixes.size() > 1) {
+            String walked = driver;
+            String[] others = prefixes.stream().filter(prefix -> !prefix.equals(walked)).toArray(String[]::new);
+            candidates = candidates.filter(entry -> matchesAll(entry.authorWords, others));
+        }
+        return candidates.map(entry -> entry.book);
+    }
+
+    // Reads the words stored with the book, so a candidate costs a few startsWith calls and no allocation
+    private static boolean matchesAll(String[] authorWords, String[] prefixes) {
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String word : authorWords) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Every key that starts with prefix sorts between prefix itself and prefix followed by the highest char
+    private Map<String, NavigableMap<String, Entry>> wordsStartingWith(String prefix) {
+        return booksByWord.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    // Lazy merge of ID-ordered sources. A book under two words of the prefix range ("Ann Annabel" for
+    // "ann") comes out of both, next to itself, and is emitted once.
+    private static Stream<Entry> mergeById(List<Iterator<Entry>> sources) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> a.id().compareTo(b.id()));
+        for (Iterator<Entry> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head(source.next(), source));
+            }
+        }
+        Iterator<Entry> merged = new Iterator<Entry>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Entry next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                advance(head);
+                while (!heads.isEmpty() && heads.peek().id().equals(head.id())) {
+                    advance(heads.poll());
+                }
+                return head.entry;
+            }
+
+            private void advance(Head head) {
+                if (head.source.hasNext()) {
+                    heads.add(new Head(head.source.next(), head.source));
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // The next book of one source during a merge
+    private static final class Head {
+        private final Entry entry;
+        private final Iterator<Entry> source;
+
+        private Head(Entry entry, Iterator<Entry> source) {
+            this.entry = entry;
+            this.source = source;
+        }
+
+        private String id() {
+            return entry.book.getId();
+        }
+    }
+
+    private static Collection<String> words(String text) {
+        String normalized = BookGenreIndex.normalize(text);
+        Set<String> words = new HashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
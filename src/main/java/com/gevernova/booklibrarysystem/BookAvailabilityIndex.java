@@ -0,0 +1,119 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the library's books split into an available set (a copy is on the shelf) and a borrowed set
+ * (a copy is out), so listing either side costs O(result) and counting it O(1), instead of scanning
+ * every book and checking its counter. A book with some copies out and some in is in both.
+ * Both sets are ordered by book ID, so a page can be read straight out of a set without copying it.
+ * Whoever changes a book's copy counter calls {@link #update} afterwards. Two threads moving the counter
+ * across a boundary in opposite directions can reach the sets in either order, so each one re-reads the
+ * counter after its own change and repairs the set if the counter moved meanwhile; the last writer
+ * always leaves the sets matching the counter. A reader racing an update may briefly see stale membership.
+ */
+public class BookAvailabilityIndex {
+    // Key: Book ID, Value: Book
+    private final NavigableMap<String, Book> availableBooks = new ConcurrentSkipListMap<>();
+    private final NavigableMap<String, Book> borrowedBooks = new ConcurrentSkipListMap<>();
+    // Skip lists count by walking, so the sizes are kept next to them
+    private final AtomicInteger availableCount = new AtomicInteger();
+    private final AtomicInteger borrowedCount = new AtomicInteger();
+
+    public void add(Book book) {
+        update(book);
+    }
+
+    public void remove(Book book) {
+        if (availableBooks.remove(book.getId(), book)) {
+            availableCount.decrementAndGet();
+        }
+        if (borrowedBooks.remove(book.getId(), book)) {
+            borrowedCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Brings the book's membership in line with its copy counter. Called after every checkout, return or
+     * restore that changed the counter.
+     */
+    public void update(Book book) {
+        boolean available;
+        boolean borrowed;
+        do {
+            available = book.isAvailable();
+            borrowed = book.isBorrowed();
+            place(book, available, availableBooks, availableCount);
+            place(book, borrowed, borrowedBooks, borrowedCount);
+        } while (book.isAvailable() != available || book.isBorrowed() != borrowed);
+    }
+
+    private static void place(Book book, boolean member, NavigableMap<String, Book> books, AtomicInteger count) {
+        if (member) {
+            if (books.putIfAbsent(book.getId(), book) == null) {
+                count.incrementAndGet();
+            }
+        } else if (books.remove(book.getId(), book)) {
+            count.decrementAndGet();
+        }
+    }
+
+    public List<Book> available() {
+        return new ArrayList<>(availableBooks.values());
+    }
+
+    public List<Book> borrowed() {
+        return new ArrayList<>(borrowedBooks.values());
+    }
+
+    public int availableCount() {
+        return availableCount.get();
+    }
+
+    public int borrowedCount() {
+        return borrowedCount.get();
+    }
+
+    /**
+     * One page of available books in ID order, read straight off the set: O(offset + limit), no copy of the set.
+     */
+    public List<Book> availablePage(int offset, int limit) {
+        return page(availableBooks, offset, limit);
+    }
+
+    public List<Book> borrowedPage(int offset, int limit) {
+        return page(borrowedBooks, offset, limit);
+    }
+
+    /**
+     * Lazily streams the available books in ID order, starting after {@code afterId} (or from the first
+     * when it is null); finding the start is one skip-list seek.
+     */
+    public Stream<Book> streamAvailable(String afterId) {
+        return streamFrom(availableBooks, afterId);
+    }
+
+    public Stream<Book> streamBorrowed(String afterId) {
+        return streamFrom(borrowedBooks, afterId);
+    }
+
+    private static Stream<Book> streamFrom(NavigableMap<String, Book> books, String afterId) {
+        return (afterId == null ? books : books.tailMap(afterId, false)).values().stream();
+    }
+
+    private static List<Book> page(NavigableMap<String, Book> books, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative.");
+        }
+        return books.values().stream()
+                .skip(offset)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}
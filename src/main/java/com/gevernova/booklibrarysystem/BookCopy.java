@@ -0,0 +1,46 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.Objects;
+
+/**
+ * One physical copy of a {@link Book}, as lent to a user: the book plus the copy's number.
+ */
+public final class BookCopy {
+    private final Book book;
+    private final int copyNumber;
+
+    BookCopy(Book book, int copyNumber) {
+        this.book = book;
+        this.copyNumber = copyNumber;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public int getCopyNumber() {
+        return copyNumber;
+    }
+
+    public String getId() {
+        return book.getCopyId(copyNumber);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BookCopy copy = (BookCopy) o;
+        return copyNumber == copy.copyNumber && Objects.equals(book, copy.book);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(book, copyNumber);
+    }
+
+    @Override
+    public String toString() {
+        return "BookCopy{title='" + book.getTitle() + "', copy=" + copyNumber + '}';
+    }
+}
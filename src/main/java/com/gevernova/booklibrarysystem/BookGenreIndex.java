@@ -0,0 +1,61 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Exact-match index from a normalized genre (trimmed, lower-cased, single spaces) to its books.
+ * Genres are normalized once when a book is added, so a lookup is one hash probe and allocates
+ * nothing per book. Each genre's books are kept in ID order, so they can be streamed from any ID on.
+ */
+public class BookGenreIndex {
+    // Key: normalized genre, Value: books with that genre, by book ID
+    private final Map<String, NavigableMap<String, Book>> booksByGenre = new ConcurrentHashMap<>();
+
+    // The put happens inside compute, under the same bin lock as remove's emptiness check, so a remove that
+    // empties the genre can never drop the bucket after this book went into it
+    public void add(Book book) {
+        booksByGenre.compute(normalize(book.getGenre()), (genre, books) -> {
+            books = books == null ? new ConcurrentSkipListMap<>() : books;
+            books.put(book.getId(), book);
+            return books;
+        });
+    }
+
+    public void remove(Book book) {
+        // Drop the genre once it is empty so the index does not keep dead keys around
+        booksByGenre.computeIfPresent(normalize(book.getGenre()), (genre, books) -> {
+            books.remove(book.getId(), book);
+            return books.isEmpty() ? null : books;
+        });
+    }
+
+    public List<Book> find(String genre) {
+        NavigableMap<String, Book> books = booksByGenre.get(normalize(genre));
+        return books == null ? new ArrayList<>() : new ArrayList<>(books.values());
+    }
+
+    /**
+     * Lazily streams the genre's books in ID order, starting after {@code afterId} (or from the first when it is null).
+     */
+    public Stream<Book> stream(String genre, String afterId) {
+        NavigableMap<String, Book> books = booksByGenre.get(normalize(genre));
+        if (books == null) {
+            return Stream.empty();
+        }
+        return (afterId == null ? books : books.tailMap(afterId, false)).values().stream();
+    }
+
+    /**
+     * The key form shared by the library's indexes: trimmed, lower-cased, runs of whitespace made one space.
+     */
+    static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
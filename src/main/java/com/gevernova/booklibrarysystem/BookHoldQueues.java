@@ -0,0 +1,128 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * First-come, first-served hold queues, one per book. Each queue is a lock-free linked queue, so
+ * placing holds on a popular title never blocks holds or handoffs on any other title.
+ * A cancelled hold leaves its queue straight away, and a queue is dropped once it is empty, so books
+ * nobody waits for any more cost nothing. Holds live in memory only; they are not recorded in the loan ledger.
+ */
+public class BookHoldQueues {
+    // Key: book ID, Value: the users waiting for that book, oldest first. A queue is only created and
+    // dropped inside compute, which places holds under the same bin lock, so no hold lands in a dropped queue.
+    private final Map<String, HoldQueue> holdsByBook = new ConcurrentHashMap<>();
+
+    private static final class HoldQueue {
+        private final Queue<Hold> holds = new ConcurrentLinkedQueue<>();
+        // Holds neither claimed nor cancelled, kept next to the queue so counting them is O(1)
+        private final AtomicInteger waiting = new AtomicInteger();
+    }
+
+    /**
+     * A user's place in a book's queue. It completes with the book once the book has been handed over.
+     * Cancelling it withdraws the hold, unless the book has already been handed over.
+     */
+    final class Hold extends CompletableFuture<Book> {
+        private final User user;
+        private final String bookId;
+        private final HoldQueue queue;
+        // Set once, either by the handoff that takes this hold or by cancel, whichever comes first
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Hold(User user, String bookId, HoldQueue queue) {
+            this.user = user;
+            this.bookId = bookId;
+            this.queue = queue;
+        }
+
+        User getUser() {
+            return user;
+        }
+
+        /**
+         * Claims the hold for a handoff; false if it was cancelled (or claimed) first.
+         */
+        boolean claim() {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            queue.waiting.decrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            queue.waiting.decrementAndGet();
+            queue.holds.remove(this);
+            dropIfEmpty(bookId, queue);
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    public Hold place(String bookId, User user) {
+        Hold[] placed = new Hold[1];
+        holdsByBook.compute(bookId, (id, queue) -> {
+            if (queue == null) {
+                queue = new HoldQueue();
+            }
+            placed[0] = new Hold(user, id, queue);
+            queue.waiting.incrementAndGet();
+            queue.holds.add(placed[0]);
+            return queue;
+        });
+        return placed[0];
+    }
+
+    /**
+     * Takes the oldest hold on the book that has not been cancelled, or null if nobody is waiting.
+     * The returned hold is already claimed, so a late cancel can no longer withdraw it.
+     */
+    public Hold claimNext(String bookId) {
+        HoldQueue queue = holdsByBook.get(bookId);
+        if (queue == null) {
+            return null;
+        }
+        Hold hold;
+        while ((hold = queue.holds.poll()) != null) {
+            if (hold.claim()) {
+                break;
+            }
+        }
+        dropIfEmpty(bookId, queue);
+        return hold;
+    }
+
+    public boolean hasWaiting(String bookId) {
+        return waitingCount(bookId) > 0;
+    }
+
+    /**
+     * Number of users still waiting for the book, not counting cancelled holds. O(1): read off the queue's counter.
+     */
+    public int waitingCount(String bookId) {
+        HoldQueue queue = holdsByBook.get(bookId);
+        return queue == null ? 0 : queue.waiting.get();
+    }
+
+    /**
+     * Number of books with a queue; books whose holds were all served or cancelled are not counted.
+     */
+    public int queueCount() {
+        return holdsByBook.size();
+    }
+
+    // Removes the book's queue if it is still this one and has emptied
+    private void dropIfEmpty(String bookId, HoldQueue queue) {
+        holdsByBook.computeIfPresent(bookId, (id, current) -> current == queue && current.holds.isEmpty() ? null : current);
+    }
+}
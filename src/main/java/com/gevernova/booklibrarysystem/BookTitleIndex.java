@@ -0,0 +1,453 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ranked full-text index on book titles. Titles are split into lower-cased words, each book gets a dense
+ * document number in the order it was added, and every word keeps the documents containing it as a
+ * sorted int array (document, count) - about 8 bytes per word occurrence, no per-posting objects.
+ * <p>
+ * Searches rank by BM25 and only keep the best {@code limit} hits. The postings of the query words are
+ * walked together in document order with block-max WAND pruning: once the result heap is full, documents
+ * that cannot beat its worst score, judged first by each word's best case over its whole list and then
+ * over the 64-posting block around the candidate, are skipped over with a galloping search instead of
+ * being scored, so common words cost far less than their posting count.
+ * <p>
+ * Adds and removes are serialized on the index; searches take no lock. Arrays only grow, and a posting
+ * is published through a volatile size after the document it points to, so a search sees a consistent
+ * prefix of every list. A replaced or removed book leaves its postings behind; they are skipped at
+ * search time and no longer count towards word frequencies. Once removed documents outnumber live ones,
+ * the live books are indexed again, in their original order, into a fresh corpus that replaces the old
+ * one in a single write, so the dead postings are dropped and a search already running finishes on the
+ * old corpus undisturbed.
+ */
+public class BookTitleIndex {
+    // BM25 parameters: K1 is how fast repeats of a word stop adding score, B how much long titles are penalized
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Postings per block summary; a search can skip a whole block whose best case cannot make the results
+    private static final int BLOCK_SIZE = 64;
+    private static final int SUMMARY_INTS = 5;
+    private static final int INITIAL_DOCUMENTS = 1024;
+    // Fewer removed documents than this are never worth a rebuild, however small the index
+    private static final int MIN_REMOVED_TO_COMPACT = 1024;
+
+    // The documents containing one word, ascending, each followed by how often the word occurs in that title.
+    // Every BLOCK_SIZE postings also get a summary of SUMMARY_INTS ints: the block's last document, then
+    // the shortest title holding the word once, twice, and the highest count of three or more with the
+    // shortest such title (0 where there is none). Weight rises with the count and falls with the length,
+    // so these bound the block's best score without pairing a high count with an unrelated short title.
+    private static final class Postings {
+        private volatile int[] entries = new int[4];
+        private volatile int[] blocks = new int[SUMMARY_INTS];
+        private final int[] overall = new int[SUMMARY_INTS]; // the same summary over the whole list
+        private volatile int size; // ints in use, two per document
+        private volatile int liveDocuments; // documents whose book is still indexed
+
+        // Caller holds the index lock
+        private void append(int document, int count, int titleLength) {
+            int[] current = entries;
+            if (size + 2 > current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                entries = current;
+            }
+            current[size] = document;
+            current[size + 1] = count;
+            int block = size / 2 / BLOCK_SIZE * SUMMARY_INTS;
+            int[] summaries = blocks;
+            if (block + SUMMARY_INTS > summaries.length) {
+                summaries = Arrays.copyOf(summaries, summaries.length * 2);
+                blocks = summaries;
+            }
+            summarize(summaries, block, document, count, titleLength);
+            summarize(overall, 0, document, count, titleLength);
+            size += 2; // publishes the posting and its summaries
+            liveDocuments++;
+        }
+
+        private static void summarize(int[] summaries, int at, int document, int count, int titleLength) {
+            if (count == 1) {
+                summaries[at + 1] = shorter(summaries[at + 1], titleLength);
+            } else if (count == 2) {
+                summaries[at + 2] = shorter(summaries[at + 2], titleLength);
+            } else {
+                summaries[at + 3] = Math.max(summaries[at + 3], count);
+                summaries[at + 4] = shorter(summaries[at + 4], titleLength);
+            }
+            summaries[at] = document;
+        }
+
+        private static int shorter(int current, int titleLength) {
+            return current == 0 ? titleLength : Math.min(current, titleLength);
+        }
+    }
+
+    // The postings and the documents they point at. Writers change only the current corpus, under the
+    // index lock; a search reads the corpus field once and uses that corpus throughout.
+    private static final class Corpus {
+        // Key: word, Value: its postings
+        private final Map<String, Postings> postingsByWord = new ConcurrentHashMap<>();
+        // Indexed by document number; a null book marks a removed document
+        private volatile Book[] books;
+        private volatile int[] titleLengths;
+        private int nextDocument; // guarded by the index lock
+
+        private Corpus(int capacity) {
+            books = new Book[capacity];
+            titleLengths = new int[capacity];
+        }
+
+        // Caller holds the index lock
+        private int append(Book book, int titleLength, Map<String, Integer> counts) {
+            int document = nextDocument++;
+            if (document == books.length) {
+                titleLengths = Arrays.copyOf(titleLengths, document * 2);
+                books = Arrays.copyOf(books, document * 2);
+            }
+            titleLengths[document] = titleLength;
+            books[document] = book; // written before any posting can point at it
+            for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                postingsByWord.computeIfAbsent(count.getKey(), word -> new Postings()).append(document, count.getValue(), titleLength);
+            }
+            return document;
+        }
+    }
+
+    private volatile Corpus corpus = new Corpus(INITIAL_DOCUMENTS);
+    // Key: book ID, Value: document number in the current corpus; guarded by the index lock
+    private final Map<String, Integer> documentsByBookId = new HashMap<>();
+    private volatile int liveDocuments;
+    private volatile long liveTitleWords;
+
+    public void add(Book book) {
+        List<String> words = tokenize(book.getTitle());
+        Map<String, Integer> counts = wordCounts(words);
+        synchronized (this) {
+            removeIndexed(book.getId());
+            documentsByBookId.put(book.getId(), corpus.append(book, words.size(), counts));
+            liveDocuments++;
+            liveTitleWords += words.size();
+            compactIfSparse();
+        }
+    }
+
+    public synchronized void remove(Book book) {
+        removeIndexed(book.getId());
+        compactIfSparse();
+    }
+
+    /**
+     * Postings held across all words, including those of removed books that compaction has not yet dropped.
+     */
+    public int postingCount() {
+        int count = 0;
+        for (Postings postings : corpus.postingsByWord.values()) {
+            count += postings.size / 2;
+        }
+        return count;
+    }
+
+    // Caller holds the index lock
+    private void removeIndexed(String bookId) {
+        Integer document = documentsByBookId.remove(bookId);
+        if (document == null) {
+            return;
+        }
+        Corpus current = corpus;
+        Book removed = current.books[document];
+        current.books[document] = null;
+        for (String word : new LinkedHashSet<>(tokenize(removed.getTitle()))) {
+            current.postingsByWord.get(word).liveDocuments--;
+        }
+        liveDocuments--;
+        liveTitleWords -= current.titleLengths[document];
+    }
+
+    // Caller holds the index lock. Rebuilding costs one add per live book, and at least as many books were
+    // removed since the last rebuild, so it adds a constant amount of work per removal.
+    private void compactIfSparse() {
+        Corpus current = corpus;
+        int removed = current.nextDocument - liveDocuments;
+        if (removed < MIN_REMOVED_TO_COMPACT || removed <= liveDocuments) {
+            return;
+        }
+        Corpus compacted = new Corpus(Math.max(INITIAL_DOCUMENTS, liveDocuments));
+        for (int document = 0; document < current.nextDocument; document++) {
+            Book book = current.books[document];
+            if (book != null) {
+                List<String> words = tokenize(book.getTitle());
+                documentsByBookId.put(book.getId(), compacted.append(book, words.size(), wordCounts(words)));
+            }
+        }
+        corpus = compacted;
+    }
+
+    private static Map<String, Integer> wordCounts(List<String> words) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String word : words) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * The books whose titles best match the query words, best first, at most {@code limit} of them.
+     * A book matches if its title has at least one of the words; equal scores keep the order books were added in.
+     */
+    public List<Book> search(String query, int limit) {
+        Corpus searched = corpus;
+        List<Cursor> cursorList = new ArrayList<>();
+        int documentCount = liveDocuments;
+        double averageLength = Math.max(1.0, (double) liveTitleWords / Math.max(1, documentCount));
+        for (String word : new LinkedHashSet<>(tokenize(query))) {
+            Postings postings = searched.postingsByWord.get(word);
+            if (postings == null || postings.liveDocuments == 0) {
+                continue;
+            }
+            int size = postings.size; // read before the array, so every int below size is already written
+            double idf = Math.log(1 + (documentCount - postings.liveDocuments + 0.5) / (postings.liveDocuments + 0.5));
+            double upperBound = idf * bestWeight(postings.overall, 0, averageLength);
+            cursorList.add(new Cursor(postings.entries, postings.blocks, size, idf, upperBound, cursorList.size()));
+        }
+        if (cursorList.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Read after the postings, so they cover every document the cursors can reach
+        Book[] documents = searched.books;
+        int[] lengths = searched.titleLengths;
+
+        Cursor[] cursors = cursorList.toArray(new Cursor[0]);
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Hit.WORST_FIRST);
+        while (true) {
+            sortByDocument(cursors);
+            // The first document that could still make the heap: the smallest prefix of cursors whose
+            // combined best case beats the current cut-off
+            double cutOff = best.size() < limit ? -1 : best.peek().score;
+            double bound = 0;
+            int pivot = -1;
+            for (int i = 0; i < cursors.length && cursors[i].document() != Cursor.END; i++) {
+                bound += cursors[i].upperBound;
+                if (bound > cutOff) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                break;
+            }
+            int pivotDocument = cursors[pivot].document();
+            while (pivot + 1 < cursors.length && cursors[pivot + 1].document() == pivotDocument) {
+                pivot++;
+            }
+            // Block-max check: the blocks around the pivot document usually promise much less than the
+            // whole lists do; if even they cannot beat the cut-off, jump to the first document after them
+            double blockBound = 0;
+            int blockEnd = Cursor.END;
+            for (int i = 0; i <= pivot && cutOff >= 0; i++) {
+                int block = cursors[i].blockAtOrAfter(pivotDocument);
+                blockBound += cursors[i].blockBound(block, averageLength);
+                blockEnd = Math.min(blockEnd, cursors[i].blockLastDocument(block));
+            }
+            if (cutOff >= 0 && blockBound <= cutOff) {
+                int next = blockEnd == Cursor.END ? Cursor.END : blockEnd + 1;
+                if (pivot + 1 < cursors.length) {
+                    next = Math.min(next, cursors[pivot + 1].document());
+                }
+                for (int i = 0; i <= pivot; i++) {
+                    cursors[i].advanceTo(next);
+                }
+                continue;
+            }
+            if (cursors[0].document() != pivotDocument) {
+                // Nothing before the pivot document can beat the cut-off, so skip the lagging cursors past it
+                for (int i = 0; i < pivot; i++) {
+                    cursors[i].advanceTo(pivotDocument);
+                }
+                continue;
+            }
+            double score = 0;
+            for (Cursor cursor : cursors) {
+                if (cursor.document() != pivotDocument) {
+                    break; // sorted, so the matching cursors are all at the front
+                }
+                score += cursor.idf * termWeight(cursor.count(), lengths[pivotDocument], averageLength);
+                cursor.next();
+            }
+            Book book = documents[pivotDocument];
+            if (book != null && (best.size() < limit || score > best.peek().score)) {
+                best.add(new Hit(book, pivotDocument, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        Book[] ranked = new Book[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = best.poll().book;
+        }
+        return new ArrayList<>(Arrays.asList(ranked));
+    }
+
+    // Insertion sort: the cursors are few and only the ones just moved are out of place. Ties go by
+    // query word order, so a document's score is always summed in the same order.
+    private static void sortByDocument(Cursor[] cursors) {
+        for (int i = 1; i < cursors.length; i++) {
+            Cursor cursor = cursors[i];
+            int document = cursor.document();
+            int j = i - 1;
+            while (j >= 0 && (cursors[j].document() > document
+                    || cursors[j].document() == document && cursors[j].wordOrder > cursor.wordOrder)) {
+                cursors[j + 1] = cursors[j];
+                j--;
+            }
+            cursors[j + 1] = cursor;
+        }
+    }
+
+    // Highest termWeight any posting covered by the summary at summaries[at] can have
+    private static double bestWeight(int[] summaries, int at, double averageLength) {
+        double best = 0;
+        if (summaries[at + 1] > 0) {
+            best = termWeight(1, summaries[at + 1], averageLength);
+        }
+        if (summaries[at + 2] > 0) {
+            best = Math.max(best, termWeight(2, summaries[at + 2], averageLength));
+        }
+        if (summaries[at + 3] > 0) {
+            best = Math.max(best, termWeight(summaries[at + 3], summaries[at + 4], averageLength));
+        }
+        return best;
+    }
+
+    // BM25 weight of a word occurring count times in a title of the given length, before multiplying by idf
+    private static double termWeight(int count, int titleLength, double averageLength) {
+        return count * (K1 + 1) / (count + K1 * (1 - B + B * titleLength / averageLength));
+    }
+
+    /**
+     * Lower-cased runs of letters and digits; everything else separates words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // A position in one word's postings during a search
+    private static final class Cursor {
+        private static final int END = Integer.MAX_VALUE;
+
+        private final int[] entries;
+        private final int[] blocks;
+        private final int end;
+        private final int blockCount;
+        private final double idf;
+        private final double upperBound; // no document in the list scores more than this for the word
+        private final int wordOrder;
+        private int position;
+
+        private Cursor(int[] entries, int[] blocks, int end, double idf, double upperBound, int wordOrder) {
+            this.entries = entries;
+            this.blocks = blocks;
+            this.end = end;
+            this.blockCount = (end / 2 + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            this.idf = idf;
+            this.upperBound = upperBound;
+            this.wordOrder = wordOrder;
+        }
+
+        private int document() {
+            return position < end ? entries[position] : END;
+        }
+
+        private int count() {
+            return entries[position + 1];
+        }
+
+        private void next() {
+            position += 2;
+        }
+
+        // The first block, from the current one on, that ends at or after target; blockCount if none
+        private int blockAtOrAfter(int target) {
+            int block = position / 2 / BLOCK_SIZE;
+            while (block < blockCount && blocks[block * SUMMARY_INTS] < target) {
+                block++;
+            }
+            return block;
+        }
+
+        private double blockBound(int block, double averageLength) {
+            return block < blockCount ? idf * bestWeight(blocks, block * SUMMARY_INTS, averageLength) : 0;
+        }
+
+        private int blockLastDocument(int block) {
+            return block < blockCount ? blocks[block * SUMMARY_INTS] : END;
+        }
+
+        // Moves to the first posting at or after target: gallop to bracket it, then binary search the bracket
+        private void advanceTo(int target) {
+            if (document() >= target) {
+                return;
+            }
+            int below = position; // entries[below] < target
+            int probe = position;
+            int step = 2;
+            while (probe < end && entries[probe] < target) {
+                below = probe;
+                probe += step;
+                step <<= 1;
+            }
+            int low = below / 2 + 1;
+            int high = Math.min(probe, end) / 2;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entries[middle * 2] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            position = low * 2;
+        }
+    }
+
+    private static final class Hit {
+        // Lowest score first; among equal scores the later document goes first, so earlier books win ties
+        private static final Comparator<Hit> WORST_FIRST = Comparator.<Hit>comparingDouble(hit -> hit.score)
+                .thenComparing(Comparator.<Hit>comparingInt(hit -> hit.document).reversed());
+
+        private final Book book;
+        private final int document;
+        private final double score;
+
+        private Hit(Book book, int document, double score) {
+            this.book = book;
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
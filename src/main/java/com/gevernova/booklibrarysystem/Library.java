@@ -1,26 +1,68 @@
 package com.gevernova.booklibrarysystem;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Safe to share between threads: the maps are concurrent, and a checkout or return changes the book
+ * through compare-and-sets on the book's copy counter and copy bits, so no lock is taken and two users
+ * can never borrow the same copy. A book held in several copies is one {@link Book} and is listed,
+ * searched, held and batched like any other. Users who find every copy out can queue for the book with
+ * {@link #placeHold}; returned copies go to the queue in order.
+ */
 public class Library {
     private final Map<String, Book> books; // Stores all books by ID
     private final Map<String, User> users; // Stores all users by ID
+    private final NavigableMap<String, User> usersInIdOrder = new ConcurrentSkipListMap<>(); // The same users, for paging
+    private final BookAvailabilityIndex availability = new BookAvailabilityIndex();
+    private final BookAuthorIndex authorIndex = new BookAuthorIndex();
+    private final BookGenreIndex genreIndex = new BookGenreIndex();
+    private final BookTitleIndex titleIndex = new BookTitleIndex();
+    private final BookHoldQueues holds = new BookHoldQueues();
+    private final LoanLedger ledger; // null when loans are not persisted
 
     public Library() {
-        this.books = new HashMap<>();
-        this.users = new HashMap<>();
+        this(null);
+    }
+
+    /**
+     * @param ledger records every borrow and return durably. On startup, add the books and users back
+     *               (with their original IDs) and then call {@link #restoreLoans()}.
+     */
+    public Library(LoanLedger ledger) {
+        this.books = new ConcurrentHashMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.ledger = ledger;
     }
 
     public void addBook(Book book) {
         if (book == null) {
             throw new IllegalArgumentException("Book cannot be null.");
         }
-        books.put(book.getId(), book);
+        // compute keeps two adds under the same ID from interleaving their index updates
+        books.compute(book.getId(), (id, previous) -> {
+            if (previous != null) {
+                availability.remove(previous);
+                authorIndex.remove(previous);
+                genreIndex.remove(previous);
+                titleIndex.remove(previous);
+            }
+            availability.add(book);
+            authorIndex.add(book);
+            genreIndex.add(book);
+            titleIndex.add(book);
+            return book;
+        });
         System.out.println("Added book: " + book.getTitle());
     }
 
@@ -29,106 +71,471 @@ public class Library {
             throw new IllegalArgumentException("User cannot be null.");
         }
         users.put(user.getId(), user);
+        usersInIdOrder.put(user.getId(), user);
         System.out.println("Added user: " + user.getName());
     }
 
     /**
-     * Allows a user to borrow a book.
+     * Allows a user to borrow any available copy of a book.
+     * The user's slot is claimed first and given back if the last copy turns out to be taken,
+     * so neither the borrowing limit nor the book's availability needs a lock.
      */
     public void borrowBook(String userId, String bookId) throws BookUnavailableException, BookLimitExceededException {
-        User user = Optional.ofNullable(users.get(userId))
+        User user = Optional.ofNullable(userOrNull(userId))
                 .orElseThrow(() -> new IllegalArgumentException("User with ID " + userId + " not found."));
-        Book book = Optional.ofNullable(books.get(bookId))
+        Book book = Optional.ofNullable(bookOrNull(bookId))
                 .orElseThrow(() -> new IllegalArgumentException("Book with ID " + bookId + " not found."));
 
-        if (book.isBorrowed()) {
-            throw new BookUnavailableException("Book '" + book.getTitle() + "' is currently unavailable.");
+        PendingCommit pending = new PendingCommit();
+        switch (borrow(user, book, pending)) {
+            case BOOK_UNAVAILABLE:
+                throw new BookUnavailableException("Book '" + book.getTitle() + "' is currently unavailable.");
+            case LIMIT_REACHED:
+                throw new BookLimitExceededException("User '" + user.getName() + "' cannot borrow more books. Limit reached.");
+            default:
+                break;
         }
-        if (!user.canBorrowMoreBooks()) {
-            throw new BookLimitExceededException("User '" + user.getName() + "' cannot borrow more books. Limit reached.");
-        }
-
-        book.setBorrowed(true);
-        user.borrowBook(book);
+        pending.finish();
         System.out.println(user.getName() + " borrowed '" + book.getTitle() + "'.");
     }
 
     /**
-     * Allows a user to return a book.
+     * Allows a user to return a copy of a book.
+     * The copy leaves the user's list before it becomes available again, so a returned copy is never
+     * both on a user's list and free to borrow. If users hold the book, it passes to the first of them instead.
      */
     public void returnBook(String userId, String bookId) {
-        User user = Optional.ofNullable(users.get(userId))
+        User user = Optional.ofNullable(userOrNull(userId))
                 .orElseThrow(() -> new IllegalArgumentException("User with ID " + userId + " not found."));
-        Book book = Optional.ofNullable(books.get(bookId))
+        Book book = Optional.ofNullable(bookOrNull(bookId))
                 .orElseThrow(() -> new IllegalArgumentException("Book with ID " + bookId + " not found."));
 
+        PendingCommit pending = new PendingCommit();
+        switch (giveBack(user, book, pending)) {
+            case NOT_BORROWED:
+                throw new IllegalArgumentException("Book '" + book.getTitle() + "' was not borrowed.");
+            case NOT_BORROWED_BY_USER:
+                throw new IllegalArgumentException("User '" + user.getName() + "' did not borrow '" + book.getTitle() + "'.");
+            default:
+                break;
+        }
+        pending.finish();
+        System.out.println(user.getName() + " returned '" + book.getTitle() + "'.");
+    }
+
+    /**
+     * Applies many borrows and returns in one call, for kiosks and reconciliation jobs.
+     * Operations run in list order, so a return followed by a borrow of the same book behaves as it would
+     * one call at a time. Failures are reported per item instead of thrown, nothing is printed per item,
+     * and the ledger (if any) is committed once for the whole batch rather than once per operation.
+     * Only a ledger write failure still throws, as {@link java.io.UncheckedIOException}, after the
+     * in-memory changes have been applied.
+     * @return one result per operation, at the same index.
+     */
+    public LoanResult[] applyAll(List<LoanOperation> operations) {
+        if (operations == null) {
+            throw new IllegalArgumentException("Operations cannot be null.");
+        }
+        LoanResult[] results = new LoanResult[operations.size()];
+        PendingCommit pending = new PendingCommit();
+        int i = 0;
+        for (LoanOperation operation : operations) {
+            results[i++] = apply(operation, pending);
+        }
+        pending.finish();
+        return results;
+    }
+
+    private LoanResult apply(LoanOperation operation, PendingCommit pending) {
+        if (operation == null) {
+            return LoanResult.INVALID_OPERATION;
+        }
+        User user = userOrNull(operation.getUserId());
+        if (user == null) {
+            return LoanResult.USER_NOT_FOUND;
+        }
+        Book book = bookOrNull(operation.getBookId());
+        if (book == null) {
+            return LoanResult.BOOK_NOT_FOUND;
+        }
+        return operation.getType() == LoanOperation.Type.BORROW
+                ? borrow(user, book, pending)
+                : giveBack(user, book, pending);
+    }
+
+    private LoanResult borrow(User user, Book book, PendingCommit pending) {
+        if (!book.isAvailable()) {
+            return LoanResult.BOOK_UNAVAILABLE;
+        }
+        if (!user.reserveSlot()) {
+            return LoanResult.LIMIT_REACHED;
+        }
+        int copyNumber = book.tryBorrowCopy();
+        if (copyNumber == 0) {
+            user.releaseSlot(); // other checkouts took the last copies
+            return LoanResult.BOOK_UNAVAILABLE;
+        }
+
+        // Logged while this thread owns the copy's bit, so the ledger sees each copy's events in order
+        pending.record(ledger == null ? 0 : ledger.appendBorrow(book.getCopyId(copyNumber), user.getId()));
+        availability.update(book);
+        user.addReservedCopy(new BookCopy(book, copyNumber));
+        return LoanResult.BORROWED;
+    }
+
+    private LoanResult giveBack(User user, Book book, PendingCommit pending) {
         if (!book.isBorrowed()) {
-            throw new IllegalArgumentException("Book '" + book.getTitle() + "' was not borrowed.");
+            return LoanResult.NOT_BORROWED;
         }
-        if (!user.getBorrowedBooks().contains(book)) {
-            throw new IllegalArgumentException("User '" + user.getName() + "' did not borrow '" + book.getTitle() + "'.");
+        BookCopy copy = user.removeBorrowedCopy(book);
+        if (copy == null) {
+            return LoanResult.NOT_BORROWED_BY_USER;
         }
 
-        book.setBorrowed(false);
-        user.returnBook(book);
-        System.out.println(user.getName() + " returned '" + book.getTitle() + "'.");
+        pending.record(ledger == null ? 0 : ledger.appendReturn(copy.getId(), user.getId()));
+        // With users waiting, the copy goes straight to the next of them and never shows as available
+        if (handOff(copy, pending)) {
+            return LoanResult.RETURNED;
+        }
+        book.returnCopy(copy.getCopyNumber());
+        availability.update(book);
+        dispatchHolds(book, pending); // a hold placed while this return was in progress
+        return LoanResult.RETURNED;
+    }
+
+    /**
+     * Queues the user for the book. The future completes with the book once a copy has been handed over
+     * (straight away if one is on the shelf now), by which time it is already on the user's list; it
+     * completes exceptionally with {@link BookLimitExceededException} if the user is at the limit when
+     * their turn comes. Holds are served first come, first served, one copy per hold.
+     * If the loan ledger cannot record the handoff, the future completes exceptionally with that
+     * {@link java.io.UncheckedIOException}, though the copy is already on the user's list in memory (see {@link #applyAll}).
+     * Dependent actions attached without an *Async method run on the thread that returned the book.
+     * Cancelling the future withdraws the hold unless the book was already handed over.
+     */
+    public CompletableFuture<Book> placeHold(String userId, String bookId) {
+        User user = Optional.ofNullable(userOrNull(userId))
+                .orElseThrow(() -> new IllegalArgumentException("User with ID " + userId + " not found."));
+        Book book = Optional.ofNullable(bookOrNull(bookId))
+                .orElseThrow(() -> new IllegalArgumentException("Book with ID " + bookId + " not found."));
+        if (user.getBorrowedBooks().contains(book)) {
+            throw new IllegalArgumentException("User '" + user.getName() + "' already has '" + book.getTitle() + "'.");
+        }
+
+        CompletableFuture<Book> hold = holds.place(bookId, user);
+        PendingCommit pending = new PendingCommit();
+        dispatchHolds(book, pending); // the book may be on the shelf, or may have come back while the hold was queued
+        pending.finish();
+        return hold;
+    }
+
+    public int getHoldCount(String bookId) {
+        return bookId == null ? 0 : holds.waitingCount(bookId);
+    }
+
+    // Takes copies off the shelf for the queue while anyone is waiting. Both placeHold and returns call
+    // this after their own step, so a hold queued during a return is never left waiting on a free copy.
+    private void dispatchHolds(Book book, PendingCommit pending) {
+        int copyNumber;
+        while (holds.hasWaiting(book.getId()) && (copyNumber = book.tryBorrowCopy()) != 0) {
+            availability.update(book);
+            if (handOff(new BookCopy(book, copyNumber), pending)) {
+                continue; // more copies may be on the shelf for the rest of the queue
+            }
+            book.returnCopy(copyNumber); // every queued hold had been cancelled or was at its limit
+            availability.update(book);
+        }
+    }
+
+    /**
+     * Gives a copy the calling thread owns (its bit is set) to the first waiting user who can take it;
+     * false if there is nobody. The hold completes once the loan is committed.
+     */
+    private boolean handOff(BookCopy copy, PendingCommit pending) {
+        Book book = copy.getBook();
+        BookHoldQueues.Hold hold;
+        while ((hold = holds.claimNext(book.getId())) != null) {
+            User user = hold.getUser();
+            if (!user.reserveSlot()) {
+                hold.completeExceptionally(new BookLimitExceededException(
+                        "User '" + user.getName() + "' cannot borrow more books. Limit reached."));
+                continue;
+            }
+            pending.record(ledger == null ? 0 : ledger.appendBorrow(copy.getId(), user.getId()));
+            user.addReservedCopy(copy);
+            pending.completeWhenDurable(hold, book);
+            return true;
+        }
+        return false;
+    }
+
+    // The ledger records appended by one call, plus the holds to complete once they are durable, so a
+    // call costs one group commit however many operations it applied
+    private final class PendingCommit {
+        private long lastRecord;
+        // Each takes the commit's failure, or null once the records are durable
+        private List<Consumer<Throwable>> completions;
+
+        void record(long record) {
+            lastRecord = Math.max(lastRecord, record);
+        }
+
+        void completeWhenDurable(CompletableFuture<Book> hold, Book book) {
+            if (completions == null) {
+                completions = new ArrayList<>();
+            }
+            completions.add(failure -> {
+                if (failure == null) {
+                    hold.complete(book);
+                } else {
+                    hold.completeExceptionally(failure);
+                }
+            });
+        }
+
+        // Holds are settled whatever the commit does, so a holder never waits on a future nobody will complete
+        void finish() {
+            Throwable failure = null;
+            try {
+                if (ledger != null && lastRecord > 0) {
+                    ledger.commit(lastRecord);
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                if (completions != null) {
+                    for (Consumer<Throwable> completion : completions) {
+                        completion.accept(failure);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-applies the loans recorded in the ledger after a restart, without logging them again.
+     * Call it once the books and users have been added back with their original IDs and copy counts.
+     * @return the number of loans restored.
+     */
+    public int restoreLoans() {
+        if (ledger == null) {
+            throw new IllegalStateException("This library has no loan ledger to restore from.");
+        }
+        int restored = 0;
+        for (Map.Entry<String, String> loan : ledger.currentLoans().entrySet()) {
+            BookCopy copy = findCopy(loan.getKey());
+            User user = users.get(loan.getValue());
+            if (copy == null || user == null) {
+                throw new IllegalStateException("Loan of book " + loan.getKey() + " to user " + loan.getValue()
+                        + " refers to a book or user that has not been added.");
+            }
+            Book book = copy.getBook();
+            if (!book.restoreBorrowedCopy(copy.getCopyNumber())) {
+                continue; // already on loan, e.g. restoreLoans was called twice
+            }
+            if (!user.reserveSlot()) {
+                book.returnCopy(copy.getCopyNumber());
+                throw new IllegalStateException("User '" + user.getName() + "' holds more loans than the limit allows.");
+            }
+            availability.update(book);
+            user.addReservedCopy(copy);
+            restored++;
+        }
+        return restored;
+    }
+
+    // Resolves a copy ID from the ledger: a book ID for copy 1, else "<book ID>#<copy number>";
+    // null if it names no copy of a known book
+    private BookCopy findCopy(String copyId) {
+        Book book = books.get(copyId);
+        if (book != null) {
+            return new BookCopy(book, 1);
+        }
+        int separator = copyId.lastIndexOf('#');
+        book = separator < 0 ? null : books.get(copyId.substring(0, separator));
+        if (book == null) {
+            return null;
+        }
+        try {
+            int copyNumber = Integer.parseInt(copyId.substring(separator + 1));
+            return copyNumber >= 2 && copyNumber <= book.getCopies() ? new BookCopy(book, copyNumber) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
     /**
      * Lists all available books.
-     * @return A list of books that are not currently borrowed.
+     * Read from the maintained availability index, so the cost is O(result), not O(all books).
+     * Changes made directly through {@link Book#setBorrowed} bypass the index and are not reflected.
+     * @return A list of books with at least one copy on the shelf.
      */
     public List<Book> getAvailableBooks() {
-        return books.values().stream()
-                .filter(book -> !book.isBorrowed())
-                .collect(Collectors.toList());
+        return availability.available();
     }
 
     /**
      * Lists all borrowed books.
-     * @return A list of books that are currently borrowed.
+     * @return A list of books with at least one copy out; a book with copies both out and in is on both lists.
      */
     public List<Book> getBorrowedBooks() {
-        return books.values().stream()
-                .filter(Book::isBorrowed)
-                .collect(Collectors.toList());
+        return availability.borrowed();
+    }
+
+    public int getAvailableBookCount() {
+        return availability.availableCount();
+    }
+
+    public int getBorrowedBookCount() {
+        return availability.borrowedCount();
     }
 
     /**
-     * Filters books by author (case-insensitive, partial match).
+     * One page of available books in a stable (ID) order, without building the full list first.
+     */
+    public List<Book> getAvailableBooks(int offset, int limit) {
+        return availability.availablePage(offset, limit);
+    }
+
+    public List<Book> getBorrowedBooks(int offset, int limit) {
+        return availability.borrowedPage(offset, limit);
+    }
+
+    /**
+     * One page of available books in ID order. Pass null for the first page, then each page's
+     * {@link Page#getNextPageToken()}. A page costs O(log n + pageSize) however deep into the listing it is.
+     */
+    public Page<Book> getAvailableBooks(String pageToken, int pageSize) {
+        return page(availability.streamAvailable(Page.idAfter(pageToken)), pageSize, Book::getId);
+    }
+
+    public Page<Book> getBorrowedBooks(String pageToken, int pageSize) {
+        return page(availability.streamBorrowed(Page.idAfter(pageToken)), pageSize, Book::getId);
+    }
+
+    /**
+     * Available books in ID order, read lazily off the availability index; nothing is copied up front.
+     * Like every stream here it is weakly consistent: books borrowed or returned while it is being read
+     * may or may not show up.
+     */
+    public Stream<Book> streamAvailableBooks() {
+        return availability.streamAvailable(null);
+    }
+
+    public Stream<Book> streamBorrowedBooks() {
+        return availability.streamBorrowed(null);
+    }
+
+    /**
+     * Filters books by author (case-insensitive, word-prefix match: every word of the query must start
+     * a word of the author's name, so "Tolkien" or "j.r.r. tol" find "J.R.R. Tolkien").
+     * Answered from the author index built in {@link #addBook}, without scanning the collection.
      */
     public List<Book> findBooksByAuthor(String author) {
         if (author == null) return new ArrayList<>();
-        return books.values().stream()
-                .filter(book -> book.getAuthor().toLowerCase().contains(author.toLowerCase()))
-                .collect(Collectors.toList());
+        return authorIndex.search(author);
     }
 
     /**
-     * Filters books by genre (case-insensitive, partial match).
+     * Filters books by genre (case-insensitive exact match, ignoring surrounding and repeated whitespace).
+     * Answered with one lookup in the genre index built in {@link #addBook}.
      */
     public List<Book> findBooksByGenre(String genre) {
         if (genre == null) return new ArrayList<>();
-        return books.values().stream()
-                .filter(book -> book.getGenre().toLowerCase().contains(genre.toLowerCase()))
-                .collect(Collectors.toList());
+        return genreIndex.find(genre);
+    }
+
+    /**
+     * One page of {@link #findBooksByAuthor} matches in ID order; see {@link #getAvailableBooks(String, int)}.
+     */
+    public Page<Book> findBooksByAuthor(String author, String pageToken, int pageSize) {
+        return page(streamBooksByAuthor(author, Page.idAfter(pageToken)), pageSize, Book::getId);
+    }
+
+    public Page<Book> findBooksByGenre(String genre, String pageToken, int pageSize) {
+        return page(streamBooksByGenre(genre, Page.idAfter(pageToken)), pageSize, Book::getId);
+    }
+
+    public Stream<Book> streamBooksByAuthor(String author) {
+        return streamBooksByAuthor(author, null);
+    }
+
+    public Stream<Book> streamBooksByGenre(String genre) {
+        return streamBooksByGenre(genre, null);
+    }
+
+    private Stream<Book> streamBooksByAuthor(String author, String afterId) {
+        return author == null ? Stream.empty() : authorIndex.stream(author, afterId);
+    }
+
+    private Stream<Book> streamBooksByGenre(String genre, String afterId) {
+        return genre == null ? Stream.empty() : genreIndex.stream(genre, afterId);
+    }
+
+    /**
+     * Ranked title search: books whose titles contain any of the query's words (case-insensitive),
+     * best match first by BM25, so titles with more of the words, rarer words and fewer other words rank
+     * higher. Answered from the title index built in {@link #addBook}, keeping only the top {@code limit}.
+     */
+    public List<Book> searchByTitle(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        if (query == null) return new ArrayList<>();
+        return titleIndex.search(query, limit);
     }
 
     /**
      * Finds a book by its ID using Optional.
      */
     public Optional<Book> findBookById(String bookId) {
-        return Optional.ofNullable(books.get(bookId));
+        return Optional.ofNullable(bookOrNull(bookId));
     }
 
     /**
      * Finds a user by their ID using Optional.
      */
     public Optional<User> findUserById(String userId) {
-        return Optional.ofNullable(users.get(userId));
+        return Optional.ofNullable(userOrNull(userId));
+    }
+
+    // The maps are ConcurrentHashMaps, which reject null keys; a null ID simply finds nothing
+    private Book bookOrNull(String bookId) {
+        return bookId == null ? null : books.get(bookId);
+    }
+
+    private User userOrNull(String userId) {
+        return userId == null ? null : users.get(userId);
     }
 
     public List<User> getAllUsers() {
         return new ArrayList<>(users.values());
     }
+
+    /**
+     * One page of users in ID order; see {@link #getAvailableBooks(String, int)}.
+     */
+    public Page<User> getAllUsers(String pageToken, int pageSize) {
+        String afterId = Page.idAfter(pageToken);
+        return page((afterId == null ? usersInIdOrder : usersInIdOrder.tailMap(afterId, false)).values().stream(),
+                pageSize, User::getId);
+    }
+
+    public Stream<User> streamUsers() {
+        return usersInIdOrder.values().stream();
+    }
+
+    // Reads one item past the page to learn whether another page follows, so a page costs O(pageSize)
+    private static <T> Page<T> page(Stream<T> itemsAfterToken, int pageSize, Function<T, String> id) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive.");
+        }
+        List<T> items = itemsAfterToken.limit(pageSize + 1L).collect(Collectors.toList());
+        if (items.size() <= pageSize) {
+            return new Page<>(items, null);
+        }
+        items.remove(pageSize);
+        return new Page<>(items, Page.tokenAfter(id.apply(items.get(pageSize - 1))));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,563 @@
+package com.gevernova.booklibrarysystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of every borrow and return, so loans survive a restart and have a history.
+ *
+ * <ul>
+ *   <li>Each event is appended under one append lock and the ledger folds it into its table of
+ *       current loans (book ID -> user ID).</li>
+ *   <li>Durability uses group commit: {@link #commit} returns once an fsync covering the record has
+ *       finished, and one fsync covers every record appended while the previous one was running.</li>
+ *   <li>Every {@code snapshotEveryRecords} records the current loans are written to a snapshot on a
+ *       background thread (or on the caller's thread through {@link #snapshot()}) and the log starts a new
+ *       generation; older generations are deleted. A failed background snapshot is kept for
+ *       {@link #getSnapshotFailure()} and never fails the commit that triggered it.</li>
+ *   <li>On startup the snapshot is decoded from a read-only mapping and only the log generations after it
+ *       are replayed, through mapped windows, so replay cost is the tail length, not the full history.
+ *       A torn or corrupt record at the end of the log is cut off.</li>
+ * </ul>
+ *
+ * IDs in canonical UUID form are stored as two longs; any other ID as UTF-8.
+ * I/O failures surface as {@link UncheckedIOException}. A record whose group commit failed stays queued
+ * and is written by the next commit, so the log never gets a hole; if a failed write cannot be cut back
+ * off the log, the ledger refuses every further append.
+ */
+public class LoanLedger implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x4C4F414E; // "LOAN"
+    private static final int FORMAT_VERSION = 1;
+    // Magic, format version, generation, loan count and trailing CRC
+    private static final int MIN_SNAPSHOT_BYTES = 4 + 4 + 8 + 4 + 4;
+    private static final String SNAPSHOT_FILE = "loans.snapshot";
+    private static final String LOG_PREFIX = "loans-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private static final byte OP_BORROW = 1;
+    private static final byte OP_RETURN = 2;
+
+    private static final byte ID_UUID = 0;
+    private static final byte ID_TEXT = 1;
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES; // [payload length][CRC32 of payload]
+    private static final long REPLAY_WINDOW_BYTES = 256L * 1024 * 1024;
+
+    private final Path directory;
+    private final int snapshotEveryRecords;
+
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    // Guarded by appendLock
+    private final Map<String, String> loans = new HashMap<>();
+    private FileChannel log;
+    private long logGeneration;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedRecords;
+    private volatile long recordsSinceSnapshot; // also read without the lock to decide when to snapshot
+    private boolean closed;
+    // Written under syncLock, read without it
+    private volatile long durableRecords;
+    // Set when a failed log write could not be undone; every later append is refused
+    private volatile IOException failure;
+    private volatile Thread snapshotThread; // the latest background snapshot
+    private volatile UncheckedIOException snapshotFailure;
+    private long recoveredRecords;
+
+    public LoanLedger(Path directory) {
+        this(directory, 1_000_000);
+    }
+
+    /**
+     * @param directory            where the snapshot and log files live; created if missing.
+     * @param snapshotEveryRecords take a new snapshot after this many logged events.
+     */
+    public LoanLedger(Path directory, int snapshotEveryRecords) {
+        if (snapshotEveryRecords <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive.");
+        }
+        this.directory = directory;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open loan ledger in " + directory, e);
+        }
+    }
+
+    // --- Writing: append, then wait for the group commit ---
+
+    /**
+     * Appends a borrow event and returns its record number for {@link #commit}.
+     * Callers must append the events of one book in the order they happen; Library does this by appending
+     * while its compare-and-set still gives it sole ownership of the book.
+     */
+    public long appendBorrow(String bookId, String userId) {
+        synchronized (appendLock) {
+            checkWritable();
+            long record = appendEvent(OP_BORROW, bookId, userId);
+            loans.put(bookId, userId);
+            return record;
+        }
+    }
+
+    public long appendReturn(String bookId, String userId) {
+        synchronized (appendLock) {
+            checkWritable();
+            long record = appendEvent(OP_RETURN, bookId, userId);
+            loans.remove(bookId);
+            return record;
+        }
+    }
+
+    /**
+     * Group commit: whoever gets the sync lock first flushes and fsyncs everything appended so far,
+     * and the callers queued behind it usually find their record already durable.
+     */
+    public void commit(long record) {
+        if (durableRecords < record) {
+            synchronized (syncLock) {
+                if (durableRecords < record) {
+                    byte[] batch;
+                    long batchEnd;
+                    FileChannel channel;
+                    synchronized (appendLock) {
+                        batch = pending.toByteArray();
+                        batchEnd = appendedRecords;
+                        channel = log;
+                    }
+                    try {
+                        writeDurably(channel, batch);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Could not write loan log in " + directory, e);
+                    }
+                    synchronized (appendLock) {
+                        // Only now is the batch off the queue; records appended during the write stay queued
+                        byte[] queued = pending.toByteArray();
+                        pending = new ByteArrayOutputStream(Math.max(1024, queued.length));
+                        pending.write(queued, batch.length, queued.length - batch.length);
+                    }
+                    durableRecords = batchEnd;
+                }
+            }
+        }
+        if (recordsSinceSnapshot >= snapshotEveryRecords) {
+            snapshotInBackground();
+        }
+    }
+
+    /**
+     * The current loans, book ID -> user ID, as rebuilt from the snapshot and log plus everything appended since.
+     */
+    public Map<String, String> currentLoans() {
+        synchronized (appendLock) {
+            return new HashMap<>(loans);
+        }
+    }
+
+    /**
+     * Why the latest background snapshot failed, or null if it succeeded (or none has run yet).
+     * The log simply keeps growing until a later snapshot succeeds.
+     */
+    public UncheckedIOException getSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    /**
+     * Number of log records replayed when this ledger was opened (the snapshot itself is not counted).
+     */
+    public long getRecoveredRecords() {
+        return recoveredRecords;
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Writes the current loans to a new snapshot and starts a new log generation.
+     * Appenders are only blocked while the loans are encoded in memory; the mapped file write and fsync happen after.
+     */
+    public void snapshot() {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return; // another thread is already taking one
+        }
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    // The record that triggered this is already durable, so the snapshot runs on its own thread:
+    // a slow or failing snapshot must not delay or fail the borrow or return that crossed the interval.
+    private void snapshotInBackground() {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                writeSnapshot();
+                snapshotFailure = null;
+            } catch (UncheckedIOException e) {
+                snapshotFailure = e;
+            } finally {
+                snapshotRunning.set(false);
+            }
+        }, "loan-ledger-snapshot");
+        thread.setDaemon(true);
+        snapshotThread = thread;
+        thread.start();
+    }
+
+    private void writeSnapshot() {
+        try {
+            byte[] state;
+            long generation;
+            // Same lock order as commit(): a group commit in flight must not write to the log being rotated
+            synchronized (syncLock) {
+                synchronized (appendLock) {
+                    if (closed) {
+                        return;
+                    }
+                    flushPending(); // the old generation must be complete before it can be replaced
+                    generation = logGeneration + 1;
+                    state = encodeSnapshot(generation);
+                    log.close();
+                    log = openLog(generation);
+                    syncDirectory(); // the new generation's records are only found again if its file is
+                    logGeneration = generation;
+                    recordsSinceSnapshot = 0;
+                }
+            }
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, state.length);
+                mapped.put(state);
+                mapped.force();
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(); // make the rename durable before the logs it replaces are deleted
+            deleteLogsBefore(generation);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write loan snapshot in " + directory, e);
+        }
+    }
+
+    /**
+     * Lets a background snapshot in progress finish, then flushes the log and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread running = snapshotThread;
+        boolean interrupted = false;
+        while (running != null && running.isAlive()) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                closed = true;
+                flushPending();
+                log.close();
+            }
+        }
+    }
+
+    // --- Log writing ---
+
+    // Caller holds appendLock
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Loan ledger in " + directory + " has failed and accepts no more events", failure);
+        }
+    }
+
+    // Caller holds appendLock. Record layout: [payload length][CRC32 of payload][op][book ID][user ID]
+    private long appendEvent(byte op, String bookId, String userId) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeByte(op);
+            writeId(payload, bookId);
+            writeId(payload, userId);
+            byte[] encoded = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(encoded);
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(encoded.length);
+            out.writeInt((int) crc.getValue());
+            out.write(encoded);
+            recordsSinceSnapshot++;
+            return ++appendedRecords;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Caller holds syncLock and appendLock
+    private void flushPending() throws IOException {
+        writeDurably(log, pending.toByteArray());
+        pending.reset();
+        durableRecords = appendedRecords;
+    }
+
+    // Caller holds syncLock. On failure, cuts off whatever part of the batch reached the file, so the
+    // batch can be written again from the same offset; if even that fails, the ledger is marked failed.
+    private void writeDurably(FileChannel channel, byte[] batch) throws IOException {
+        long start = channel.position();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException undo) {
+                e.addSuppressed(undo);
+                failure = e;
+            }
+            throw e;
+        }
+    }
+
+    // Flushes the directory entries, so a created or renamed file survives a crash
+    private void syncDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // some platforms (Windows) cannot open a directory; renames are durable there without it
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        FileChannel channel = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+    }
+
+    private void deleteLogsBefore(long generation) throws IOException {
+        for (long older : logGenerations()) {
+            if (older < generation) {
+                Files.deleteIfExists(logFile(older));
+            }
+        }
+    }
+
+    // --- Encoding ---
+
+    // Caller holds appendLock, so no event can slip in between the loans being read
+    private byte[] encodeSnapshot(long generation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeInt(SNAPSHOT_MAGIC);
+        body.writeInt(FORMAT_VERSION);
+        body.writeLong(generation);
+        body.writeInt(loans.size());
+        for (Map.Entry<String, String> loan : loans.entrySet()) {
+            writeId(body, loan.getKey());
+            writeId(body, loan.getValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        body.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static void writeId(DataOutputStream out, String id) throws IOException {
+        if (isCanonicalUuid(id)) {
+            UUID uuid = UUID.fromString(id);
+            out.writeByte(ID_UUID);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        } else {
+            byte[] utf8 = id.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(ID_TEXT);
+            out.writeInt(utf8.length);
+            out.write(utf8);
+        }
+    }
+
+    private static String readId(ByteBuffer in) {
+        if (in.get() == ID_UUID) {
+            return new UUID(in.getLong(), in.getLong()).toString();
+        }
+        byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    // Lower-case 8-4-4-4-12 hex, the form UUID.toString() produces, so decoding gives back the same string
+    private static boolean isCanonicalUuid(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean dash = i == 8 || i == 13 || i == 18 || i == 23;
+            if (dash ? c != '-' : !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Recovery ---
+
+    private void recover() throws IOException {
+        long snapshotGeneration = loadSnapshot();
+        List<Long> generations = logGenerations();
+        long lastGeneration = snapshotGeneration;
+        for (long generation : generations) {
+            if (generation < snapshotGeneration) {
+                Files.delete(logFile(generation)); // already folded into the snapshot
+            } else {
+                replayLog(generation);
+                lastGeneration = generation;
+            }
+        }
+        logGeneration = lastGeneration;
+        log = openLog(lastGeneration);
+    }
+
+    private long loadSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < MIN_SNAPSHOT_BYTES) {
+                throw new IOException("Loan snapshot " + file + " is truncated.");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int bodyLength = in.limit() - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().limit(bodyLength));
+            if (in.getInt(bodyLength) != (int) crc.getValue()
+                    || in.getInt() != SNAPSHOT_MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Loan snapshot " + file + " is corrupt.");
+            }
+            long generation = in.getLong();
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                loans.put(readId(in), readId(in));
+            }
+            return generation;
+        }
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX))
+                    .forEach(name -> generations.add(Long.parseLong(
+                            name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()))));
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Replays one generation through read-only mappings of at most REPLAY_WINDOW_BYTES, so logs larger than
+     * a single mapping can hold (tens of millions of events) replay without copying them onto the heap.
+     */
+    private void replayLog(long generation) throws IOException {
+        Path file = logFile(generation);
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            boolean torn = false;
+            while (!torn && validLength < size) {
+                long windowStart = validLength; // windows always start on a record boundary
+                ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(REPLAY_WINDOW_BYTES, size - windowStart));
+                boolean progressed = false;
+                while (in.remaining() >= RECORD_HEADER_BYTES) {
+                    int length = in.getInt(in.position());
+                    int checksum = in.getInt(in.position() + Integer.BYTES);
+                    if (length <= 0 || length > size - (windowStart + in.position() + RECORD_HEADER_BYTES)) {
+                        torn = true; // torn tail
+                        break;
+                    }
+                    if (length > in.remaining() - RECORD_HEADER_BYTES) {
+                        break; // record continues past this window; the next window starts at it
+                    }
+                    ByteBuffer payload = in.slice(in.position() + RECORD_HEADER_BYTES, length);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        torn = true; // corrupt tail
+                        break;
+                    }
+                    applyRecord(payload);
+                    in.position(in.position() + RECORD_HEADER_BYTES + length);
+                    validLength = windowStart + in.position();
+                    recoveredRecords++;
+                    progressed = true;
+                }
+                if (!progressed && !torn) {
+                    torn = true; // a header split at the end of the file
+                }
+            }
+            if (validLength < size) {
+                channel.truncate(validLength); // so new records are not appended after garbage
+            }
+        }
+    }
+
+    private void applyRecord(ByteBuffer in) {
+        byte op = in.get();
+        String bookId = readId(in);
+        String userId = readId(in);
+        switch (op) {
+            case OP_BORROW:
+                loans.put(bookId, userId);
+                break;
+            case OP_RETURN:
+                loans.remove(bookId);
+                break;
+            default:
+                throw new IllegalStateException("Unknown loan log record type " + op);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.gevernova.booklibrarysystem;
+
+import java.util.Objects;
+
+/**
+ * One borrow or return submitted to {@link Library#applyAll}.
+ */
+public class LoanOperation {
+    public enum Type { BORROW, RETURN }
+
+    private final Type type;
+    private final String userId;
+    private final String bookId;
+
+    public LoanOperation(Type type, String userId, String bookId) {
+        if (type == null) {
+            throw new IllegalArgumentException("Operation type cannot be null.");
+        }
+        this.type = type;
+        this.userId = userId;
+        this.bookId = bookId;
+    }
+
+    public static LoanOperation borrow(String userId, String bookId) {
+        return new LoanOperation(Type.BORROW, userId, bookId);
+    }
+
+    public static LoanOperation giveBack(String userId, String bookId) {
+        return new LoanOperation(Type.RETURN, userId, bookId);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LoanOperation that = (LoanOperation) o;
+        return type == that.type && Objects.equals(userId, that.userId) && Objects.equals(bookId, that.bookId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, userId, bookId);
+    }
+
+    @Override
+    public String toString() {
+        return "LoanOperation{" + type + ", userId='" + userId + "', bookId='" + bookId + "'}";
+    }
+}
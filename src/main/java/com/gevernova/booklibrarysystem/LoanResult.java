@@ -0,0 +1,21 @@
+package com.gevernova.booklibrarysystem;
+
+/**
+ * Outcome of one operation in {@link Library#applyAll}. Each failure matches an exception that
+ * borrowBook or returnBook would have thrown.
+ */
+public enum LoanResult {
+    BORROWED,
+    RETURNED,
+    BOOK_UNAVAILABLE,
+    LIMIT_REACHED,
+    NOT_BORROWED,
+    NOT_BORROWED_BY_USER,
+    USER_NOT_FOUND,
+    BOOK_NOT_FOUND,
+    INVALID_OPERATION;
+
+    public boolean isSuccess() {
+        return this == BORROWED || this == RETURNED;
+    }
+}
@@ -0,0 +1,58 @@
+package com.gevernova.booklibrarysystem;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a listing, plus the token that resumes the listing right after it.
+ * The token is opaque: pass it back unchanged, to the same query, to get the next page. It is null on
+ * the last page. Pages resume after the last item seen rather than at a position, so items added or
+ * removed meanwhile never make a page repeat or skip the items around them.
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    Page(List<T> items, String nextPageToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+
+    // A token holds the ID of the last item on its page; the listings are all in ID order
+    static String tokenAfter(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The ID a token resumes after, or null for a null token (the first page).
+     */
+    static String idAfter(String token) {
+        if (token == null) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token: " + token, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" + items.size() + " items, nextPageToken=" + nextPageToken + '}';
+    }
+}
@@ -1,24 +1,39 @@
 package com.gevernova.booklibrarysystem;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class User {
     private final String id;
     private String name;
-    private final List<Book> borrowedBooks;
+    // Copy-on-write: at most MAX_BORROWED_BOOKS entries, so copying is cheap and readers never lock
+    private final CopyOnWriteArrayList<BookCopy> borrowedCopies;
+    // Slots claimed against the limit, including checkouts still in flight; only changed by compare-and-set
+    private final AtomicInteger reservedSlots = new AtomicInteger();
     private static final int MAX_BORROWED_BOOKS = 3; // Maximum books a user can borrow
 
     public User(String name) {
+        this(UUID.randomUUID().toString(), name);
+    }
+
+    /**
+     * Rebuilds a user that already has an ID, e.g. when a library is reloaded from its loan ledger.
+     */
+    public User(String id, String name) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("User ID cannot be null or blank.");
+        }
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("User name cannot be null or blank.");
         }
-        this.id = UUID.randomUUID().toString();
+        this.id = id;
         this.name = name;
-        this.borrowedBooks = new ArrayList<>();
+        this.borrowedCopies = new CopyOnWriteArrayList<>();
     }
 
     public String getId() {
@@ -29,40 +44,93 @@ public class User {
         return name;
     }
 
+    /**
+     * The books the user has, in borrowing order; a book appears once per copy of it the user has.
+     */
     public List<Book> getBorrowedBooks() {
-        return Collections.unmodifiableList(borrowedBooks); // Return unmodifiable list
+        return borrowedCopies.stream().map(BookCopy::getBook).collect(Collectors.toUnmodifiableList());
+    }
+
+    public List<BookCopy> getBorrowedCopies() {
+        return Collections.unmodifiableList(borrowedCopies); // Return unmodifiable list
     }
 
     public int getNumberOfBorrowedBooks() {
-        return borrowedBooks.size();
+        return borrowedCopies.size();
     }
 
     public boolean canBorrowMoreBooks() {
-        return borrowedBooks.size() < MAX_BORROWED_BOOKS;
+        return reservedSlots.get() < MAX_BORROWED_BOOKS;
     }
 
+    /**
+     * Records the book on the user's list as its first copy, without taking it from a library's shelf.
+     */
     public void borrowBook(Book book) {
         if (book == null) {
             throw new IllegalArgumentException("Book cannot be null.");
         }
-        if (borrowedBooks.size() >= MAX_BORROWED_BOOKS) {
+        if (!reserveSlot()) {
             throw new IllegalStateException("User has reached the maximum borrowing limit of " + MAX_BORROWED_BOOKS + " books.");
         }
-        if (borrowedBooks.contains(book)) {
+        if (!borrowedCopies.addIfAbsent(new BookCopy(book, 1))) {
+            releaseSlot();
             throw new IllegalStateException("User has already borrowed this book.");
         }
-        borrowedBooks.add(book);
     }
 
     public void returnBook(Book book) {
         if (book == null) {
             throw new IllegalArgumentException("Book cannot be null.");
         }
-        if (!borrowedBooks.remove(book)) {
+        if (removeBorrowedCopy(book) == null) {
             throw new IllegalStateException("User did not borrow this book.");
         }
     }
 
+    // --- Lock-free checkout steps used by Library: claim a slot first, then take a copy, then record it ---
+
+    /**
+     * Claims one of the user's borrowing slots, failing if the limit is reached. Concurrent checkouts by
+     * the same user compete for the slots, so the limit holds without a lock.
+     */
+    boolean reserveSlot() {
+        while (true) {
+            int slots = reservedSlots.get();
+            if (slots >= MAX_BORROWED_BOOKS) {
+                return false;
+            }
+            if (reservedSlots.compareAndSet(slots, slots + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void releaseSlot() {
+        reservedSlots.decrementAndGet();
+    }
+
+    /**
+     * Records a copy taken with a slot already claimed by {@link #reserveSlot()}.
+     */
+    void addReservedCopy(BookCopy copy) {
+        borrowedCopies.add(copy);
+    }
+
+    /**
+     * Removes one of the user's copies of the book and frees its slot; null if the user has none.
+     * Of two concurrent returns competing for the same copy, only one gets it.
+     */
+    BookCopy removeBorrowedCopy(Book book) {
+        for (BookCopy copy : borrowedCopies) {
+            if (copy.getBook().equals(book) && borrowedCopies.remove(copy)) {
+                releaseSlot();
+                return copy;
+            }
+        }
+        return null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -79,9 +147,9 @@ public class User {
     @Override
     public String toString() {
         return "User{" +
-                "id='" + id.substring(0, 8) + '\'' +
+                "id='" + id.substring(0, Math.min(8, id.length())) + '\'' +
                 ", name='" + name + '\'' +
-                ", borrowedBooksCount=" + borrowedBooks.size() +
+                ", borrowedBooksCount=" + getNumberOfBorrowedBooks() +
                 '}';
     }
 }
@@ -0,0 +1,323 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of a slow repository (remote or disk-backed).
+ * findProductById and productExists, which InventoryService calls on nearly every operation,
+ * are answered from a bounded LRU map of recently used products; only misses reach the backend.
+ * Larger caches are split into independently locked segments by product ID, each with its own LRU
+ * order, so lookups of different products rarely wait for each other; eviction is then least recently
+ * used per segment rather than across the whole cache.
+ * Every write goes to the backend first and then drops the cached entry, so the next read
+ * fetches the stored state. Queries over many products (category, name, price order, low stock,
+ * streaming) are passed straight through so the backend's own indexes are used.
+ * Thread-safe if the backend is.
+ */
+public class CachingInventoryRepository implements InventoryRepository {
+    // A segment is only worth its own lock once it holds this many products
+    private static final int MIN_SEGMENT_SIZE = 64;
+    private static final int MAX_SEGMENTS = 32;
+    private static final int STAMP_SLOTS = 1024;
+
+    private final InventoryRepository backend;
+    // Key: Product ID, Value: Product object; each segment is access-ordered, so its eldest entry is its least
+    // recently used. A product always lives in the segment its ID hashes to, and that segment's monitor guards it.
+    private final LinkedHashMap<String, Product>[] segments;
+    // Invalidation stamps by ID hash: bumped by every write to a product hashing to the slot, so a miss only
+    // caches what it loaded if no write to that product (or to one sharing its slot) happened meanwhile
+    private final AtomicLongArray stamps = new AtomicLongArray(STAMP_SLOTS);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize most products kept in the cache; the least recently used one is evicted beyond that.
+     */
+    public CachingInventoryRepository(InventoryRepository backend, int maximumSize) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Backend repository cannot be null.");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive.");
+        }
+        this.backend = backend;
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maximumSize / MIN_SEGMENT_SIZE)));
+        @SuppressWarnings({"unchecked", "rawtypes"}) // generic array creation
+        LinkedHashMap<String, Product>[] created = new LinkedHashMap[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // The capacities add up to exactly maximumSize
+            int capacity = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            created[i] = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Product> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+        this.segments = created;
+    }
+
+    @Override
+    public Optional<Product> findProductById(String productId) {
+        Product cached = cachedProduct(productId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return load(productId);
+    }
+
+    /**
+     * A miss loads the whole product rather than asking the backend whether it exists, so the next
+     * findProductById for it (which usually follows) is a hit.
+     */
+    @Override
+    public boolean productExists(String productId) {
+        // Only positive answers are cached; new IDs would otherwise fill the cache with absent entries
+        return cachedProduct(productId) != null || load(productId).isPresent();
+    }
+
+    @Override
+    public void addProduct(Product product) {
+        try {
+            backend.addProduct(product);
+        } finally {
+            invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public void addProducts(List<Product> products) {
+        try {
+            backend.addProducts(products);
+        } finally {
+            for (Product product : products) {
+                invalidate(product.getId());
+            }
+        }
+    }
+
+    @Override
+    public void updateProduct(Product product) throws ProductNotFoundException {
+        try {
+            backend.updateProduct(product);
+        } finally {
+            invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public void updateProduct(Product product, long expectedVersion) throws ProductNotFoundException, ProductVersionConflictException {
+        try {
+            backend.updateProduct(product, expectedVersion);
+        } finally {
+            invalidate(product.getId());
+        }
+    }
+
+    @Override
+    public void removeProduct(String productId) throws ProductNotFoundException {
+        try {
+            backend.removeProduct(productId);
+        } finally {
+            invalidate(productId);
+        }
+    }
+
+    @Override
+    public int adjustQuantity(String productId, int delta) throws ProductNotFoundException, InvalidProductException {
+        try {
+            return backend.adjustQuantity(productId, delta);
+        } finally {
+            invalidate(productId);
+        }
+    }
+
+    // --- Pass-through queries ---
+
+    @Override
+    public List<Product> findAllProducts() {
+        return backend.findAllProducts();
+    }
+
+    @Override
+    public Spliterator<Product> spliterator() {
+        return backend.spliterator();
+    }
+
+    @Override
+    public List<Product> findProductsByCategory(ProductCategory category) {
+        return backend.findProductsByCategory(category);
+    }
+
+    @Override
+    public List<Product> findProductsByName(String name) {
+        return backend.findProductsByName(name);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByPrice(ProductCategory category) {
+        return backend.streamProductsByPrice(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByCategoryAndPrice() {
+        return backend.streamProductsByCategoryAndPrice();
+    }
+
+    @Override
+    public List<Product> findProductsBelowQuantity(int threshold) {
+        return backend.findProductsBelowQuantity(threshold);
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(ProductCategory category, int limit) {
+        return backend.findMostExpensiveProducts(category, limit);
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(int limit) {
+        return backend.findMostExpensiveProducts(limit);
+    }
+
+    @Override
+    public List<Product> findLowestStockProducts(int limit) {
+        return backend.findLowestStockProducts(limit);
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(double minPrice, double maxPrice) {
+        return backend.findProductsInPriceRange(minPrice, maxPrice);
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return backend.findProductsInPriceRange(category, minPrice, maxPrice);
+    }
+
+    @Override
+    public double totalStockValue() {
+        return backend.totalStockValue();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> skuCountByCategory() {
+        return backend.skuCountByCategory();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> unitsByCategory() {
+        return backend.unitsByCategory();
+    }
+
+    // --- Cache statistics ---
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Share of ID lookups answered from the cache, or 0 before the first lookup.
+     */
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Number of products currently cached.
+     */
+    public int cachedCount() {
+        int count = 0;
+        for (LinkedHashMap<String, Product> segment : segments) {
+            synchronized (segment) {
+                count += segment.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Drops every cached product, e.g. after the backend was changed by someone else.
+     */
+    public void clear() {
+        for (int slot = 0; slot < STAMP_SLOTS; slot++) {
+            stamps.incrementAndGet(slot); // loads already in flight must not refill the cache
+        }
+        for (LinkedHashMap<String, Product> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Product cachedProduct(String productId) {
+        LinkedHashMap<String, Product> segment = segmentFor(productId);
+        Product cached;
+        synchronized (segment) {
+            cached = segment.get(productId); // also moves the entry to the most recently used end
+        }
+        if (cached != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return cached;
+    }
+
+    private Optional<Product> load(String productId) {
+        int slot = stampSlot(productId);
+        long stampBeforeLoad = stamps.get(slot);
+        Optional<Product> loaded = backend.findProductById(productId);
+        loaded.ifPresent(product -> {
+            LinkedHashMap<String, Product> segment = segmentFor(productId);
+            synchronized (segment) {
+                // A write to this product that raced with the load may have made the loaded copy stale, so skip caching it
+                if (stamps.get(slot) == stampBeforeLoad) {
+                    segment.put(productId, product);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    private void invalidate(String productId) {
+        LinkedHashMap<String, Product> segment = segmentFor(productId);
+        synchronized (segment) {
+            stamps.incrementAndGet(stampSlot(productId));
+            segment.remove(productId);
+        }
+    }
+
+    private LinkedHashMap<String, Product> segmentFor(String productId) {
+        return segments[spread(productId) & (segments.length - 1)];
+    }
+
+    private static int stampSlot(String productId) {
+        return spread(productId) & (STAMP_SLOTS - 1);
+    }
+
+    // Mixes the high bits of the hash in, since only the low bits pick a segment or slot
+    private static int spread(String productId) {
+        int hash = productId.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
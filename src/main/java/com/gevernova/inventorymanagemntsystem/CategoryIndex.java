@@ -0,0 +1,196 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Secondary index from category to the products in it, kept up to date by the repository
+ * on every add, update and remove, so a category lookup costs O(matches) instead of a catalog scan.
+ * Each category's products are kept sorted by price, so price-ordered listings, most-expensive-first
+ * listings and price ranges stream straight out of the index with no per-call sort; listings over
+ * every category merge the per-category orderings lazily.
+ * The EnumMap is filled once in the constructor and never changes shape afterwards,
+ * and each bucket is a concurrent skip list, so the index is safe to share between threads.
+ */
+public class CategoryIndex {
+    // Price first; the ID breaks ties so two products with the same price are both kept
+    public static final Comparator<Product> BY_PRICE =
+            Comparator.comparingDouble(Product::getPrice).thenComparing(Product::getId);
+
+    // Sort key of one product. Products never change price in place (a new price means a new instance
+    // replacing the old one), so the key can be rebuilt from the product on removal. A null ID makes a
+    // range bound that sorts before (or, with afterTies, after) every product at that price.
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final double price;
+        private final String id;
+        private final boolean afterTies;
+
+        private PriceKey(double price, String id, boolean afterTies) {
+            this.price = price;
+            this.id = id;
+            this.afterTies = afterTies;
+        }
+
+        private static PriceKey of(Product product) {
+            return new PriceKey(product.getPrice(), product.getId(), false);
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Double.compare(price, other.price);
+            if (byPrice != 0) {
+                return byPrice;
+            }
+            if (id == null || other.id == null) {
+                return Integer.compare(tieRank(), other.tieRank());
+            }
+            return id.compareTo(other.id);
+        }
+
+        private int tieRank() {
+            return id != null ? 0 : afterTies ? 1 : -1;
+        }
+    }
+
+    // Key: category, Value: every product in that category, cheapest first
+    private final Map<ProductCategory, NavigableMap<PriceKey, Product>> productsByCategory = new EnumMap<>(ProductCategory.class);
+
+    public CategoryIndex() {
+        for (ProductCategory category : ProductCategory.values()) {
+            productsByCategory.put(category, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    public void add(Product product) {
+        productsByCategory.get(product.getCategory()).put(PriceKey.of(product), product);
+    }
+
+    public void remove(Product product) {
+        productsByCategory.get(product.getCategory()).remove(PriceKey.of(product), product);
+    }
+
+    /**
+     * Adds many products at once, cheapest first within each category.
+     */
+    public void addAll(List<Product> products) {
+        Product[] sorted = products.toArray(new Product[0]);
+        // Same order as PriceKey; input that is already in category and price order (a snapshot) sorts in one pass
+        Arrays.parallelSort(sorted, BY_PRICE);
+        for (Product product : sorted) {
+            productsByCategory.get(product.getCategory()).put(PriceKey.of(product), product);
+        }
+    }
+
+    public List<Product> find(ProductCategory category) {
+        return new ArrayList<>(productsByCategory.get(category).values());
+    }
+
+    /**
+     * Streams the products of one category, cheapest first.
+     */
+    public Stream<Product> streamByPrice(ProductCategory category) {
+        return productsByCategory.get(category).values().stream();
+    }
+
+    /**
+     * Streams the products of one category, most expensive first.
+     */
+    public Stream<Product> streamByPriceDescending(ProductCategory category) {
+        return productsByCategory.get(category).descendingMap().values().stream();
+    }
+
+    /**
+     * Streams every product ordered by category (declaration order), then by price.
+     */
+    public Stream<Product> streamByCategoryAndPrice() {
+        return productsByCategory.values().stream().flatMap(products -> products.values().stream());
+    }
+
+    /**
+     * Streams the products of one category priced from {@code minPrice} to {@code maxPrice} inclusive, cheapest first.
+     * Finding the start of the range is a skip-list descent, so the cost is O(log n + k).
+     */
+    public Stream<Product> streamInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return priceRange(category, minPrice, maxPrice).values().stream();
+    }
+
+    /**
+     * Streams the products of every category priced from {@code minPrice} to {@code maxPrice} inclusive, cheapest first.
+     */
+    public Stream<Product> streamInPriceRange(double minPrice, double maxPrice) {
+        List<Iterator<Product>> ranges = new ArrayList<>();
+        for (ProductCategory category : productsByCategory.keySet()) {
+            ranges.add(priceRange(category, minPrice, maxPrice).values().iterator());
+        }
+        return merge(ranges, BY_PRICE);
+    }
+
+    /**
+     * Streams every product, most expensive first, by merging the categories' orderings as it goes.
+     */
+    public Stream<Product> streamByPriceDescending() {
+        List<Iterator<Product>> categories = new ArrayList<>();
+        for (NavigableMap<PriceKey, Product> products : productsByCategory.values()) {
+            categories.add(products.descendingMap().values().iterator());
+        }
+        return merge(categories, BY_PRICE.reversed());
+    }
+
+    private NavigableMap<PriceKey, Product> priceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return productsByCategory.get(category).subMap(
+                new PriceKey(minPrice, null, false), true, new PriceKey(maxPrice, null, true), true);
+    }
+
+    // Lazy k-way merge of already sorted iterators: each element costs O(log categories), nothing is copied
+    private static Stream<Product> merge(List<Iterator<Product>> sources, Comparator<Product> order) {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sources.size()), (a, b) -> order.compare(a.product, b.product));
+        for (Iterator<Product> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head(source.next(), source));
+            }
+        }
+        Iterator<Product> merged = new Iterator<Product>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Product next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.source.hasNext()) {
+                    heads.add(new Head(head.source.next(), head.source));
+                }
+                return head.product;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    // The next product of one source during a merge
+    private static final class Head {
+        private final Product product;
+        private final Iterator<Product> source;
+
+        private Head(Product product, Iterator<Product> source) {
+            this.product = product;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.*;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Struct-of-arrays repository for analytics over very large catalogs.
+ * Instead of one Product object per row it keeps one primitive array per field
+ * (quantities in int[], prices in double[], category ordinals in byte[]) and stores each distinct
+ * name once in a dictionary. Aggregates are tight loops over the primitive columns with no object
+ * loads, which the JIT can unroll and, for the integer loops, vectorize.
+ * Rows are dense: removing a product moves the last row into its slot.
+ * Product objects are built on demand, so changes made to a returned Product only reach the store
+ * through updateProduct or adjustQuantity (which is what InventoryService does).
+ * Reads share a read lock and writes take the write lock. Each row also keeps the version stamp
+ * handed out on its Product objects, so optimistic updates work as for the object-based repositories.
+ */
+public class ColumnarInventoryRepository implements InventoryRepository {
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Key: Product ID, Value: row index into the columns
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    private int[] nameCodes = new int[INITIAL_CAPACITY];
+    private byte[] categoryOrdinals = new byte[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] versions = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // Name dictionary: each distinct name is stored once and rows refer to it by code
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameCodeByName = new HashMap<>();
+
+    @Override
+    public void addProduct(Product product) {
+        lock.writeLock().lock();
+        try {
+            if (rowById.containsKey(product.getId())) {
+                throw new ProductAlreadyExists("Product with ID " + product.getId() + " already exists.");
+            }
+            ensureCapacity(size + 1);
+            ids[size] = product.getId();
+            versions[size] = (int) product.getVersion();
+            writeRow(size, product);
+            rowById.put(product.getId(), size);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // One write-lock acquisition and at most one array growth for the whole batch
+    @Override
+    public void addProducts(List<Product> products) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + products.size());
+            for (Product product : products) {
+                if (rowById.containsKey(product.getId())) {
+                    throw new ProductAlreadyExists("Product with ID " + product.getId() + " already exists.");
+                }
+                ids[size] = product.getId();
+                versions[size] = (int) product.getVersion();
+                writeRow(size, product);
+                rowById.put(product.getId(), size);
+                size++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateProduct(Product product) throws ProductNotFoundException {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(product.getId());
+            if (row == null) {
+                throw new ProductNotFoundException("Product with ID " + product.getId() + " not found for update.");
+            }
+            writeRow(row, product);
+            bumpVersion(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateProduct(Product product, long expectedVersion) throws ProductNotFoundException, ProductVersionConflictException {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(product.getId());
+            if (row == null) {
+                throw new ProductNotFoundException("Product with ID " + product.getId() + " not found for update.");
+            }
+            if (versions[row] != expectedVersion) {
+                throw new ProductVersionConflictException("Product with ID " + product.getId() + " was changed concurrently. Expected version "
+                        + expectedVersion + ", found " + versions[row] + ".");
+            }
+            writeRow(row, product);
+            bumpVersion(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeProduct(String productId) throws ProductNotFoundException {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.remove(productId);
+            if (row == null) {
+                throw new ProductNotFoundException("Product with ID " + productId + " not found for removal.");
+            }
+            int last = size - 1;
+            if (row != last) {
+                ids[row] = ids[last];
+                nameCodes[row] = nameCodes[last];
+                categoryOrdinals[row] = categoryOrdinals[last];
+                quantities[row] = quantities[last];
+                prices[row] = prices[last];
+                versions[row] = versions[last];
+                rowById.put(ids[row], row);
+            }
+            ids[last] = null;
+            size = last;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Product> findProductById(String productId) {
+        lock.readLock().lock();
+        try {
+            Integer row = rowById.get(productId);
+            return row == null ? Optional.empty() : Optional.of(readRow(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> findAllProducts() {
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                products.add(readRow(row));
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean productExists(String productId) {
+        lock.readLock().lock();
+        try {
+            return rowById.containsKey(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> findProductsByCategory(ProductCategory category) {
+        byte ordinal = (byte) category.ordinal();
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (categoryOrdinals[row] == ordinal) {
+                    products.add(readRow(row));
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Product> findProductsBelowQuantity(int threshold) {
+        lock.readLock().lock();
+        try {
+            List<Product> products = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (quantities[row] < threshold) {
+                    products.add(readRow(row));
+                }
+            }
+            return products;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int adjustQuantity(String productId, int delta) throws ProductNotFoundException, InvalidProductException {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.get(productId);
+            if (row == null) {
+                throw new ProductNotFoundException("Product with ID " + productId + " not found.");
+            }
+            int current = quantities[row];
+            if (current + delta < 0) {
+                throw new InvalidProductException("Cannot decrease quantity below zero. Current: " + current + ", Decrease: " + (-delta));
+            }
+            quantities[row] = current + delta;
+            bumpVersion(row);
+            return current + delta;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- Aggregates over the primitive columns ---
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum of quantity x price over every product.
+     */
+    @Override
+    public double totalStockValue() {
+        lock.readLock().lock();
+        try {
+            double total = 0;
+            for (int row = 0; row < size; row++) {
+                total += quantities[row] * prices[row];
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sum of quantity x price per category; categories with no products report 0.
+     */
+    public Map<ProductCategory, Double> stockValueByCategory() {
+        double[] totals = new double[CATEGORIES.length];
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                totals[categoryOrdinals[row]] += quantities[row] * prices[row];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<ProductCategory, Double> byCategory = new EnumMap<>(ProductCategory.class);
+        for (ProductCategory category : CATEGORIES) {
+            byCategory.put(category, totals[category.ordinal()]);
+        }
+        return byCategory;
+    }
+
+    @Override
+    public Map<ProductCategory, Long> skuCountByCategory() {
+        long[] counts = new long[CATEGORIES.length];
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                counts[categoryOrdinals[row]]++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toCategoryMap(counts);
+    }
+
+    @Override
+    public Map<ProductCategory, Long> unitsByCategory() {
+        long[] units = new long[CATEGORIES.length];
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                units[categoryOrdinals[row]] += quantities[row];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return toCategoryMap(units);
+    }
+
+    /**
+     * Number of products with quantity strictly below {@code threshold}.
+     */
+    public int countBelowQuantity(int threshold) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                count += quantities[row] < threshold ? 1 : 0;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stock histogram: bucket i counts products with quantity in [i * bucketWidth, (i + 1) * bucketWidth),
+     * and the last bucket also takes everything above the covered range.
+     */
+    public int[] quantityHistogram(int bucketWidth, int bucketCount) {
+        if (bucketWidth <= 0 || bucketCount <= 0) {
+            throw new IllegalArgumentException("Bucket width and bucket count must be positive.");
+        }
+        int[] histogram = new int[bucketCount];
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                histogram[Math.min(quantities[row] / bucketWidth, bucketCount - 1)]++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return histogram;
+    }
+
+    /**
+     * Rough heap footprint of this store in bytes: the columns (allocated capacity), the ID index
+     * and the name dictionary. Assumes compressed references and Latin-1 strings, which is what
+     * a default 64-bit JVM uses for UUIDs and typical product names.
+     */
+    public long estimatedFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = arrayBytes(ids.length, 4) + arrayBytes(nameCodes.length, 4)
+                    + arrayBytes(categoryOrdinals.length, 1) + arrayBytes(quantities.length, 4)
+                    + arrayBytes(prices.length, 8) + arrayBytes(versions.length, 4);
+            // Per ID: the String and its byte[] (shared with nothing else), a HashMap node and a boxed Integer
+            long idIndex = size * (24L + arrayBytes(36, 1) + 32L + 16L) + arrayBytes(Integer.highestOneBit(Math.max(1, size)) * 2, 4);
+            long dictionary = 0;
+            for (String name : names) {
+                // The String, its bytes, a reference in the list and a node + boxed code in the lookup map
+                dictionary += 24L + arrayBytes(name.length(), 1) + 4L + 32L + 16L;
+            }
+            return columns + idIndex + dictionary;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Map<ProductCategory, Long> toCategoryMap(long[] totals) {
+        Map<ProductCategory, Long> byCategory = new EnumMap<>(ProductCategory.class);
+        for (ProductCategory category : CATEGORIES) {
+            byCategory.put(category, totals[category.ordinal()]);
+        }
+        return byCategory;
+    }
+
+    private static long arrayBytes(int length, int elementBytes) {
+        return (16L + (long) length * elementBytes + 7) & ~7L; // header plus data, rounded to 8 bytes
+    }
+
+    private void writeRow(int row, Product product) {
+        nameCodes[row] = nameCodeByName.computeIfAbsent(product.getName(), name -> {
+            names.add(name);
+            return names.size() - 1;
+        });
+        categoryOrdinals[row] = (byte) product.getCategory().ordinal();
+        quantities[row] = product.getQuantity();
+        prices[row] = product.getPrice();
+    }
+
+    private Product readRow(int row) {
+        Product product = new Product(ids[row], names.get(nameCodes[row]), CATEGORIES[categoryOrdinals[row]], quantities[row], prices[row]);
+        product.attach(versions[row]);
+        return product;
+    }
+
+    private void bumpVersion(int row) {
+        versions[row] = (versions[row] + 1) & Integer.MAX_VALUE; // same 31-bit wrap-around as Product
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        nameCodes = Arrays.copyOf(nameCodes, capacity);
+        categoryOrdinals = Arrays.copyOf(categoryOrdinals, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+}
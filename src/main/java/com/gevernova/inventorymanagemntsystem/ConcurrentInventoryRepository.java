@@ -0,0 +1,235 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Thread-safe repository for many request threads sharing one inventory.
+ * Lookups and structural changes go through a ConcurrentHashMap (no global lock),
+ * and stock changes are compare-and-set loops on the product itself, so two orders
+ * can never both pass the stock check and oversell.
+ */
+public class ConcurrentInventoryRepository implements InventoryRepository {
+    // Key: Product ID, Value: Product object
+    private final Map<String, Product> products;
+    private final ProductIndexes indexes;
+
+    public ConcurrentInventoryRepository() {
+        this(false);
+    }
+
+    /**
+     * @param indexProductNames keep a trigram index on product names so partial-name searches
+     *                          skip the full scan, at the cost of extra memory and slower writes.
+     */
+    public ConcurrentInventoryRepository(boolean indexProductNames) {
+        this.products = new ConcurrentHashMap<>();
+        this.indexes = new ProductIndexes(indexProductNames);
+    }
+
+    /**
+     * Starts out holding {@code initialProducts}, e.g. a catalog decoded from a snapshot. The ID map is sized
+     * for them up front and the indexes are built in sorted order (see {@link ProductIndexes#addAll}),
+     * which is much faster than adding the products one by one.
+     */
+    ConcurrentInventoryRepository(boolean indexProductNames, List<Product> initialProducts) {
+        this.products = new ConcurrentHashMap<>(Math.max(16, initialProducts.size() * 4 / 3 + 1));
+        this.indexes = new ProductIndexes(indexProductNames);
+        for (Product product : initialProducts) {
+            if (products.putIfAbsent(product.getId(), product) != null) {
+                throw new ProductAlreadyExists("Product with ID " + product.getId() + " already exists.");
+            }
+            product.attach(product.getVersion());
+        }
+        indexes.addAll(initialProducts);
+    }
+
+    // Index maintenance runs inside compute*, which locks only the map bin of that product ID,
+    // so an add, update and remove of the same product can never leave the indexes out of step.
+    @Override
+    public void addProduct(Product product) {
+        products.compute(product.getId(), (id, existing) -> {
+            if (existing != null) {
+                throw new ProductAlreadyExists("Product with ID " + product.getId() + " already exists.");
+            }
+            product.attach(product.getVersion());
+            indexes.add(product);
+            return product;
+        });
+    }
+
+    @Override
+    public void updateProduct(Product product) throws ProductNotFoundException {
+        Product updated = products.computeIfPresent(product.getId(), (id, existing) -> {
+            if (existing != product) {
+                // Detaching makes any in-flight stock change on the old instance fail and retry on the new one
+                product.attach(existing.detach() + 1);
+            }
+            indexes.replace(existing, product);
+            return product;
+        });
+        if (updated == null) {
+            throw new ProductNotFoundException("Product with ID " + product.getId() + " not found for update.");
+        }
+    }
+
+    /**
+     * Compare-and-swap on the version: the check and the replacement happen under the map bin lock,
+     * and the stored instance is detached only if it is still at {@code expectedVersion}, so a stock
+     * change that slips in first makes this update conflict instead of being overwritten.
+     */
+    @Override
+    public void updateProduct(Product product, long expectedVersion) throws ProductNotFoundException, ProductVersionConflictException {
+        Product updated = products.computeIfPresent(product.getId(), (id, existing) -> {
+            boolean unchanged = existing == product
+                    ? existing.getVersion() == expectedVersion
+                    : existing.detach(expectedVersion);
+            if (!unchanged) {
+                throw new ProductVersionConflictException("Product with ID " + id + " was changed concurrently. Expected version "
+                        + expectedVersion + ", found " + existing.getVersion() + ".");
+            }
+            if (existing != product) {
+                product.attach(expectedVersion + 1);
+                indexes.replace(existing, product);
+            }
+            return product;
+        });
+        if (updated == null) {
+            throw new ProductNotFoundException("Product with ID " + product.getId() + " not found for update.");
+        }
+    }
+
+    @Override
+    public void removeProduct(String productId) throws ProductNotFoundException {
+        Product[] removed = new Product[1];
+        products.computeIfPresent(productId, (id, existing) -> {
+            existing.detach();
+            indexes.remove(existing);
+            removed[0] = existing;
+            return null;
+        });
+        if (removed[0] == null) {
+            throw new ProductNotFoundException("Product with ID " + productId + " not found for removal.");
+        }
+    }
+
+    @Override
+    public Optional<Product> findProductById(String productId) {
+        return Optional.ofNullable(products.get(productId));
+    }
+
+    @Override
+    public List<Product> findAllProducts() {
+        return new ArrayList<>(products.values());
+    }
+
+    @Override
+    public boolean productExists(String productId) {
+        return products.containsKey(productId);
+    }
+
+    // Weakly consistent: never throws ConcurrentModificationException, splits by table range for parallel
+    // streams, and sees each product at most once, with or without writes that race the traversal
+    @Override
+    public Spliterator<Product> spliterator() {
+        return products.values().spliterator();
+    }
+
+    @Override
+    public List<Product> findProductsByCategory(ProductCategory category) {
+        return indexes.findByCategory(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByPrice(ProductCategory category) {
+        return indexes.streamByPrice(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByCategoryAndPrice() {
+        return indexes.streamByCategoryAndPrice();
+    }
+
+    @Override
+    public List<Product> findProductsBelowQuantity(int threshold) {
+        return indexes.findBelowQuantity(threshold);
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(ProductCategory category, int limit) {
+        return indexes.streamByPriceDescending(category).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(int limit) {
+        return indexes.streamByPriceDescending().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findLowestStockProducts(int limit) {
+        return indexes.streamByQuantity().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(double minPrice, double maxPrice) {
+        return indexes.streamInPriceRange(minPrice, maxPrice).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return indexes.streamInPriceRange(category, minPrice, maxPrice).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findProductsByName(String name) {
+        return indexes.hasNameIndex() ? indexes.findByName(name) : InventoryRepository.super.findProductsByName(name);
+    }
+
+    @Override
+    public double totalStockValue() {
+        return indexes.aggregates().totalStockValue();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> skuCountByCategory() {
+        return indexes.aggregates().skuCountByCategory();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> unitsByCategory() {
+        return indexes.aggregates().unitsByCategory();
+    }
+
+    /**
+     * Atomically adds {@code delta} to the product's quantity, retrying if another thread changed it first
+     * or replaced the product meanwhile.
+     */
+    @Override
+    public int adjustQuantity(String productId, int delta) throws ProductNotFoundException, InvalidProductException {
+        while (true) {
+            // Looked up on every attempt: a detached (replaced or removed) instance rejects the CAS
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new ProductNotFoundException("Product with ID " + productId + " not found.");
+            }
+            int current = product.getQuantity();
+            int updated = current + delta;
+            if (updated < 0) {
+                throw new InvalidProductException("Cannot decrease quantity below zero. Current: " + current + ", Decrease: " + (-delta));
+            }
+            if (product.compareAndSetQuantity(current, updated)) {
+                // Re-file under the bin lock so a concurrent remove cannot be undone by a late refresh
+                products.computeIfPresent(productId, (id, existing) -> {
+                    if (existing == product) {
+                        indexes.refreshQuantity(existing);
+                    }
+                    return existing;
+                });
+                return updated;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk catalog import: how many rows were read and stored, how fast, and why each
+ * rejected row was turned away.
+ */
+public class ImportReport {
+
+    /**
+     * One row that was not imported.
+     */
+    public static class Reject {
+        private final long lineNumber;
+        private final String reason;
+
+        Reject(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        /**
+         * 1-based line number in the source file.
+         */
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + reason;
+        }
+    }
+
+    private final long rowsRead;
+    private final long rowsImported;
+    private final List<Reject> rejects;
+    private final long elapsedNanos;
+
+    ImportReport(long rowsRead, long rowsImported, List<Reject> rejects, long elapsedNanos) {
+        this.rowsRead = rowsRead;
+        this.rowsImported = rowsImported;
+        this.rejects = Collections.unmodifiableList(rejects);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Data rows seen (blank lines and the CSV header are not counted).
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    /**
+     * Rejected rows in file order.
+     */
+    public List<Reject> getRejects() {
+        return rejects;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsRead / (elapsedNanos / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportReport{rowsRead=%d, imported=%d, rejected=%d, rowsPerSecond=%.0f}",
+                rowsRead, rowsImported, rejects.size(), getRowsPerSecond());
+    }
+}
@@ -2,10 +2,30 @@ package com.gevernova.inventorymanagemntsystem;
 
 import com.gevernova.inventorymanagemntsystem.exceptions.*;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Single-threaded repository: like the HashMap it started as, nothing here is synchronized.
+ * Code that shares one inventory between threads should use ConcurrentInventoryRepository,
+ * whose lookups and iteration are safe against concurrent writers.
+ */
 public class InMemoryInventoryRepository implements InventoryRepository {
-    // Key: Product ID, Value: Product object
-    private final Map<String, Product> products = new HashMap<>();
+    // Key: Product ID (held as two longs for UUIDs), Value: Product object
+    private final ProductIdMap products = new ProductIdMap();
+    private final ProductIndexes indexes;
+
+    public InMemoryInventoryRepository() {
+        this(false);
+    }
+
+    /**
+     * @param indexProductNames keep a trigram index on product names so partial-name searches
+     *                          skip the full scan, at the cost of extra memory and slower writes.
+     */
+    public InMemoryInventoryRepository(boolean indexProductNames) {
+        this.indexes = new ProductIndexes(indexProductNames);
+    }
 
     @Override
     public void addProduct(Product product) {
@@ -13,7 +33,9 @@ public class InMemoryInventoryRepository implements InventoryRepository {
             throw new ProductAlreadyExists("Product with ID " + product.getId() + " already exists.");
         }
         else{
+            product.attach(product.getVersion());
             products.put(product.getId(), product);
+            indexes.add(product);
         }
     }
 
@@ -22,7 +44,11 @@ public class InMemoryInventoryRepository implements InventoryRepository {
         if (!products.containsKey(product.getId())) {
             throw new ProductNotFoundException("Product with ID " + product.getId() + " not found for update.");
         }
-        products.put(product.getId(), product); // Overwrites the existing product with the updated one
+        Product previous = products.put(product.getId(), product); // Overwrites the existing product with the updated one
+        if (previous != product) {
+            product.attach(previous.detach() + 1); // the new instance carries on the version history
+        }
+        indexes.replace(previous, product);
     }
 
     @Override
@@ -31,7 +57,9 @@ public class InMemoryInventoryRepository implements InventoryRepository {
             throw new ProductNotFoundException("Product with ID " + productId + " not found for removal.");
         }
         else{
-            products.remove(productId);
+            Product removed = products.remove(productId);
+            removed.detach();
+            indexes.remove(removed);
             System.out.println("Removed product with ID: " + productId);
         }
     }
@@ -43,11 +71,83 @@ public class InMemoryInventoryRepository implements InventoryRepository {
 
     @Override
     public List<Product> findAllProducts() {
-        return new ArrayList<>(products.values()); // Return a copy to prevent external modification of the internal list
+        return products.values(); // A fresh list of the stored products, so callers cannot modify the table
     }
 
     @Override
     public boolean productExists(String productId) {
         return products.containsKey(productId);
     }
+
+    // Walks the table without copying. This is not weakly consistent: a removal can shift a later entry
+    // back past the cursor, so traverse only while no other thread writes, or use ConcurrentInventoryRepository
+    @Override
+    public Spliterator<Product> spliterator() {
+        return products.spliterator();
+    }
+
+    @Override
+    public List<Product> findProductsByCategory(ProductCategory category) {
+        return indexes.findByCategory(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByPrice(ProductCategory category) {
+        return indexes.streamByPrice(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByCategoryAndPrice() {
+        return indexes.streamByCategoryAndPrice();
+    }
+
+    @Override
+    public List<Product> findProductsBelowQuantity(int threshold) {
+        return indexes.findBelowQuantity(threshold);
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(ProductCategory category, int limit) {
+        return indexes.streamByPriceDescending(category).limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(int limit) {
+        return indexes.streamByPriceDescending().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findLowestStockProducts(int limit) {
+        return indexes.streamByQuantity().limit(limit).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(double minPrice, double maxPrice) {
+        return indexes.streamInPriceRange(minPrice, maxPrice).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return indexes.streamInPriceRange(category, minPrice, maxPrice).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Product> findProductsByName(String name) {
+        return indexes.hasNameIndex() ? indexes.findByName(name) : InventoryRepository.super.findProductsByName(name);
+    }
+
+    @Override
+    public double totalStockValue() {
+        return indexes.aggregates().totalStockValue();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> skuCountByCategory() {
+        return indexes.aggregates().skuCountByCategory();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> unitsByCategory() {
+        return indexes.aggregates().unitsByCategory();
+    }
 }
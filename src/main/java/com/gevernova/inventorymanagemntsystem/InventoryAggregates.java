@@ -0,0 +1,100 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals over the catalog (stock value, SKUs per category, units per category), updated on
+ * every add, remove and stock change so that reading them is O(1) instead of a pass over all products.
+ * Counters are LongAdders, so writers on different threads rarely contend on the same cache line.
+ * Stock value is kept in whole cents: adding and later subtracting the same product's contribution
+ * then cancels exactly, where a floating-point sum would drift.
+ * Each total is exact once writers are quiet; a read racing with writers may see some of their
+ * updates and not others, like any LongAdder sum.
+ */
+public class InventoryAggregates {
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+
+    private final LongAdder stockValueCents = new LongAdder();
+    private final LongAdder[] skuCounts = newAdders();
+    private final LongAdder[] units = newAdders();
+
+    /**
+     * Counts a product that entered the catalog with {@code quantity} units.
+     */
+    void add(Product product, int quantity) {
+        int category = product.getCategory().ordinal();
+        skuCounts[category].increment();
+        units[category].add(quantity);
+        stockValueCents.add(priceInCents(product) * quantity);
+    }
+
+    /**
+     * Takes back what {@link #add} counted for a product that left the catalog.
+     */
+    void remove(Product product, int quantity) {
+        int category = product.getCategory().ordinal();
+        skuCounts[category].decrement();
+        units[category].add(-quantity);
+        stockValueCents.add(-priceInCents(product) * quantity);
+    }
+
+    /**
+     * Applies a stock change of a product that stays in the catalog.
+     */
+    void changeQuantity(Product product, int previousQuantity, int quantity) {
+        long delta = (long) quantity - previousQuantity;
+        units[product.getCategory().ordinal()].add(delta);
+        stockValueCents.add(priceInCents(product) * delta);
+    }
+
+    /**
+     * Sum of quantity x price over every product, with each price rounded to cents.
+     */
+    public double totalStockValue() {
+        return stockValueCents.sum() / 100.0;
+    }
+
+    public long skuCount(ProductCategory category) {
+        return skuCounts[category.ordinal()].sum();
+    }
+
+    public long units(ProductCategory category) {
+        return units[category.ordinal()].sum();
+    }
+
+    /**
+     * Number of products per category; categories with no products report 0.
+     */
+    public Map<ProductCategory, Long> skuCountByCategory() {
+        return sumsByCategory(skuCounts);
+    }
+
+    /**
+     * Units in stock per category; categories with no products report 0.
+     */
+    public Map<ProductCategory, Long> unitsByCategory() {
+        return sumsByCategory(units);
+    }
+
+    private static long priceInCents(Product product) {
+        return Math.round(product.getPrice() * 100);
+    }
+
+    private static Map<ProductCategory, Long> sumsByCategory(LongAdder[] adders) {
+        Map<ProductCategory, Long> sums = new EnumMap<>(ProductCategory.class);
+        for (ProductCategory category : CATEGORIES) {
+            sums.put(category, adders[category.ordinal()].sum());
+        }
+        return sums;
+    }
+
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[CATEGORIES.length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
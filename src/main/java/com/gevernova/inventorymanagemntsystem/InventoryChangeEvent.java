@@ -0,0 +1,87 @@
+package com.gevernova.inventorymanagemntsystem;
+
+/**
+ * One change to the inventory, as published by InventoryService through an InventoryEventPublisher.
+ * Sequence numbers are assigned in publication order by the publisher and have no gaps; events dropped
+ * under backpressure never get one, and are counted on the next event instead ({@link #getDroppedBefore()}).
+ * InventoryService publishes each change while it still holds that product's ordering lock, so events for
+ * one product arrive in the order the changes were made.
+ */
+public class InventoryChangeEvent {
+
+    public enum Type {
+        ADDED,
+        QUANTITY_CHANGED,
+        /** The stored product was replaced; name, category or price may have changed as well as quantity. */
+        UPDATED,
+        REMOVED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final String productId;
+    private final int previousQuantity;
+    private final int quantity;
+    private final long droppedBefore;
+    private final long timestampMillis;
+
+    InventoryChangeEvent(long sequence, Type type, String productId, int previousQuantity, int quantity,
+                         long droppedBefore, long timestampMillis) {
+        this.sequence = sequence;
+        this.type = type;
+        this.productId = productId;
+        this.previousQuantity = previousQuantity;
+        this.quantity = quantity;
+        this.droppedBefore = droppedBefore;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    /**
+     * Quantity before the change; 0 for ADDED.
+     */
+    public int getPreviousQuantity() {
+        return previousQuantity;
+    }
+
+    /**
+     * Quantity after the change; 0 for REMOVED.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Events dropped under backpressure since the previous event was queued; 0 when nothing was lost.
+     */
+    public long getDroppedBefore() {
+        return droppedBefore;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "InventoryChangeEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", productId='" + productId + '\'' +
+                ", previousQuantity=" + previousQuantity +
+                ", quantity=" + quantity +
+                ", droppedBefore=" + droppedBefore +
+                '}';
+    }
+}
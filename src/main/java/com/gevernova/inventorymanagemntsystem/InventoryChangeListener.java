@@ -0,0 +1,12 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.List;
+
+/**
+ * Receives inventory change events in batches, always on the publisher's dispatcher thread.
+ * The batch is in sequence order and must not be kept after the call returns.
+ */
+@FunctionalInterface
+public interface InventoryChangeListener {
+    void onEvents(List<InventoryChangeEvent> events);
+}
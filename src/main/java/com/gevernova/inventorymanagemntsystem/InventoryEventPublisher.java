@@ -0,0 +1,259 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+/**
+ * Change-data-capture feed for the inventory.
+ * Producers (the threads calling InventoryService) claim a slot in a bounded ring buffer with one
+ * compare-and-set and never take a lock; a single dispatcher thread drains the ring and hands the
+ * events to every listener in batches. Listener work therefore runs off the request path, and a full
+ * ring is handled by the configured {@link Backpressure} policy instead of by slowing the caller down
+ * (unless BLOCK is chosen).
+ */
+public final class InventoryEventPublisher implements Closeable {
+
+    /**
+     * What publish does when the ring is full because listeners are falling behind.
+     */
+    public enum Backpressure {
+        /**
+         * Discard the new event and count it; the caller never waits. The next event queued reports the
+         * count in {@link InventoryChangeEvent#getDroppedBefore()}, so listeners know how many they missed.
+         */
+        DROP,
+        /** Wait until the dispatcher frees a slot; no event is lost, but the caller is slowed down. */
+        BLOCK
+    }
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final AtomicReferenceArray<InventoryChangeEvent> slots;
+    private final int mask;
+    private final int maxBatchSize;
+    private final Backpressure backpressure;
+    private final List<InventoryChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Set in claimed once closed; folding it into the counter makes every later claim fail its CAS,
+    // so the dispatcher knows exactly which sequences can still arrive
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    // Next sequence to claim (producers) and next sequence to read (dispatcher only)
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private volatile boolean dispatcherIdle;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    // Drops under DROP not yet reported by an event; taken by the next producer that gets a slot
+    private final AtomicLong unreportedDrops = new AtomicLong();
+    private final LongAdder listenerFailures = new LongAdder();
+    private volatile BiConsumer<InventoryChangeListener, RuntimeException> failureHandler;
+    private final Thread dispatcher;
+
+    public InventoryEventPublisher() {
+        this(8192, 256, Backpressure.DROP);
+    }
+
+    /**
+     * @param capacity     ring size, rounded up to a power of two.
+     * @param maxBatchSize most events handed to a listener in one call.
+     */
+    public InventoryEventPublisher(int capacity, int maxBatchSize, Backpressure backpressure) {
+        if (capacity <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive.");
+        }
+        if (backpressure == null) {
+            throw new IllegalArgumentException("Backpressure policy cannot be null.");
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.backpressure = backpressure;
+        // Started last, once every field is set; the class is final so no subclass constructor can still be running
+        this.dispatcher = new Thread(this::dispatchLoop, "inventory-event-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public void addListener(InventoryChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(InventoryChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Called on the dispatcher thread with any listener whose onEvents throws, and the exception.
+     * Failures are counted whether or not a handler is set; the failing batch is not redelivered.
+     */
+    public void setFailureHandler(BiConsumer<InventoryChangeListener, RuntimeException> failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Queues one event for the listeners.
+     * @return false if the event was dropped (ring full under DROP, or the publisher is closed).
+     */
+    public boolean publish(InventoryChangeEvent.Type type, String productId, int previousQuantity, int quantity) {
+        long sequence = claimSlot();
+        if (sequence < 0) {
+            dropped.increment();
+            if (sequence == CLAIM_RING_FULL) {
+                unreportedDrops.incrementAndGet();
+            }
+            return false;
+        }
+        // Read before writing, so the common no-drop case never dirties the shared counter
+        long droppedBefore = unreportedDrops.get() == 0 ? 0 : unreportedDrops.getAndSet(0);
+        // The slot becomes visible to the dispatcher only once this write lands; it waits for it if needed
+        slots.lazySet((int) sequence & mask, new InventoryChangeEvent(sequence, type, productId, previousQuantity, quantity,
+                droppedBefore, System.currentTimeMillis()));
+        published.increment();
+        if (dispatcherIdle) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Number of times a listener threw instead of accepting its batch.
+     */
+    public long listenerFailureCount() {
+        return listenerFailures.sum();
+    }
+
+    /**
+     * Events published but not yet handed to the listeners.
+     */
+    public long backlog() {
+        return (claimed.get() & ~CLOSED) - consumed;
+    }
+
+    /**
+     * Stops accepting events, delivers everything already published and stops the dispatcher thread.
+     */
+    @Override
+    public void close() {
+        long current;
+        do {
+            current = claimed.get();
+        } while (current >= 0 && !claimed.compareAndSet(current, current | CLOSED));
+        LockSupport.unpark(dispatcher);
+        boolean interrupted = false;
+        while (dispatcher.isAlive()) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final long CLAIM_CLOSED = -1;
+    private static final long CLAIM_RING_FULL = -2;
+
+    // Returns the claimed sequence, or CLAIM_CLOSED / CLAIM_RING_FULL if there is no slot to be had
+    private long claimSlot() {
+        int waits = 0;
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence < 0) {
+                return CLAIM_CLOSED;
+            }
+            if (sequence - consumed <= mask) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    return sequence;
+                }
+            } else if (backpressure == Backpressure.DROP) {
+                return CLAIM_RING_FULL;
+            } else if (++waits < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        List<InventoryChangeEvent> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            long next = consumed;
+            long current = claimed.get();
+            long available = (current & ~CLOSED) - next;
+            if (available == 0) {
+                if (current < 0) {
+                    return; // closed and fully drained; no further claims can succeed
+                }
+                // Announce the idle state before the final check, so a producer either sees the flag or we see its event
+                dispatcherIdle = true;
+                if (claimed.get() == next) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                dispatcherIdle = false;
+                continue;
+            }
+            int count = (int) Math.min(available, maxBatchSize);
+            for (int i = 0; i < count; i++) {
+                int slot = (int) (next + i) & mask;
+                InventoryChangeEvent event;
+                // The slot is claimed but the producer may not have stored the event yet
+                while ((event = slots.get(slot)) == null) {
+                    Thread.onSpinWait();
+                }
+                slots.lazySet(slot, null);
+                batch.add(event);
+            }
+            consumed = next + count; // frees the slots for producers
+            deliver(batch);
+            batch.clear();
+        }
+    }
+
+    private void deliver(List<InventoryChangeEvent> batch) {
+        for (InventoryChangeListener listener : listeners) {
+            try {
+                listener.onEvents(batch);
+            } catch (RuntimeException e) {
+                // One failing listener must not stop the feed for the others
+                listenerFailures.increment();
+                reportFailure(listener, e);
+            }
+        }
+    }
+
+    private void reportFailure(InventoryChangeListener listener, RuntimeException failure) {
+        BiConsumer<InventoryChangeListener, RuntimeException> handler = failureHandler;
+        if (handler == null) {
+            return;
+        }
+        try {
+            handler.accept(listener, failure);
+        } catch (RuntimeException ignored) {
+            // A broken handler must not kill the dispatcher thread either
+        }
+    }
+}
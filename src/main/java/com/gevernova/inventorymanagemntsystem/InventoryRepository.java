@@ -1,9 +1,19 @@
 package com.gevernova.inventorymanagemntsystem;
 
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
 import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductVersionConflictException;
 
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public interface InventoryRepository {
     void addProduct(Product product);
@@ -12,4 +22,202 @@ public interface InventoryRepository {
     Optional<Product> findProductById(String productId);
     List<Product> findAllProducts();
     boolean productExists(String productId);
+
+    /**
+     * Stores a batch of new products, for bulk loaders. Not atomic: if one product is rejected
+     * (e.g. its ID already exists) the products before it stay stored. The default adds them one by one;
+     * repositories with per-write overhead override it to pay that overhead once per batch.
+     */
+    default void addProducts(List<Product> products) {
+        for (Product product : products) {
+            addProduct(product);
+        }
+    }
+
+    /**
+     * Optimistic update: stores {@code product} in place of the product with the same ID only if the stored
+     * product is still at {@code expectedVersion} (see {@link Product#getVersion()}), and fails with
+     * ProductVersionConflictException if anyone changed it since. Pass a new Product built from the one
+     * that was read; changing the stored instance in place is itself a change and makes the update conflict.
+     * The default is a plain check-then-write for single-threaded repositories; thread-safe implementations
+     * override it so the check and the write happen atomically.
+     */
+    default void updateProduct(Product product, long expectedVersion) throws ProductNotFoundException, ProductVersionConflictException {
+        Product current = findProductById(product.getId())
+                .orElseThrow(() -> new ProductNotFoundException("Product with ID " + product.getId() + " not found for update."));
+        if (current.getVersion() != expectedVersion) {
+            throw new ProductVersionConflictException("Product with ID " + product.getId() + " was changed concurrently. Expected version "
+                    + expectedVersion + ", found " + current.getVersion() + ".");
+        }
+        updateProduct(product);
+    }
+
+    /**
+     * Spliterator over the stored products, for reads that should not pay for the defensive copy
+     * made by {@link #findAllProducts()}. The default still copies; in-memory repositories override it
+     * to walk their own storage. The traversal is weakly consistent only where the repository is
+     * thread-safe (ConcurrentInventoryRepository); on InMemoryInventoryRepository it assumes no concurrent writers.
+     */
+    default Spliterator<Product> spliterator() {
+        return findAllProducts().spliterator();
+    }
+
+    default Stream<Product> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Parallel stream over the stored products; only worth it for large catalogs or expensive filters.
+     */
+    default Stream<Product> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    default void forEach(Consumer<? super Product> action) {
+        spliterator().forEachRemaining(action);
+    }
+
+    /**
+     * Finds all products in a category. Repositories that keep a category index override this
+     * so the lookup does not copy and filter the whole catalog.
+     */
+    default List<Product> findProductsByCategory(ProductCategory category) {
+        return stream()
+                .filter(p -> p.getCategory() == category)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds products whose name contains {@code name}, ignoring case. Repositories with a name index
+     * override this so only candidate products are checked.
+     */
+    default List<Product> findProductsByName(String name) {
+        String lowerCaseName = name.toLowerCase();
+        return stream()
+                .filter(p -> p.getName().toLowerCase().contains(lowerCaseName))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Streams the products of one category, cheapest first.
+     * Indexed repositories override this to read a maintained ordering instead of sorting.
+     */
+    default Stream<Product> streamProductsByPrice(ProductCategory category) {
+        return findProductsByCategory(category).stream()
+                .sorted(Comparator.comparing(Product::getPrice));
+    }
+
+    /**
+     * Streams every product sorted by category, then by price (ascending).
+     * Indexed repositories override this to read a maintained ordering instead of sorting.
+     */
+    default Stream<Product> streamProductsByCategoryAndPrice() {
+        return stream()
+                .sorted(Comparator
+                        .comparing(Product::getCategory)
+                        .thenComparing(Product::getPrice));
+    }
+
+    /**
+     * The {@code limit} most expensive products of a category, most expensive first.
+     * The default keeps a bounded heap over the category; indexed repositories read the price ordering backwards.
+     */
+    default List<Product> findMostExpensiveProducts(ProductCategory category, int limit) {
+        return TopK.select(findProductsByCategory(category).stream(), CategoryIndex.BY_PRICE.reversed(), limit);
+    }
+
+    /**
+     * The {@code limit} most expensive products across all categories, most expensive first.
+     */
+    default List<Product> findMostExpensiveProducts(int limit) {
+        return TopK.select(stream(), CategoryIndex.BY_PRICE.reversed(), limit);
+    }
+
+    /**
+     * The {@code limit} products with the least stock, lowest first.
+     * The default keeps a bounded heap over the catalog; indexed repositories read the quantity-ordered index.
+     */
+    default List<Product> findLowestStockProducts(int limit) {
+        return TopK.select(stream(), Comparator.comparingInt(Product::getQuantity), limit);
+    }
+
+    /**
+     * Finds products priced from {@code minPrice} to {@code maxPrice} inclusive, cheapest first.
+     * Indexed repositories answer this from their price ordering in O(log n + k).
+     */
+    default List<Product> findProductsInPriceRange(double minPrice, double maxPrice) {
+        return stream()
+                .filter(p -> p.getPrice() >= minPrice && p.getPrice() <= maxPrice)
+                .sorted(CategoryIndex.BY_PRICE)
+                .collect(Collectors.toList());
+    }
+
+    default List<Product> findProductsInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return findProductsByCategory(category).stream()
+                .filter(p -> p.getPrice() >= minPrice && p.getPrice() <= maxPrice)
+                .sorted(CategoryIndex.BY_PRICE)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds products with quantity strictly below {@code threshold}.
+     * Indexed repositories override this with a quantity-ordered index lookup.
+     */
+    default List<Product> findProductsBelowQuantity(int threshold) {
+        return stream()
+                .filter(p -> p.getQuantity() < threshold)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sum of quantity x price over every product. Indexed repositories keep this as a running total.
+     */
+    default double totalStockValue() {
+        return stream()
+                .mapToDouble(p -> p.getQuantity() * p.getPrice())
+                .sum();
+    }
+
+    /**
+     * Number of products per category; categories with no products report 0.
+     * Indexed repositories keep these as running totals.
+     */
+    default Map<ProductCategory, Long> skuCountByCategory() {
+        Map<ProductCategory, Long> counts = new EnumMap<>(ProductCategory.class);
+        for (ProductCategory category : ProductCategory.values()) {
+            counts.put(category, 0L);
+        }
+        forEach(p -> counts.merge(p.getCategory(), 1L, Long::sum));
+        return counts;
+    }
+
+    /**
+     * Units in stock per category; categories with no products report 0.
+     * Indexed repositories keep these as running totals.
+     */
+    default Map<ProductCategory, Long> unitsByCategory() {
+        Map<ProductCategory, Long> units = new EnumMap<>(ProductCategory.class);
+        for (ProductCategory category : ProductCategory.values()) {
+            units.put(category, 0L);
+        }
+        forEach(p -> units.merge(p.getCategory(), (long) p.getQuantity(), Long::sum));
+        return units;
+    }
+
+    /**
+     * Changes the stored quantity of a product by {@code delta} (negative to decrease) and returns the new quantity.
+     * The default implementation is a plain read-check-write and is only safe for single-threaded repositories;
+     * thread-safe implementations override it so the check and the write happen atomically.
+     */
+    default int adjustQuantity(String productId, int delta) throws ProductNotFoundException, InvalidProductException {
+        Product product = findProductById(productId)
+                .orElseThrow(() -> new ProductNotFoundException("Product with ID " + productId + " not found."));
+        int current = product.getQuantity();
+        if (current + delta < 0) {
+            throw new InvalidProductException("Cannot decrease quantity below zero. Current: " + current + ", Decrease: " + (-delta));
+        }
+        product.setQuantity(current + delta);
+        updateProduct(product);
+        return current + delta;
+    }
 }
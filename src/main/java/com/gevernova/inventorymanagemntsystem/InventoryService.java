@@ -2,14 +2,41 @@ package com.gevernova.inventorymanagemntsystem;
 
 import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
 import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductVersionConflictException;
 
-import java.util.Comparator;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 public class InventoryService {
 
+    // Optimistic updates retry this often before giving up on a product that keeps changing underneath them
+    private static final int MAX_OPTIMISTIC_ATTEMPTS = 100;
+
     private final InventoryRepository inventoryRepository;
+    private final InventoryEventPublisher eventPublisher; // null when no change feed is attached
+    // A change to a product (and its event, with a change feed) happens under the product's stripe; see underStripe
+    private static final int STRIPES = 64;
+    private final Object[] stripes = new Object[STRIPES];
+    private final List<LowStockSubscription> lowStockSubscriptions = new CopyOnWriteArrayList<>();
+
+    // A listener that wants to hear about products dropping below its threshold
+    private static final class LowStockSubscription {
+        private final int threshold;
+        private final Consumer<Product> listener;
+
+        private LowStockSubscription(int threshold, Consumer<Product> listener) {
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+    }
 
     // Constructor Injection for dependency
     /**
@@ -17,7 +44,19 @@ public class InventoryService {
      * This is called Constructor Injection, and it's a key principle of good design:
      */
     public InventoryService(InventoryRepository inventoryRepository) {
+        this(inventoryRepository, null);
+    }
+
+    /**
+     * @param eventPublisher receives an event for every product added, removed or changed in quantity
+     *                       through this service. Publishing never blocks unless the publisher uses BLOCK.
+     */
+    public InventoryService(InventoryRepository inventoryRepository, InventoryEventPublisher eventPublisher) {
         this.inventoryRepository = inventoryRepository;
+        this.eventPublisher = eventPublisher;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
     }
 
     // --- CRUD Operations ---
@@ -31,18 +70,14 @@ public class InventoryService {
             // This path will only be taken if you somehow *re-used* an existing Product object reference
             // or manually set its UUID (which we are not doing with UUID.randomUUID()).
             // For auto-generated UUIDs, this `if` is essentially for internal updates of an already-added object.
-            Product existingProduct = inventoryRepository.findProductById(product.getId()).get();
-            existingProduct.setQuantity(existingProduct.getQuantity() + product.getQuantity()); // Add quantities
-            try {
-                inventoryRepository.updateProduct(existingProduct);
-                System.out.println("Updated quantity for product: " + existingProduct.getName() + " to " + existingProduct.getQuantity());
-            } catch (ProductNotFoundException e) {
-                throw new RuntimeException("Internal error: Product disappeared during update.", e);
-            }
+            // Atomic on thread-safe repositories, so concurrent top-ups are never lost.
+            int updatedQuantity = adjustAndPublish(product.getId(), product.getQuantity());
+            System.out.println("Updated quantity for product: " + product.getName() + " to " + updatedQuantity);
         } else {
             // This is the common path when a new Product object (with new UUID) is passed.
-            inventoryRepository.addProduct(product);
+            addAndPublish(product);
             System.out.println("Added new product: " + product.getName() + " with quantity " + product.getQuantity());
+            notifyLowStock(product, Integer.MAX_VALUE, product.getQuantity());
         }
     }
     /**
@@ -54,15 +89,41 @@ public class InventoryService {
         if (inventoryRepository.productExists(product.getId())) {
             throw new InvalidProductException("A product with this ID already exists. Cannot add as new.");
         }
-        inventoryRepository.addProduct(product);
+        addAndPublish(product);
         System.out.println("Added new product: " + product.getName() + " (ID: " + product.getId() + ") with quantity " + product.getQuantity());
+        notifyLowStock(product, Integer.MAX_VALUE, product.getQuantity());
+    }
+
+    /**
+     * Bulk-loads a supplier catalog file. Rows are parsed and validated in parallel and stored in large batches,
+     * without the per-product existence check and log line of {@link #addNewProduct}; rows that fail validation
+     * are listed in the report instead of throwing. Imported products still reach the change feed and
+     * low-stock subscribers.
+     */
+    public ImportReport importCatalog(Path file, ProductCatalogImporter.Format format) {
+        ProductCatalogImporter importer = new ProductCatalogImporter(inventoryRepository, ProductCatalogImporter.DEFAULT_CHUNK_BYTES, batch -> {
+            for (Product product : batch) {
+                publishChange(InventoryChangeEvent.Type.ADDED, product.getId(), 0, product.getQuantity());
+                notifyLowStock(product, Integer.MAX_VALUE, product.getQuantity());
+            }
+        });
+        ImportReport report = importer.importFile(file, format);
+        System.out.println("Imported catalog " + file + ": " + report);
+        return report;
     }
 
     /**
      * Removes a product from the inventory.
      */
     public void removeProduct(String productId) throws ProductNotFoundException {
-        inventoryRepository.removeProduct(productId);
+        underStripe(productId, () -> {
+            // Only looked up for the change feed; changes made through this service cannot land in between
+            int previousQuantity = eventPublisher == null ? 0
+                    : inventoryRepository.findProductById(productId).map(Product::getQuantity).orElse(0);
+            inventoryRepository.removeProduct(productId);
+            publishChange(InventoryChangeEvent.Type.REMOVED, productId, previousQuantity, 0);
+            return null;
+        });
         System.out.println("Removed product with ID: " + productId);
     }
 
@@ -73,12 +134,12 @@ public class InventoryService {
         Product product = inventoryRepository.findProductById(productId)
                 .orElseThrow(() -> new ProductNotFoundException("Product with ID " + productId + " not found for quantity increase."));
 
-        product.setQuantity(product.getQuantity() + quantityToAdd);
-        inventoryRepository.updateProduct(product);
-        System.out.println("Increased quantity for product: " + product.getName() + " to " + product.getQuantity());
+        int updatedQuantity = adjustAndPublish(productId, quantityToAdd);
+        System.out.println("Increased quantity for product: " + product.getName() + " to " + updatedQuantity);
     }
     /**
      * Decreases the quantity of a product.
+     * Throws InvalidProductException if there is not enough stock left.
      */
     public void decreaseProductQuantity(String productId, int quantityToDecrease) throws ProductNotFoundException, InvalidProductException {
         if (quantityToDecrease < 0) {
@@ -87,59 +148,368 @@ public class InventoryService {
         Product product = inventoryRepository.findProductById(productId)
                 .orElseThrow(() -> new ProductNotFoundException("Product with ID " + productId + " not found."));
 
-        if (product.getQuantity() < quantityToDecrease) {
-            throw new InvalidProductException("Cannot decrease quantity below zero. Current: " + product.getQuantity() + ", Decrease: " + quantityToDecrease);
+        // The stock check and the write happen together in the repository, so two orders cannot both oversell.
+        int updatedQuantity = adjustAndPublish(productId, -quantityToDecrease);
+        System.out.println("Decreased quantity for product: " + product.getName() + " to " + updatedQuantity);
+        notifyLowStock(product, updatedQuantity + quantityToDecrease, updatedQuantity);
+    }
+
+    /**
+     * Applies {@code change} to the current state of a product with optimistic concurrency: the product is read,
+     * {@code change} builds its replacement (a new Product with the same ID, e.g. via the ID constructor),
+     * and the replacement is stored only if nobody changed the product in between; otherwise it starts over
+     * from the fresh state. No lock is held while {@code change} runs, so it may be called more than once.
+     * @return the product as stored.
+     */
+    public Product updateProductOptimistically(String productId, UnaryOperator<Product> change)
+            throws ProductNotFoundException, ProductVersionConflictException {
+        for (int attempt = 1; ; attempt++) {
+            Product current = inventoryRepository.findProductById(productId)
+                    .orElseThrow(() -> new ProductNotFoundException("Product with ID " + productId + " not found for update."));
+            long version = current.getVersion();
+            int previousQuantity = current.getQuantity(); // read after the version, so a successful update proves it current
+            Product updated = change.apply(current);
+            if (updated == null || !productId.equals(updated.getId())) {
+                throw new IllegalArgumentException("The change must return a product with ID " + productId + ".");
+            }
+            try {
+                underStripe(productId, () -> {
+                    inventoryRepository.updateProduct(updated, version);
+                    publishChange(InventoryChangeEvent.Type.UPDATED, productId, previousQuantity, updated.getQuantity());
+                    return null;
+                });
+                System.out.println("Updated product: " + updated.getName() + " (ID: " + productId + ")");
+                notifyLowStock(updated, previousQuantity, updated.getQuantity());
+                return updated;
+            } catch (ProductVersionConflictException e) {
+                if (attempt == MAX_OPTIMISTIC_ATTEMPTS) {
+                    throw e;
+                }
+                Thread.onSpinWait(); // another writer won; retry against its result
+            }
         }
-        product.setQuantity(product.getQuantity() - quantityToDecrease);
-        inventoryRepository.updateProduct(product);
-        System.out.println("Decreased quantity for product: " + product.getName() + " to " + product.getQuantity());
+    }
+
+    // --- Batch Reservation ---
+
+    /**
+     * Reserves stock for a whole basket (Product ID -> quantity) in one all-or-nothing step.
+     * The basket holds the stripes of all its products, taken in ascending stripe order so overlapping
+     * baskets cannot deadlock, while every line is checked for stock and then applied; no other change made
+     * through this service can touch those products in between, so neither the lines nor their undo can
+     * fail for lack of stock. If a line still fails (a storage error, or a writer going around this service),
+     * every line that landed is put back before the exception is rethrown. A line whose store threw after
+     * changing the stock (e.g. a log commit that failed) counts as landed. An undo that itself fails is
+     * attached to that exception as suppressed, and the remaining undos still run.
+     */
+    public void reserve(Map<String, Integer> quantities) throws ProductNotFoundException, InvalidProductException {
+        List<Integer> updatedQuantities = adjustAll(quantities, -1);
+        int line = 0;
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            int updatedQuantity = updatedQuantities.get(line++);
+            Product product = inventoryRepository.findProductById(entry.getKey()).orElse(null);
+            if (product != null) {
+                notifyLowStock(product, updatedQuantity + entry.getValue(), updatedQuantity);
+            }
+        }
+        System.out.println("Reserved stock for " + quantities.size() + " product(s).");
+    }
+
+    /**
+     * Returns previously reserved stock (Product ID -> quantity), all-or-nothing like {@link #reserve}.
+     */
+    public void release(Map<String, Integer> quantities) throws ProductNotFoundException, InvalidProductException {
+        adjustAll(quantities, 1);
+        System.out.println("Released stock for " + quantities.size() + " product(s).");
+    }
+
+    // Applies sign * quantity to every line, undoing the landed lines if one fails; returns the new quantities in order.
+    // Every change that lands is published, undo included, so the feed never misses a quantity the store held
+    private List<Integer> adjustAll(Map<String, Integer> quantities, int sign) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new IllegalArgumentException("Quantities cannot be null or empty.");
+        }
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new InvalidProductException("Quantity for product " + entry.getKey() + " must be positive. Provided: " + entry.getValue());
+            }
+            if (entry.getKey() == null) {
+                throw new ProductNotFoundException("Product with ID null not found.");
+            }
+        }
+        int[] basketStripes = quantities.keySet().stream().mapToInt(InventoryService::stripeOf).distinct().sorted().toArray();
+        return underStripes(basketStripes, 0, () -> {
+            // Under the stripes, quantities read here are still current when the lines are applied
+            List<Integer> startingQuantities = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+                int quantity = inventoryRepository.findProductById(entry.getKey())
+                        .orElseThrow(() -> new ProductNotFoundException("Product with ID " + entry.getKey() + " not found."))
+                        .getQuantity();
+                if (sign < 0 && quantity < entry.getValue()) {
+                    throw new InvalidProductException("Not enough stock for product " + entry.getKey() + ": requested "
+                            + entry.getValue() + ", available " + quantity);
+                }
+                startingQuantities.add(quantity);
+            }
+            return applyAll(quantities, sign, startingQuantities);
+        });
+    }
+
+    // Caller holds the stripes of every line
+    private List<Integer> applyAll(Map<String, Integer> quantities, int sign, List<Integer> startingQuantities) {
+        List<Map.Entry<String, Integer>> landed = new ArrayList<>();
+        List<Integer> updatedQuantities = new ArrayList<>();
+        int line = 0;
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            int delta = sign * entry.getValue();
+            int expected = startingQuantities.get(line++) + delta;
+            try {
+                updatedQuantities.add(adjustAndPublish(entry.getKey(), delta));
+                landed.add(entry);
+            } catch (RuntimeException e) {
+                if (quantityOf(entry.getKey()) == expected) {
+                    // The store changed the stock before it threw, so the line has to be undone like the others
+                    publishChange(InventoryChangeEvent.Type.QUANTITY_CHANGED, entry.getKey(), expected - delta, expected);
+                    landed.add(entry);
+                }
+                undo(landed, sign, e);
+                throw e;
+            }
+        }
+        return updatedQuantities;
+    }
+
+    // Every landed line is put back whatever went wrong, newest first; an undo that fails does not stop the others
+    private void undo(List<Map.Entry<String, Integer>> landed, int sign, RuntimeException failure) {
+        for (int i = landed.size() - 1; i >= 0; i--) {
+            Map.Entry<String, Integer> entry = landed.get(i);
+            try {
+                adjustAndPublish(entry.getKey(), -sign * entry.getValue());
+            } catch (ProductNotFoundException removed) {
+                // Product was removed meanwhile; there is no stock left to put back
+            } catch (RuntimeException undoFailure) {
+                failure.addSuppressed(undoFailure);
+            }
+        }
+    }
+
+    private int quantityOf(String productId) {
+        return inventoryRepository.findProductById(productId).map(Product::getQuantity).orElse(Integer.MIN_VALUE);
     }
 
     // --- Search and Filter Operations using Java 8 Streams ---
 
     /**
      * Searches for products by name (case-insensitive, partial match).
+     * Uses the repository's trigram name index when it has one enabled.
      */
     public List<Product> searchProductsByName(String name) {
-        return inventoryRepository.findAllProducts().stream()
-                .filter(p -> p.getName().toLowerCase().contains(name.toLowerCase()))
-                .collect(Collectors.toList());
+        return inventoryRepository.findProductsByName(name);
     }
 
     /**
      * Searches for products by category.
+     * Uses the repository's category index, so the cost is proportional to the number of matches.
      */
     public List<Product> searchProductsByCategory(ProductCategory category) {
-        return inventoryRepository.findAllProducts().stream()
-                .filter(p -> p.getCategory() == category)
-                .collect(Collectors.toList());
+        return inventoryRepository.findProductsByCategory(category);
     }
 
     /**
      * Filters products with quantity less than the specified threshold.
+     * Indexed repositories answer this from a quantity-ordered index in O(log n + k).
      */
     public List<Product> filterLowStockItems(int threshold) {
         if (threshold < 0) {
             // While not an InvalidProductException, it's an invalid service parameter
             throw new IllegalArgumentException("Threshold cannot be negative.");
         }
-        return inventoryRepository.findAllProducts().stream()
-                .filter(p -> p.getQuantity() < threshold)
+        return inventoryRepository.findProductsBelowQuantity(threshold);
+    }
+
+    // --- Low Stock Notifications ---
+
+    /**
+     * Registers a listener that is called with a product whenever a stock change made through this service
+     * takes it from at least {@code threshold} units to below it (a new product that starts below it counts too).
+     * Lets a replenishment job react to crossings instead of polling {@link #filterLowStockItems}.
+     * The listener runs on the thread that changed the stock, so it should hand off any slow work.
+     */
+    public void subscribeToLowStock(int threshold, Consumer<Product> listener) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative.");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        lowStockSubscriptions.add(new LowStockSubscription(threshold, listener));
+    }
+
+    public void unsubscribeFromLowStock(Consumer<Product> listener) {
+        lowStockSubscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    private int adjustAndPublish(String productId, int delta) {
+        return underStripe(productId, () -> {
+            int updatedQuantity = inventoryRepository.adjustQuantity(productId, delta);
+            publishChange(InventoryChangeEvent.Type.QUANTITY_CHANGED, productId, updatedQuantity - delta, updatedQuantity);
+            return updatedQuantity;
+        });
+    }
+
+    private void addAndPublish(Product product) {
+        underStripe(product.getId(), () -> {
+            inventoryRepository.addProduct(product);
+            publishChange(InventoryChangeEvent.Type.ADDED, product.getId(), 0, product.getQuantity());
+            return null;
+        });
+    }
+
+    // Runs a change to one product (with its publishChange) under the product's stripe, so two events for the same
+    // product are always queued in the order their changes were made, and a basket holding the stripe sees no
+    // other change to the product made through this service. Reentrant, so a basket's lines take it again freely.
+    private <T> T underStripe(String productId, Supplier<T> change) {
+        synchronized (stripes[stripeOf(productId)]) {
+            return change.get();
+        }
+    }
+
+    // Takes the given stripes from index from onwards, in the ascending order every basket uses, then runs work
+    private <T> T underStripes(int[] basketStripes, int from, Supplier<T> work) {
+        if (from == basketStripes.length) {
+            return work.get();
+        }
+        synchronized (stripes[basketStripes[from]]) {
+            return underStripes(basketStripes, from + 1, work);
+        }
+    }
+
+    private static int stripeOf(String productId) {
+        return (productId.hashCode() & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    private void publishChange(InventoryChangeEvent.Type type, String productId, int previousQuantity, int quantity) {
+        if (eventPublisher != null) {
+            eventPublisher.publish(type, productId, previousQuantity, quantity);
+        }
+    }
+
+    // previousQuantity and updatedQuantity come from one atomic repository update, so each crossing is reported once
+    private void notifyLowStock(Product product, int previousQuantity, int updatedQuantity) {
+        for (LowStockSubscription subscription : lowStockSubscriptions) {
+            if (previousQuantity >= subscription.threshold && updatedQuantity < subscription.threshold) {
+                subscription.listener.accept(product);
+            }
+        }
+    }
+
+    /**
+     * Filters all products with an arbitrary condition.
+     * Streams straight over the repository without copying the catalog first, in parallel when asked to.
+     */
+    public List<Product> filterProducts(Predicate<Product> condition, boolean parallel) {
+        return (parallel ? inventoryRepository.parallelStream() : inventoryRepository.stream())
+                .filter(condition)
                 .collect(Collectors.toList());
     }
 
     /**
      * Sorts all products by category, then by price (ascending).
+     * Indexed repositories keep this ordering up to date, so no sort runs per call.
      * @return A sorted list of products.
      */
     public List<Product> sortProductsByCategoryAndPrice() {
-        return inventoryRepository.findAllProducts().stream()
-                .sorted(Comparator
-                        .comparing(Product::getCategory)
-                        .thenComparing(Product::getPrice))
+        return inventoryRepository.streamProductsByCategoryAndPrice()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the cheapest products in a category.
+     * @param limit maximum number of products to return.
+     * @return up to {@code limit} products, cheapest first.
+     */
+    public List<Product> findCheapestProductsInCategory(ProductCategory category, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+        return inventoryRepository.streamProductsByPrice(category)
+                .limit(limit)
                 .collect(Collectors.toList());
     }
 
+    // --- Top-K and Price-Range Queries ---
+
+    /**
+     * Finds the most expensive products in a category, e.g. the 10 most expensive Electronics.
+     * Indexed repositories read their price ordering backwards, so the cost is O(log n + limit).
+     * @return up to {@code limit} products, most expensive first.
+     */
+    public List<Product> findMostExpensiveProductsInCategory(ProductCategory category, int limit) {
+        checkLimit(limit);
+        return inventoryRepository.findMostExpensiveProducts(category, limit);
+    }
+
+    /**
+     * Finds the most expensive products across all categories, most expensive first.
+     */
+    public List<Product> findMostExpensiveProducts(int limit) {
+        checkLimit(limit);
+        return inventoryRepository.findMostExpensiveProducts(limit);
+    }
+
+    /**
+     * Finds the products with the least stock, e.g. the 20 lowest-stock items, lowest first.
+     * Indexed repositories answer this from the quantity-ordered index in O(log n + limit).
+     */
+    public List<Product> findLowestStockItems(int limit) {
+        checkLimit(limit);
+        return inventoryRepository.findLowestStockProducts(limit);
+    }
+
+    /**
+     * Finds all products priced from {@code minPrice} to {@code maxPrice} inclusive, cheapest first.
+     * Indexed repositories seek to {@code minPrice} in their price ordering, so the cost is O(log n + k).
+     */
+    public List<Product> findProductsInPriceRange(double minPrice, double maxPrice) {
+        checkPriceRange(minPrice, maxPrice);
+        return inventoryRepository.findProductsInPriceRange(minPrice, maxPrice);
+    }
+
+    public List<Product> findProductsInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        checkPriceRange(minPrice, maxPrice);
+        return inventoryRepository.findProductsInPriceRange(category, minPrice, maxPrice);
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+    }
+
+    private static void checkPriceRange(double minPrice, double maxPrice) {
+        if (Double.isNaN(minPrice) || Double.isNaN(maxPrice) || minPrice > maxPrice) {
+            throw new IllegalArgumentException("Invalid price range: " + minPrice + " to " + maxPrice);
+        }
+    }
+
+    // --- Dashboard Aggregates ---
+
+    /**
+     * Total value of the stock on hand (quantity x price over every product).
+     * Indexed repositories answer this from a running total, without visiting any product.
+     */
+    public double getTotalStockValue() {
+        return inventoryRepository.totalStockValue();
+    }
+
+    public Map<ProductCategory, Long> getSkuCountByCategory() {
+        return inventoryRepository.skuCountByCategory();
+    }
+
+    public Map<ProductCategory, Long> getUnitsByCategory() {
+        return inventoryRepository.unitsByCategory();
+    }
+
     // --- Utility Method ---
     public List<Product> getAllProducts() {
         return inventoryRepository.findAllProducts();
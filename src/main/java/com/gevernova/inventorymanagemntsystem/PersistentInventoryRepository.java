@@ -0,0 +1,737 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable repository: the working set lives in a {@link ConcurrentInventoryRepository} (so reads and
+ * indexes are as fast as the in-memory store) and every mutation is appended to a write-ahead log.
+ *
+ * <ul>
+ *   <li>A write is applied and appended under its product's stripe lock, so the records of one product are
+ *       logged in the order they were applied; the shared append lock is only held to queue the encoded
+ *       record, so writes to different products apply in parallel. Records carry whole values (a product,
+ *       a quantity), never deltas, so replaying one that a snapshot already reflects changes nothing.</li>
+ *   <li>Durability uses group commit: a writer returns once an fsync covering its record has finished,
+ *       and one fsync covers every record appended while the previous one was running.</li>
+ *   <li>Every {@code snapshotEveryRecords} records the full state is written to a compact snapshot file
+ *       through a memory mapping on a background thread (or on the caller's thread through
+ *       {@link #snapshot()}) and the log starts a new generation; older generations are deleted once the
+ *       snapshot is safely renamed into place. A failed background snapshot is kept for
+ *       {@link #getSnapshotFailure()} and never fails the write that triggered it.</li>
+ *   <li>On startup the snapshot is decoded straight from a read-only mapping into a list, the working
+ *       set is built from it in one bulk load, and only the log generations after it are replayed,
+ *       through mapped windows, so a log of any size replays. A torn or corrupt record at the end of the
+ *       log (a crash mid-append) is cut off.</li>
+ * </ul>
+ *
+ * I/O failures surface as {@link UncheckedIOException}. A record whose group commit failed stays queued
+ * and is written by the next commit, so the log never gets a hole; if a failed write cannot be cut back
+ * off the log, the store refuses every further write.
+ */
+public class PersistentInventoryRepository implements InventoryRepository, Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x494E5653; // "INVS"
+    private static final int FORMAT_VERSION = 1;
+    // Magic, format version, generation, product count and trailing CRC
+    private static final int MIN_SNAPSHOT_BYTES = 4 + 4 + 8 + 4 + 4;
+    private static final String SNAPSHOT_FILE = "inventory.snapshot";
+    private static final String LOG_PREFIX = "inventory-";
+    private static final String LOG_SUFFIX = ".wal";
+
+    private static final byte OP_ADD = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_REMOVE = 3;
+    private static final byte OP_QUANTITY = 4;
+
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES; // [payload length][CRC32 of payload]
+    private static final long REPLAY_WINDOW_BYTES = 256L * 1024 * 1024;
+    private static final int STRIPES = 64;
+
+    private final ConcurrentInventoryRepository delegate;
+    private final Path directory;
+    private final int snapshotEveryRecords;
+
+    // Lock order: a product's stripe, then appendLock; or syncLock, then appendLock
+    private final Object[] stripes = new Object[STRIPES];
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+
+    // Guarded by appendLock
+    private FileChannel log;
+    private long logGeneration;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedRecords;
+    private volatile long recordsSinceSnapshot; // also read without the lock to decide when to snapshot
+    private boolean closed;
+    // Written under syncLock, read without it
+    private volatile long durableRecords;
+    // Set when a failed log write could not be undone; every later write is refused
+    private volatile IOException failure;
+    private volatile Thread snapshotThread; // the latest background snapshot
+    private volatile UncheckedIOException snapshotFailure;
+
+    public PersistentInventoryRepository(Path directory) {
+        this(directory, 1_000_000, false);
+    }
+
+    /**
+     * @param directory            where the snapshot and log files live; created if missing.
+     * @param snapshotEveryRecords take a new snapshot after this many logged mutations.
+     * @param indexProductNames    passed to the in-memory working set.
+     */
+    public PersistentInventoryRepository(Path directory, int snapshotEveryRecords, boolean indexProductNames) {
+        if (snapshotEveryRecords <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive.");
+        }
+        this.directory = directory;
+        this.snapshotEveryRecords = snapshotEveryRecords;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Product> snapshotProducts = new ArrayList<>();
+            long snapshotGeneration = loadSnapshot(snapshotProducts);
+            this.delegate = new ConcurrentInventoryRepository(indexProductNames, snapshotProducts);
+            replayLogs(snapshotGeneration);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open inventory store in " + directory, e);
+        }
+    }
+
+    // --- Writes: apply and log under the product's stripe, then wait for the group commit ---
+
+    @Override
+    public void addProduct(Product product) {
+        long record;
+        synchronized (stripeOf(product.getId())) {
+            checkWritable();
+            delegate.addProduct(product);
+            record = appendRecord(encode(OP_ADD, product.getId(), product));
+        }
+        commit(record);
+    }
+
+    /**
+     * Applies and logs each product under its stripe and waits for a single fsync covering the whole batch.
+     * If a product is rejected, the ones before it are still logged and made durable before the exception propagates.
+     */
+    @Override
+    public void addProducts(List<Product> products) {
+        long record = 0;
+        try {
+            for (Product product : products) {
+                synchronized (stripeOf(product.getId())) {
+                    checkWritable();
+                    delegate.addProduct(product);
+                    record = appendRecord(encode(OP_ADD, product.getId(), product));
+                }
+            }
+        } finally {
+            if (record > 0) {
+                commit(record);
+            }
+        }
+    }
+
+    @Override
+    public void updateProduct(Product product) throws ProductNotFoundException {
+        long record;
+        synchronized (stripeOf(product.getId())) {
+            checkWritable();
+            delegate.updateProduct(product);
+            record = appendRecord(encode(OP_UPDATE, product.getId(), product));
+        }
+        commit(record);
+    }
+
+    @Override
+    public void updateProduct(Product product, long expectedVersion) throws ProductNotFoundException, ProductVersionConflictException {
+        long record;
+        synchronized (stripeOf(product.getId())) {
+            checkWritable();
+            delegate.updateProduct(product, expectedVersion);
+            record = appendRecord(encode(OP_UPDATE, product.getId(), product));
+        }
+        commit(record);
+    }
+
+    @Override
+    public void removeProduct(String productId) throws ProductNotFoundException {
+        long record;
+        synchronized (stripeOf(productId)) {
+            checkWritable();
+            delegate.removeProduct(productId);
+            record = appendRecord(encode(OP_REMOVE, productId, null));
+        }
+        commit(record);
+    }
+
+    @Override
+    public int adjustQuantity(String productId, int delta) throws ProductNotFoundException, InvalidProductException {
+        long record;
+        int updated;
+        synchronized (stripeOf(productId)) {
+            checkWritable();
+            updated = delegate.adjustQuantity(productId, delta);
+            record = appendRecord(encodeQuantity(productId, updated));
+        }
+        commit(record);
+        return updated;
+    }
+
+    private Object stripeOf(String productId) {
+        return stripes[(productId.hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    // --- Reads go straight to the in-memory working set ---
+
+    @Override
+    public Optional<Product> findProductById(String productId) {
+        return delegate.findProductById(productId);
+    }
+
+    @Override
+    public List<Product> findAllProducts() {
+        return delegate.findAllProducts();
+    }
+
+    @Override
+    public boolean productExists(String productId) {
+        return delegate.productExists(productId);
+    }
+
+    @Override
+    public Spliterator<Product> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public List<Product> findProductsByCategory(ProductCategory category) {
+        return delegate.findProductsByCategory(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByPrice(ProductCategory category) {
+        return delegate.streamProductsByPrice(category);
+    }
+
+    @Override
+    public Stream<Product> streamProductsByCategoryAndPrice() {
+        return delegate.streamProductsByCategoryAndPrice();
+    }
+
+    @Override
+    public List<Product> findProductsBelowQuantity(int threshold) {
+        return delegate.findProductsBelowQuantity(threshold);
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(ProductCategory category, int limit) {
+        return delegate.findMostExpensiveProducts(category, limit);
+    }
+
+    @Override
+    public List<Product> findMostExpensiveProducts(int limit) {
+        return delegate.findMostExpensiveProducts(limit);
+    }
+
+    @Override
+    public List<Product> findLowestStockProducts(int limit) {
+        return delegate.findLowestStockProducts(limit);
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(double minPrice, double maxPrice) {
+        return delegate.findProductsInPriceRange(minPrice, maxPrice);
+    }
+
+    @Override
+    public List<Product> findProductsInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return delegate.findProductsInPriceRange(category, minPrice, maxPrice);
+    }
+
+    @Override
+    public List<Product> findProductsByName(String name) {
+        return delegate.findProductsByName(name);
+    }
+
+    @Override
+    public double totalStockValue() {
+        return delegate.totalStockValue();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> skuCountByCategory() {
+        return delegate.skuCountByCategory();
+    }
+
+    @Override
+    public Map<ProductCategory, Long> unitsByCategory() {
+        return delegate.unitsByCategory();
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Writes the full state to a new snapshot and starts a new log generation.
+     * Writers are only blocked while the state is encoded in memory; the mapped file write and fsync happen after.
+     */
+    public void snapshot() {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return; // another thread is already taking one
+        }
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    /**
+     * Why the latest background snapshot failed, or null if it succeeded (or none has run yet).
+     * The log simply keeps growing until a later snapshot succeeds.
+     */
+    public UncheckedIOException getSnapshotFailure() {
+        return snapshotFailure;
+    }
+
+    // The record that triggered this is already durable, so the snapshot runs on its own thread:
+    // a full-catalog encode must not stall, or fail, the write that crossed the interval.
+    private void snapshotInBackground() {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                writeSnapshot();
+                snapshotFailure = null;
+            } catch (UncheckedIOException e) {
+                snapshotFailure = e;
+            } finally {
+                snapshotRunning.set(false);
+            }
+        }, "inventory-snapshot");
+        thread.setDaemon(true);
+        snapshotThread = thread;
+        thread.start();
+    }
+
+    private void writeSnapshot() {
+        try {
+            byte[] state;
+            long generation;
+            // Same lock order as commit(): a group commit in flight must not write to the log being rotated
+            synchronized (syncLock) {
+                synchronized (appendLock) {
+                    if (closed) {
+                        return;
+                    }
+                    flushPending(); // the old generation must be complete before it can be replaced
+                    generation = logGeneration + 1;
+                    state = encodeSnapshot(generation);
+                    log.close();
+                    log = openLog(generation);
+                    syncDirectory(); // the new generation's records are only found again if its file is
+                    logGeneration = generation;
+                    recordsSinceSnapshot = 0;
+                }
+            }
+            Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, state.length);
+                mapped.put(state);
+                mapped.force();
+            }
+            Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(); // make the rename durable before the logs it replaces are deleted
+            deleteLogsBefore(generation);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write inventory snapshot in " + directory, e);
+        }
+    }
+
+    /**
+     * Lets a background snapshot in progress finish, then flushes the log and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread running = snapshotThread;
+        boolean interrupted = false;
+        while (running != null && running.isAlive()) {
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                closed = true;
+                flushPending();
+                log.close();
+            }
+        }
+    }
+
+    // --- Log writing ---
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Inventory store in " + directory + " has failed and accepts no more writes", failure);
+        }
+    }
+
+    // Records are encoded by the writer before it takes the append lock
+    private static byte[] encode(byte op, String productId, Product product) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeByte(op);
+            writeString(payload, productId);
+            if (product != null) {
+                writeProductFields(payload, product);
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encodeQuantity(String productId, int quantity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream payload = new DataOutputStream(bytes);
+            payload.writeByte(OP_QUANTITY);
+            writeString(payload, productId);
+            payload.writeInt(quantity);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Queues one record. Record layout: [payload length][CRC32 of payload][payload]
+    private long appendRecord(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        synchronized (appendLock) {
+            DataOutputStream out = new DataOutputStream(pending);
+            try {
+                out.writeInt(payload.length);
+                out.writeInt((int) crc.getValue());
+                out.write(payload);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // not thrown by an in-memory stream
+            }
+            recordsSinceSnapshot++;
+            return ++appendedRecords;
+        }
+    }
+
+    /**
+     * Group commit: whoever gets the sync lock first flushes and fsyncs everything appended so far,
+     * and the writers queued behind it usually find their record already durable.
+     */
+    private void commit(long record) {
+        if (durableRecords < record) {
+            synchronized (syncLock) {
+                if (durableRecords < record) {
+                    byte[] batch;
+                    long batchEnd;
+                    FileChannel channel;
+                    synchronized (appendLock) {
+                        batch = pending.toByteArray();
+                        batchEnd = appendedRecords;
+                        channel = log;
+                    }
+                    try {
+                        writeDurably(channel, batch);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Could not write inventory log in " + directory, e);
+                    }
+                    synchronized (appendLock) {
+                        // Only now is the batch off the queue; records appended during the write stay queued
+                        byte[] queued = pending.toByteArray();
+                        pending = new ByteArrayOutputStream(Math.max(1024, queued.length));
+                        pending.write(queued, batch.length, queued.length - batch.length);
+                    }
+                    durableRecords = batchEnd;
+                }
+            }
+        }
+        if (recordsSinceSnapshot >= snapshotEveryRecords) {
+            snapshotInBackground();
+        }
+    }
+
+    // Caller holds syncLock and appendLock
+    private void flushPending() throws IOException {
+        writeDurably(log, pending.toByteArray());
+        pending.reset();
+        durableRecords = appendedRecords;
+    }
+
+    // Caller holds syncLock. On failure, cuts off whatever part of the batch reached the file, so the
+    // batch can be written again from the same offset; if even that fails, the store is marked failed.
+    private void writeDurably(FileChannel channel, byte[] batch) throws IOException {
+        long start = channel.position();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException undo) {
+                e.addSuppressed(undo);
+                failure = e;
+            }
+            throw e;
+        }
+    }
+
+    // Flushes the directory entries, so a created or renamed file survives a crash
+    private void syncDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // some platforms (Windows) cannot open a directory; renames are durable there without it
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        FileChannel channel = FileChannel.open(logFile(generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return channel;
+    }
+
+    private Path logFile(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+    }
+
+    // --- Encoding ---
+
+    // Caller holds appendLock, so every record in the old generation is reflected here. A write applied under its
+    // stripe meanwhile may or may not be; its record is queued after this, into the new generation, and replaying
+    // a whole value the snapshot already has changes nothing. Products are written by category and price, the
+    // order the category index keeps, so a restart rebuilds it without sorting.
+    private byte[] encodeSnapshot(long generation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        List<Product> products = delegate.streamProductsByCategoryAndPrice().collect(Collectors.toList());
+        body.writeInt(SNAPSHOT_MAGIC);
+        body.writeInt(FORMAT_VERSION);
+        body.writeLong(generation);
+        body.writeInt(products.size());
+        for (Product product : products) {
+            writeString(body, product.getId());
+            writeProductFields(body, product);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        body.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    private static void writeProductFields(DataOutputStream out, Product product) throws IOException {
+        writeString(out, product.getName());
+        out.writeByte(product.getCategory().ordinal());
+        out.writeInt(product.getQuantity());
+        out.writeDouble(product.getPrice());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] utf8 = new byte[in.getInt()];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static Product readProduct(String id, ByteBuffer in) {
+        String name = readString(in);
+        ProductCategory category = CATEGORIES[in.get()];
+        int quantity = in.getInt();
+        double price = in.getDouble();
+        return new Product(id, name, category, quantity, price);
+    }
+
+    // --- Recovery ---
+
+    // Replays the log generations written since the snapshot and opens the last one for appending
+    private void replayLogs(long snapshotGeneration) throws IOException {
+        List<Long> generations = logGenerations();
+        long lastGeneration = snapshotGeneration;
+        for (long generation : generations) {
+            if (generation < snapshotGeneration) {
+                Files.delete(logFile(generation)); // already folded into the snapshot
+            } else {
+                replayLog(generation);
+                lastGeneration = generation;
+            }
+        }
+        logGeneration = lastGeneration;
+        log = openLog(lastGeneration);
+    }
+
+    // Decodes the snapshot into products and returns its generation (0 without a snapshot)
+    private long loadSnapshot(List<Product> products) throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < MIN_SNAPSHOT_BYTES) {
+                throw new IOException("Inventory snapshot " + file + " is truncated.");
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int bodyLength = in.limit() - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().limit(bodyLength));
+            if (in.getInt(bodyLength) != (int) crc.getValue()
+                    || in.getInt() != SNAPSHOT_MAGIC || in.getInt() != FORMAT_VERSION) {
+                throw new IOException("Inventory snapshot " + file + " is corrupt.");
+            }
+            long generation = in.getLong();
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                products.add(readProduct(readString(in), in));
+            }
+            return generation;
+        }
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX))
+                    .forEach(name -> generations.add(Long.parseLong(
+                            name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()))));
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Replays one generation through read-only mappings of at most REPLAY_WINDOW_BYTES, so a log larger than
+     * a single mapping can hold (2 GB) replays without copying it onto the heap.
+     */
+    private void replayLog(long generation) throws IOException {
+        Path file = logFile(generation);
+        long validLength = 0;
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            boolean torn = false;
+            while (!torn && validLength < size) {
+                long windowStart = validLength; // windows always start on a record boundary
+                ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(REPLAY_WINDOW_BYTES, size - windowStart));
+                boolean progressed = false;
+                while (in.remaining() >= RECORD_HEADER_BYTES) {
+                    int length = in.getInt(in.position());
+                    int checksum = in.getInt(in.position() + Integer.BYTES);
+                    if (length <= 0 || length > size - (windowStart + in.position() + RECORD_HEADER_BYTES)) {
+                        torn = true; // torn tail
+                        break;
+                    }
+                    if (length > in.remaining() - RECORD_HEADER_BYTES) {
+                        break; // record continues past this window; the next window starts at it
+                    }
+                    ByteBuffer payload = in.slice(in.position() + RECORD_HEADER_BYTES, length);
+                    crc.reset();
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != checksum) {
+                        torn = true; // corrupt tail
+                        break;
+                    }
+                    applyRecord(payload);
+                    in.position(in.position() + RECORD_HEADER_BYTES + length);
+                    validLength = windowStart + in.position();
+                    progressed = true;
+                }
+                if (!progressed && !torn) {
+                    torn = true; // a header split at the end of the file
+                }
+            }
+            if (validLength < size) {
+                channel.truncate(validLength); // so new records are not appended after garbage
+            }
+        }
+    }
+
+    private void applyRecord(ByteBuffer in) {
+        byte op = in.get();
+        String productId = readString(in);
+        switch (op) {
+            case OP_ADD:
+            case OP_UPDATE:
+                Product product = readProduct(productId, in);
+                if (delegate.productExists(productId)) {
+                    delegate.updateProduct(product);
+                } else {
+                    delegate.addProduct(product);
+                }
+                break;
+            case OP_REMOVE:
+                if (delegate.productExists(productId)) {
+                    delegate.removeProduct(productId);
+                }
+                break;
+            case OP_QUANTITY:
+                int quantity = in.getInt();
+                delegate.findProductById(productId).ifPresent(existing -> {
+                    existing.setQuantity(quantity);
+                    delegate.updateProduct(existing);
+                });
+                break;
+            default:
+                throw new IllegalStateException("Unknown inventory log record type " + op);
+        }
+    }
+
+    private void deleteLogsBefore(long generation) throws IOException {
+        for (long older : logGenerations()) {
+            if (older < generation) {
+                Files.deleteIfExists(logFile(older));
+            }
+        }
+    }
+}
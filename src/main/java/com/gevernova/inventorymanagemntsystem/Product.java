@@ -2,25 +2,70 @@ package com.gevernova.inventorymanagemntsystem;
 
 import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 public class Product {
+    private static final AtomicLongFieldUpdater<Product> STATE =
+            AtomicLongFieldUpdater.newUpdater(Product.class, "state");
+
+    // state packs the quantity (low 32 bits), a version stamp (bits 32-62) and a detached flag (bit 63)
+    // into one word, so a stock change and its version bump are a single compare-and-set
+    private static final long QUANTITY_MASK = 0xFFFF_FFFFL;
+    private static final long VERSION_MASK = 0x7FFF_FFFFL;
+    private static final long DETACHED = Long.MIN_VALUE;
+
     private final String id;
     private final String name;
     private final ProductCategory category;
-    private int quantity;
+    private volatile long state; // volatile so concurrent repositories can compare-and-set it
     private double price;
 
     public Product(String name, ProductCategory category, int quantity, double price) throws InvalidProductException {
-        if(name==null || name.isBlank() || category == null || quantity <= 0 || price <= 0){
+        if(validationError(name, category, quantity, price) != null){
             throw new InvalidProductException("Invalid product");
         }
         this.id = UUID.randomUUID().toString();// using a random number to Assign as id
         this.name = name;
         this.category = category;
-        this.quantity = quantity;
+        this.state = quantity;
+        this.price = price;
+    }
+
+    /**
+     * Rebuilds a product that already has an ID, for stores that keep product data in some other shape
+     * and hand out Product objects on demand. Stock may legitimately have reached zero by then.
+     */
+    public Product(String id, String name, ProductCategory category, int quantity, double price) throws InvalidProductException {
+        if(id==null || id.isBlank() || name==null || name.isBlank() || category == null || quantity < 0 || price <= 0){
+            throw new InvalidProductException("Invalid product");
+        }
+        this.id = id;
+        this.name = name;
+        this.category = category;
+        this.state = quantity;
         this.price = price;
     }
 
+    /**
+     * The rules a new product must satisfy, without throwing: returns why the fields are invalid,
+     * or null if the constructor would accept them. Lets bulk loaders reject rows cheaply.
+     */
+    static String validationError(String name, ProductCategory category, int quantity, double price) {
+        if (name == null || name.isBlank()) {
+            return "name is blank";
+        }
+        if (category == null) {
+            return "category is missing";
+        }
+        if (quantity <= 0) {
+            return "quantity must be positive";
+        }
+        if (price <= 0) {
+            return "price must be positive";
+        }
+        return null;
+    }
+
     public String getId() {
         return id;
     }
@@ -34,7 +79,17 @@ public class Product {
     }
 
     public int getQuantity() {
-        return quantity;
+        return (int) state;
+    }
+
+    /**
+     * Version stamp of this product's stored state. It goes up with every stock change, and a product
+     * that replaces another under the same ID continues from the replaced product's version, so
+     * {@code updateProduct(product, expectedVersion)} can detect that someone else wrote in between.
+     * The stamp is 31 bits wide and wraps around.
+     */
+    public long getVersion() {
+        return (state >>> 32) & VERSION_MASK;
     }
 
     public double getPrice() {
@@ -44,8 +99,77 @@ public class Product {
         if (quantity < 0) {
             throw new InvalidProductException("Quantity cannot be set to a negative value. Provided: " + quantity);
         }
-        this.quantity = quantity;
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, withQuantity(current, quantity)));
+    }
+
+    /**
+     * Atomically sets the quantity to {@code update} if it currently equals {@code expect}.
+     * Used by thread-safe repositories to change stock without losing concurrent updates.
+     * Always fails once a repository has detached this instance (replaced or removed it), so a
+     * stock change can never land on a product that is no longer stored.
+     */
+    public boolean compareAndSetQuantity(int expect, int update) throws InvalidProductException {
+        if (update < 0) {
+            throw new InvalidProductException("Quantity cannot be set to a negative value. Provided: " + update);
+        }
+        while (true) {
+            long current = state;
+            if ((current & DETACHED) != 0 || (int) current != expect) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, withQuantity(current, update))) {
+                return true;
+            }
+        }
+    }
+
+    // --- Version bookkeeping, done by repositories when they store, replace or remove a product ---
+
+    /**
+     * Marks this instance as stored, with the given version.
+     */
+    void attach(long version) {
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, ((version & VERSION_MASK) << 32) | (current & QUANTITY_MASK)));
+    }
+
+    /**
+     * Marks this instance as no longer stored and returns its final version.
+     */
+    long detach() {
+        long current;
+        do {
+            current = state;
+        } while (!STATE.compareAndSet(this, current, current | DETACHED));
+        return getVersion();
+    }
+
+    /**
+     * Detaches this instance only if it is still stored at {@code expectedVersion}.
+     */
+    boolean detach(long expectedVersion) {
+        while (true) {
+            long current = state;
+            if ((current & DETACHED) != 0 || ((current >>> 32) & VERSION_MASK) != expectedVersion) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current | DETACHED)) {
+                return true;
+            }
+        }
+    }
+
+    // Same flag, next version, new quantity
+    private static long withQuantity(long current, int quantity) {
+        long version = (((current >>> 32) & VERSION_MASK) + 1) & VERSION_MASK;
+        return (current & DETACHED) | (version << 32) | (quantity & QUANTITY_MASK);
     }
+
     @Override
     public String toString() {
         return "Product{" +
@@ -53,7 +177,7 @@ public class Product {
                 ", name='" + name + '\'' +
                 ", category=" + category +
                 ", price=" + String.format("%.2f", price) + // Format price for readability
-                ", quantity=" + quantity +
+                ", quantity=" + getQuantity() +
                 '}';
     }
 }
@@ -0,0 +1,466 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk loader for supplier catalogs.
+ *
+ * <ul>
+ *   <li>The file is cut into byte ranges that end on a line break, and the ranges are read, parsed,
+ *       validated and turned into Products in parallel on the common fork-join pool.</li>
+ *   <li>Each range is stored with one {@link InventoryRepository#addProducts} call, in file order and
+ *       one range at a time, so repositories that are not thread-safe can be loaded too.</li>
+ *   <li>Rows are checked against the same rules as the Product constructor, but a bad row becomes an
+ *       {@link ImportReport.Reject} instead of an exception.</li>
+ * </ul>
+ *
+ * CSV rows are {@code name,category,quantity,price}; fields may be double-quoted, and a first line whose
+ * first field is "name" is taken as the header. NDJSON rows are flat objects with those four keys.
+ * Categories match {@link ProductCategory} names, ignoring case. I/O failures surface as {@link UncheckedIOException}.
+ */
+public class ProductCatalogImporter {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    public static final int DEFAULT_CHUNK_BYTES = 8 * 1024 * 1024;
+
+    private static final String[] FIELD_NAMES = {"name", "category", "quantity", "price"};
+    private static final int NAME = 0;
+    private static final int CATEGORY = 1;
+    private static final int QUANTITY = 2;
+    private static final int PRICE = 3;
+
+    private static final Map<String, ProductCategory> CATEGORIES_BY_NAME = new HashMap<>();
+
+    static {
+        for (ProductCategory category : ProductCategory.values()) {
+            CATEGORIES_BY_NAME.put(category.name().toLowerCase(Locale.ROOT), category);
+        }
+    }
+
+    private final InventoryRepository repository;
+    private final int chunkBytes;
+    private final Consumer<List<Product>> onBatchStored;
+
+    public ProductCatalogImporter(InventoryRepository repository) {
+        this(repository, DEFAULT_CHUNK_BYTES, batch -> { });
+    }
+
+    /**
+     * @param chunkBytes    target size of the byte range parsed by one task and stored as one batch.
+     * @param onBatchStored called with every batch right after it was stored, on the importing thread.
+     */
+    public ProductCatalogImporter(InventoryRepository repository, int chunkBytes, Consumer<List<Product>> onBatchStored) {
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.repository = repository;
+        this.chunkBytes = chunkBytes;
+        this.onBatchStored = onBatchStored;
+    }
+
+    // What one byte range turned into; line numbers in rejects are relative to the start of the range
+    private static final class Chunk {
+        private final List<Product> products = new ArrayList<>();
+        private final List<ImportReport.Reject> rejects = new ArrayList<>();
+        private long lines;
+        private long rowsRead;
+    }
+
+    public ImportReport importFile(Path file, Format format) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBoundaries(channel);
+            long[] totals = new long[3]; // lines before the current chunk, rows read, rows imported
+            List<ImportReport.Reject> rejects = new ArrayList<>();
+            // Parsing runs ahead in parallel; forEachOrdered hands the chunks over one at a time in file order
+            IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], i == 0, format))
+                    .forEachOrdered(chunk -> {
+                        if (!chunk.products.isEmpty()) {
+                            repository.addProducts(chunk.products);
+                            onBatchStored.accept(chunk.products);
+                        }
+                        for (ImportReport.Reject reject : chunk.rejects) {
+                            rejects.add(new ImportReport.Reject(totals[0] + reject.getLineNumber(), reject.getReason()));
+                        }
+                        totals[0] += chunk.lines;
+                        totals[1] += chunk.rowsRead;
+                        totals[2] += chunk.products.size();
+                    });
+            return new ImportReport(totals[1], totals[2], rejects, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read catalog " + file, e);
+        }
+    }
+
+    // Offsets where each chunk starts, plus the file size; every chunk but the last ends right after a '\n'
+    private long[] chunkBoundaries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(64 * 1024);
+        long position = chunkBytes;
+        while (position < size) {
+            long lineEnd = -1;
+            long scan = position - 1; // a '\n' just before the nominal boundary already ends a line there
+            while (lineEnd < 0 && scan < size) {
+                probe.clear();
+                int read = channel.read(probe, scan);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        lineEnd = scan + i + 1;
+                        break;
+                    }
+                }
+                scan += read;
+            }
+            if (lineEnd < 0 || lineEnd >= size) {
+                break;
+            }
+            bounds.add(lineEnd);
+            position = lineEnd + chunkBytes;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long from, long to, boolean first, Format format) {
+        byte[] bytes = new byte[(int) (to - from)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("Catalog file shrank while it was being read.");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Chunk chunk = new Chunk();
+        String[] fields = new String[FIELD_NAMES.length];
+        boolean headerAllowed = first && format == Format.CSV;
+        int lineStart = 0;
+        while (lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            chunk.lines++;
+            String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+            lineStart = next;
+            if (line.isBlank()) {
+                continue;
+            }
+            String error = format == Format.CSV ? splitCsv(line, fields) : splitJson(line, fields);
+            if (headerAllowed) {
+                headerAllowed = false;
+                if (error == null && FIELD_NAMES[NAME].equalsIgnoreCase(fields[NAME].trim())) {
+                    continue;
+                }
+            }
+            chunk.rowsRead++;
+            if (error == null) {
+                error = addProduct(fields, chunk.products);
+            }
+            if (error != null) {
+                chunk.rejects.add(new ImportReport.Reject(chunk.lines, error));
+            }
+        }
+        return chunk;
+    }
+
+    // Converts and validates one row's fields; returns why the row is rejected, or null once the product is added
+    private static String addProduct(String[] fields, List<Product> products) {
+        String name = fields[NAME];
+        ProductCategory category = CATEGORIES_BY_NAME.get(fields[CATEGORY].trim().toLowerCase(Locale.ROOT));
+        if (category == null) {
+            return "unknown category '" + fields[CATEGORY] + "'";
+        }
+        long quantity = parseWholeNumber(fields[QUANTITY].trim());
+        if (quantity == Long.MIN_VALUE) {
+            return "quantity '" + fields[QUANTITY] + "' is not a whole number";
+        }
+        if (quantity > Integer.MAX_VALUE) {
+            return "quantity is too large";
+        }
+        String priceText = fields[PRICE].trim();
+        if (!isDecimal(priceText)) {
+            return "price '" + fields[PRICE] + "' is not a number";
+        }
+        double price = Double.parseDouble(priceText);
+        if (Double.isInfinite(price)) {
+            return "price is too large";
+        }
+        String error = Product.validationError(name, category, (int) Math.max(quantity, Integer.MIN_VALUE), price);
+        if (error != null) {
+            return error;
+        }
+        products.add(new Product(name, category, (int) quantity, price)); // cannot throw: the rules were checked above
+        return null;
+    }
+
+    // --- Row splitting: both fill fields[] and return an error message instead of throwing ---
+
+    private static String splitCsv(String line, String[] fields) {
+        int field = 0;
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            if (field == fields.length) {
+                return "expected " + fields.length + " fields, found more";
+            }
+            if (i < length && line.charAt(i) == '"') {
+                StringBuilder value = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return "unterminated quoted field";
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (i < length && line.charAt(i) == '"') {
+                        value.append('"'); // "" is an escaped quote
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && line.charAt(i) != ',') {
+                    return "unexpected text after a quoted field";
+                }
+                fields[field++] = value.toString();
+            } else {
+                int comma = line.indexOf(',', i);
+                if (comma < 0) {
+                    comma = length;
+                }
+                fields[field++] = line.substring(i, comma).trim();
+                i = comma;
+            }
+            if (i >= length) {
+                break;
+            }
+            i++; // the comma
+        }
+        if (field != fields.length) {
+            return "expected " + fields.length + " fields, found " + field;
+        }
+        return null;
+    }
+
+    // Flat JSON objects only: string, number and literal values; unknown keys are ignored
+    private static String splitJson(String line, String[] fields) {
+        Arrays.fill(fields, null);
+        int[] position = {skipWhitespace(line, 0)};
+        if (position[0] >= line.length() || line.charAt(position[0]) != '{') {
+            return "expected a JSON object";
+        }
+        position[0] = skipWhitespace(line, position[0] + 1);
+        if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+            position[0]++;
+        } else {
+            while (true) {
+                String key = readJsonString(line, position);
+                if (key == null) {
+                    return "malformed JSON key";
+                }
+                position[0] = skipWhitespace(line, position[0]);
+                if (position[0] >= line.length() || line.charAt(position[0]) != ':') {
+                    return "expected ':' after \"" + key + "\"";
+                }
+                position[0] = skipWhitespace(line, position[0] + 1);
+                String value;
+                if (position[0] < line.length() && line.charAt(position[0]) == '"') {
+                    value = readJsonString(line, position);
+                    if (value == null) {
+                        return "malformed JSON string for \"" + key + "\"";
+                    }
+                } else {
+                    int end = position[0];
+                    while (end < line.length() && ",} \t".indexOf(line.charAt(end)) < 0) {
+                        end++;
+                    }
+                    value = line.substring(position[0], end);
+                    if (value.isEmpty() || value.charAt(0) == '{' || value.charAt(0) == '[') {
+                        return "unsupported value for \"" + key + "\"";
+                    }
+                    position[0] = end;
+                }
+                for (int f = 0; f < FIELD_NAMES.length; f++) {
+                    if (FIELD_NAMES[f].equals(key)) {
+                        fields[f] = "null".equals(value) ? null : value;
+                    }
+                }
+                position[0] = skipWhitespace(line, position[0]);
+                if (position[0] >= line.length()) {
+                    return "unterminated JSON object";
+                }
+                char c = line.charAt(position[0]++);
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    return "expected ',' or '}' in JSON object";
+                }
+                position[0] = skipWhitespace(line, position[0]);
+            }
+        }
+        if (skipWhitespace(line, position[0]) != line.length()) {
+            return "unexpected text after the JSON object";
+        }
+        for (int f = 0; f < FIELD_NAMES.length; f++) {
+            if (fields[f] == null) {
+                return "missing field \"" + FIELD_NAMES[f] + "\"";
+            }
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(String line, int position) {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    // Reads the string starting at position[0] (which must be a quote) and leaves position[0] after it; null if malformed
+    private static String readJsonString(String line, int[] position) {
+        int i = position[0];
+        if (i >= line.length() || line.charAt(i) != '"') {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        i++;
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (c == '"') {
+                position[0] = i;
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (i >= line.length()) {
+                return null;
+            }
+            char escaped = line.charAt(i++);
+            switch (escaped) {
+                case '"': case '\\': case '/': value.append(escaped); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (i + 4 > line.length()) {
+                        return null;
+                    }
+                    int code = 0;
+                    for (int k = 0; k < 4; k++) {
+                        int digit = Character.digit(line.charAt(i++), 16);
+                        if (digit < 0) {
+                            return null;
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    // --- Number checks that never throw ---
+
+    // Returns Long.MIN_VALUE if text is not an optionally signed whole number of at most 18 digits
+    private static long parseWholeNumber(String text) {
+        int i = 0;
+        boolean negative = false;
+        if (!text.isEmpty() && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            i++;
+        }
+        if (i == text.length() || text.length() - i > 18) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    // True for decimals such as 12, -3.5, .25 or 1e3, which Double.parseDouble accepts without throwing
+    private static boolean isDecimal(String text) {
+        int i = 0;
+        int length = text.length();
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+            digits++;
+        }
+        if (i < length && text.charAt(i) == '.') {
+            i++;
+            while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+}
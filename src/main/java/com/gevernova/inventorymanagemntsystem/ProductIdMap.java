@@ -0,0 +1,223 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * Map from product ID to Product that stores UUID keys as two longs in an open-addressing table
+ * instead of String keys in HashMap nodes. A lookup parses the 36-character ID once and compares
+ * two longs held inline in the table, so it never touches the stored key String, and there is no
+ * per-entry node object at all.
+ * Product IDs are generated by UUID.randomUUID(), so nearly every key takes the compact path; any ID
+ * that is not a canonical lower-case UUID string goes to a small fallback HashMap, which keeps the
+ * map correct for arbitrary String keys. Not thread-safe, like the HashMap it replaces.
+ */
+public class ProductIdMap {
+    private static final int INITIAL_CAPACITY = 16; // always a power of two
+
+    // Key i is keys[2 * i] (most significant bits) and keys[2 * i + 1] (least significant bits),
+    // next to each other so a probe reads one cache line; a slot is free when values[i] is null
+    private long[] keys = new long[2 * INITIAL_CAPACITY];
+    private Product[] values = new Product[INITIAL_CAPACITY];
+    private int compactSize;
+    private final Map<String, Product> fallback = new HashMap<>();
+
+    public Product get(String id) {
+        if (!isCanonicalUuid(id)) {
+            return fallback.get(id);
+        }
+        int slot = find(mostSignificantBits(id), leastSignificantBits(id));
+        return slot < 0 ? null : values[slot];
+    }
+
+    public boolean containsKey(String id) {
+        return get(id) != null;
+    }
+
+    /**
+     * @return the product previously stored under {@code id}, or null.
+     */
+    public Product put(String id, Product product) {
+        Objects.requireNonNull(product, "product");
+        if (!isCanonicalUuid(id)) {
+            return fallback.put(id, product);
+        }
+        long most = mostSignificantBits(id);
+        long least = leastSignificantBits(id);
+        int mask = values.length - 1;
+        for (int slot = hash(most, least) & mask; ; slot = (slot + 1) & mask) {
+            if (values[slot] == null) {
+                keys[2 * slot] = most;
+                keys[2 * slot + 1] = least;
+                values[slot] = product;
+                if (++compactSize * 2 > values.length) {
+                    resize(values.length * 2); // keep the load factor at or below one half
+                }
+                return null;
+            }
+            if (keys[2 * slot] == most && keys[2 * slot + 1] == least) {
+                Product previous = values[slot];
+                values[slot] = product;
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * @return the removed product, or null if there was none.
+     */
+    public Product remove(String id) {
+        if (!isCanonicalUuid(id)) {
+            return fallback.remove(id);
+        }
+        int slot = find(mostSignificantBits(id), leastSignificantBits(id));
+        if (slot < 0) {
+            return null;
+        }
+        Product removed = values[slot];
+        deleteSlot(slot);
+        compactSize--;
+        return removed;
+    }
+
+    public int size() {
+        return compactSize + fallback.size();
+    }
+
+    /**
+     * Copy of all stored products.
+     */
+    public List<Product> values() {
+        List<Product> products = new ArrayList<>(size());
+        for (Product product : values) {
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        products.addAll(fallback.values());
+        return products;
+    }
+
+    /**
+     * Walks the table directly (no copy); splits by array range for parallel streams.
+     * Writes during a traversal can make it skip or repeat entries, since deletion moves entries
+     * between slots, so the caller must keep writers out for the duration (see the class comment).
+     */
+    public Spliterator<Product> spliterator() {
+        return Stream.concat(Arrays.stream(values).filter(Objects::nonNull), fallback.values().stream()).spliterator();
+    }
+
+    /**
+     * Approximate heap bytes used by the table itself (not the products), for comparison with a HashMap.
+     */
+    public long tableBytes() {
+        return 16L + 8L * keys.length + 16L + 4L * values.length; // array headers plus data, compressed references
+    }
+
+    private int find(long most, long least) {
+        int mask = values.length - 1;
+        for (int slot = hash(most, least) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[2 * slot] == most && keys[2 * slot + 1] == least) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Linear-probing deletion without tombstones: pull later entries of the same probe run back into the hole
+    private void deleteSlot(int hole) {
+        int mask = values.length - 1;
+        values[hole] = null;
+        for (int slot = (hole + 1) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+            int home = hash(keys[2 * slot], keys[2 * slot + 1]) & mask;
+            // Move the entry if its home slot is not in the cyclic range (hole, slot]
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[2 * hole] = keys[2 * slot];
+                keys[2 * hole + 1] = keys[2 * slot + 1];
+                values[hole] = values[slot];
+                values[slot] = null;
+                hole = slot;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Product[] oldValues = values;
+        keys = new long[2 * capacity];
+        values = new Product[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[2 * i], oldKeys[2 * i + 1]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[2 * slot] = oldKeys[2 * i];
+                keys[2 * slot + 1] = oldKeys[2 * i + 1];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(long most, long least) {
+        long h = most * 0x9E3779B97F4A7C15L ^ least; // spread the fixed version/variant bits
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    // Digit value of each ASCII character, or INVALID for anything that is not 0-9 or a-f
+    private static final int INVALID = 0x10;
+    private static final byte[] HEX_DIGITS = new byte[128];
+
+    static {
+        Arrays.fill(HEX_DIGITS, (byte) INVALID);
+        for (int c = '0'; c <= '9'; c++) {
+            HEX_DIGITS[c] = (byte) (c - '0');
+        }
+        for (int c = 'a'; c <= 'f'; c++) {
+            HEX_DIGITS[c] = (byte) (c - 'a' + 10);
+        }
+    }
+
+    // Exactly the form UUID.toString() produces: 8-4-4-4-12 lower-case hex digits
+    private static boolean isCanonicalUuid(String id) {
+        if (id == null || id.length() != 36
+                || id.charAt(8) != '-' || id.charAt(13) != '-' || id.charAt(18) != '-' || id.charAt(23) != '-') {
+            return false;
+        }
+        return (hexSegment(id, 0, 8) | hexSegment(id, 9, 13) | hexSegment(id, 14, 18)
+                | hexSegment(id, 19, 23) | hexSegment(id, 24, 36)) >= 0;
+    }
+
+    private static long mostSignificantBits(String id) {
+        return hexSegment(id, 0, 8) << 32 | hexSegment(id, 9, 13) << 16 | hexSegment(id, 14, 18);
+    }
+
+    private static long leastSignificantBits(String id) {
+        return hexSegment(id, 19, 23) << 48 | hexSegment(id, 24, 36);
+    }
+
+    // Value of the hex digits in id[from, to) (at most 12, so 48 bits), with the sign bit set if any
+    // character is not a hex digit. A table lookup instead of per-character range checks keeps the loop
+    // free of data-dependent branches; the branchy version was about ten times slower.
+    private static long hexSegment(String id, int from, int to) {
+        long value = 0;
+        int invalid = 0;
+        for (int i = from; i < to; i++) {
+            char c = id.charAt(i);
+            int digit = c < HEX_DIGITS.length ? HEX_DIGITS[c] : INVALID;
+            invalid |= digit;
+            value = value << 4 | (digit & 0xF);
+        }
+        return value | (long) (invalid & INVALID) << 59;
+    }
+}
@@ -0,0 +1,123 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * The secondary indexes a repository keeps next to its primary ID map.
+ * Repositories call {@link #add}, {@link #replace} and {@link #remove} on every mutation
+ * and every index, as well as the running {@link InventoryAggregates}, is kept in step from here.
+ */
+public class ProductIndexes {
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final InventoryAggregates aggregates = new InventoryAggregates();
+    private final StockLevelIndex stockLevelIndex = new StockLevelIndex(aggregates);
+    private final TrigramNameIndex nameIndex; // null when name indexing is switched off
+
+    public ProductIndexes(boolean indexProductNames) {
+        this.nameIndex = indexProductNames ? new TrigramNameIndex() : null;
+    }
+
+    public void add(Product product) {
+        categoryIndex.add(product);
+        stockLevelIndex.add(product);
+        if (nameIndex != null) {
+            nameIndex.add(product);
+        }
+    }
+
+    /**
+     * Indexes products that nobody else can see yet, as a repository is being built. Each index takes
+     * them in its own sort order, so every skip-list insert lands next to the previous one instead of
+     * at a random place in a large structure.
+     */
+    public void addAll(List<Product> products) {
+        // The two indexes share nothing but the aggregates, which only the stock level index touches
+        CompletableFuture<Void> stockLevels = CompletableFuture.runAsync(() -> stockLevelIndex.addAll(products));
+        categoryIndex.addAll(products);
+        stockLevels.join();
+        if (nameIndex != null) {
+            products.forEach(nameIndex::add);
+        }
+    }
+
+    /**
+     * Called when {@code updated} is stored in place of {@code previous} under the same ID.
+     */
+    public void replace(Product previous, Product updated) {
+        if (previous == updated) {
+            // Same instance re-saved after a stock change; name and category cannot have changed
+            stockLevelIndex.refresh(updated);
+            return;
+        }
+        remove(previous);
+        add(updated);
+    }
+
+    /**
+     * Called after a product's quantity was changed in place.
+     */
+    public void refreshQuantity(Product product) {
+        stockLevelIndex.refresh(product);
+    }
+
+    public void remove(Product product) {
+        categoryIndex.remove(product);
+        stockLevelIndex.remove(product);
+        if (nameIndex != null) {
+            nameIndex.remove(product);
+        }
+    }
+
+    public List<Product> findByCategory(ProductCategory category) {
+        return categoryIndex.find(category);
+    }
+
+    public Stream<Product> streamByPrice(ProductCategory category) {
+        return categoryIndex.streamByPrice(category);
+    }
+
+    public Stream<Product> streamByCategoryAndPrice() {
+        return categoryIndex.streamByCategoryAndPrice();
+    }
+
+    public Stream<Product> streamByPriceDescending(ProductCategory category) {
+        return categoryIndex.streamByPriceDescending(category);
+    }
+
+    public Stream<Product> streamByPriceDescending() {
+        return categoryIndex.streamByPriceDescending();
+    }
+
+    public Stream<Product> streamInPriceRange(ProductCategory category, double minPrice, double maxPrice) {
+        return categoryIndex.streamInPriceRange(category, minPrice, maxPrice);
+    }
+
+    public Stream<Product> streamInPriceRange(double minPrice, double maxPrice) {
+        return categoryIndex.streamInPriceRange(minPrice, maxPrice);
+    }
+
+    public List<Product> findBelowQuantity(int threshold) {
+        return stockLevelIndex.findBelow(threshold);
+    }
+
+    public Stream<Product> streamByQuantity() {
+        return stockLevelIndex.streamByQuantity();
+    }
+
+    public InventoryAggregates aggregates() {
+        return aggregates;
+    }
+
+    public boolean hasNameIndex() {
+        return nameIndex != null;
+    }
+
+    public List<Product> findByName(String name) {
+        if (nameIndex == null) {
+            throw new IllegalStateException("Product name indexing is not enabled for this repository.");
+        }
+        return nameIndex.search(name);
+    }
+}
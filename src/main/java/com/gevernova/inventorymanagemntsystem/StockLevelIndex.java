@@ -0,0 +1,130 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Index of products ordered by stock quantity, so "everything below N units" is a head-set walk
+ * costing O(log n + k) instead of a scan of the whole catalog.
+ * Product quantities are mutable, so the index remembers the quantity it filed each product under;
+ * {@link #refresh} re-files a product after its stock changed and is a no-op when nothing moved.
+ * Because it sees every product's previous and new quantity, one product at a time, it also keeps
+ * the catalog's {@link InventoryAggregates} in step.
+ */
+public class StockLevelIndex {
+
+    // One product filed under the quantity it had when it was last indexed
+    private static final class Level {
+        private final int quantity;
+        private final long sequence;
+        private final Product product;
+
+        private Level(int quantity, long sequence, Product product) {
+            this.quantity = quantity;
+            this.sequence = sequence;
+            this.product = product;
+        }
+    }
+
+    // Quantity first; a sequence number keeps products with equal stock apart. Thousands of products
+    // usually share a quantity, and comparing two longs in the node is far cheaper than comparing ID strings.
+    private static final Comparator<Level> BY_QUANTITY =
+            Comparator.<Level>comparingInt(level -> level.quantity).thenComparingLong(level -> level.sequence);
+
+    private final NavigableSet<Level> levels = new ConcurrentSkipListSet<>(BY_QUANTITY);
+    private final AtomicLong sequences = new AtomicLong();
+    // Key: Product ID, Value: the level the product is currently filed under
+    private final Map<String, Level> indexedLevels = new ConcurrentHashMap<>();
+    private final InventoryAggregates aggregates;
+
+    public StockLevelIndex(InventoryAggregates aggregates) {
+        this.aggregates = aggregates;
+    }
+
+    public void add(Product product) {
+        refresh(product);
+    }
+
+    /**
+     * Re-files a product under its current quantity. The per-ID compute serializes concurrent
+     * refreshes of one product, and because it always reads the live quantity, the last refresh wins.
+     */
+    public void refresh(Product product) {
+        indexedLevels.compute(product.getId(), (id, previous) -> {
+            int quantity = product.getQuantity();
+            if (previous != null && previous.product == product && previous.quantity == quantity) {
+                return previous;
+            }
+            if (previous == null) {
+                aggregates.add(product, quantity);
+            } else if (previous.product == product) {
+                aggregates.changeQuantity(product, previous.quantity, quantity);
+            } else {
+                aggregates.remove(previous.product, previous.quantity);
+                aggregates.add(product, quantity);
+            }
+            if (previous != null) {
+                levels.remove(previous);
+            }
+            Level current = new Level(quantity, sequences.incrementAndGet(), product);
+            levels.add(current);
+            return current;
+        });
+    }
+
+    /**
+     * Files many products at once that are not in the index yet, lowest stock first.
+     */
+    public void addAll(List<Product> products) {
+        Product[] sorted = products.toArray(new Product[0]);
+        Arrays.parallelSort(sorted, Comparator.comparingInt(Product::getQuantity));
+        for (Product product : sorted) {
+            int quantity = product.getQuantity();
+            Level level = new Level(quantity, sequences.incrementAndGet(), product);
+            if (indexedLevels.putIfAbsent(product.getId(), level) != null) {
+                throw new IllegalStateException("Product with ID " + product.getId() + " is already indexed.");
+            }
+            levels.add(level);
+            aggregates.add(product, quantity);
+        }
+    }
+
+    public void remove(Product product) {
+        indexedLevels.computeIfPresent(product.getId(), (id, previous) -> {
+            if (previous.product != product) {
+                return previous; // a different instance was stored under this ID since
+            }
+            levels.remove(previous);
+            aggregates.remove(product, previous.quantity);
+            return null;
+        });
+    }
+
+    /**
+     * Finds products whose indexed quantity is strictly below {@code threshold}, lowest stock first.
+     */
+    public List<Product> findBelow(int threshold) {
+        // Sequence 0 is never handed out, so the head set holds exactly the quantities < threshold
+        Level bound = new Level(threshold, 0, null);
+        List<Product> products = new ArrayList<>();
+        for (Level level : levels.headSet(bound, false)) {
+            products.add(level.product);
+        }
+        return products;
+    }
+
+    /**
+     * Streams every product lowest stock first, straight from the index.
+     */
+    public Stream<Product> streamByQuantity() {
+        return levels.stream().map(level -> level.product);
+    }
+}
@@ -0,0 +1,45 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Top-K selection with a bounded heap, for repositories that have no ordered index to read the answer from.
+ * Only the best {@code k} elements seen so far are kept, so picking K out of n costs O(n log k) time and
+ * O(k) memory instead of sorting all n.
+ */
+public final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * @return the first {@code k} elements of {@code elements} in {@code order}, in that order.
+     */
+    public static <T> List<T> select(Stream<T> elements, Comparator<? super T> order, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative.");
+        }
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        // The heap's head is the worst element kept, so a better newcomer replaces it in O(log k)
+        Comparator<? super T> worstFirst = Collections.reverseOrder(order);
+        PriorityQueue<T> best = new PriorityQueue<>(Math.min(k, 1024), worstFirst);
+        elements.forEachOrdered(element -> {
+            if (best.size() < k) {
+                best.add(element);
+            } else if (order.compare(element, best.peek()) < 0) {
+                best.poll();
+                best.add(element);
+            }
+        });
+        List<T> selected = new ArrayList<>(best);
+        selected.sort(order);
+        return selected;
+    }
+}
@@ -0,0 +1,106 @@
+package com.gevernova.inventorymanagemntsystem;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from every 3-character slice (trigram) of a lower-cased product name to the products
+ * whose name contains it. A case-insensitive partial-match query only has to check the products in the
+ * smallest posting list of its trigrams instead of lower-casing every name in the catalog.
+ * Queries shorter than three characters have no trigram, so they fall back to a scan of the
+ * already lower-cased names held by the index.
+ */
+public class TrigramNameIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    // Lower-cased name stored once per product, so queries never allocate per candidate
+    private static final class Entry {
+        private final Product product;
+        private final String lowerCaseName;
+
+        private Entry(Product product) {
+            this.product = product;
+            this.lowerCaseName = product.getName().toLowerCase();
+        }
+    }
+
+    // Key: Product ID, Value: indexed entry
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Key: trigram packed into a long (3 x 16-bit chars), Value: entries whose name contains it
+    private final Map<Long, Set<Entry>> postings = new ConcurrentHashMap<>();
+
+    public void add(Product product) {
+        Entry entry = new Entry(product);
+        entries.put(product.getId(), entry);
+        for (long gram : grams(entry.lowerCaseName)) {
+            postings.compute(gram, (key, set) -> {
+                if (set == null) {
+                    set = ConcurrentHashMap.newKeySet();
+                }
+                set.add(entry);
+                return set;
+            });
+        }
+    }
+
+    public void remove(Product product) {
+        Entry entry = entries.get(product.getId());
+        if (entry == null || entry.product != product || !entries.remove(product.getId(), entry)) {
+            return;
+        }
+        for (long gram : grams(entry.lowerCaseName)) {
+            // Drop posting lists once they are empty so the index does not keep dead trigrams around
+            postings.computeIfPresent(gram, (key, set) -> {
+                set.remove(entry);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * Finds products whose name contains {@code query}, ignoring case.
+     */
+    public List<Product> search(String query) {
+        String lowerCaseQuery = query.toLowerCase();
+        List<Product> matches = new ArrayList<>();
+        if (lowerCaseQuery.length() < GRAM_LENGTH) {
+            for (Entry entry : entries.values()) {
+                if (entry.lowerCaseName.contains(lowerCaseQuery)) {
+                    matches.add(entry.product);
+                }
+            }
+            return matches;
+        }
+        Set<Entry> smallest = null;
+        for (long gram : grams(lowerCaseQuery)) {
+            Set<Entry> posting = postings.get(gram);
+            if (posting == null) {
+                return matches; // some trigram of the query appears in no name at all
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        // Trigram hits are only candidates: "abcxbcd" has every trigram of "abcd" reordered, so verify
+        for (Entry entry : smallest) {
+            if (entry.lowerCaseName.contains(lowerCaseQuery)) {
+                matches.add(entry.product);
+            }
+        }
+        return matches;
+    }
+
+    private static Set<Long> grams(String lowerCaseText) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseText.length(); i++) {
+            grams.add(((long) lowerCaseText.charAt(i) << 32)
+                    | ((long) lowerCaseText.charAt(i + 1) << 16)
+                    | lowerCaseText.charAt(i + 2));
+        }
+        return grams;
+    }
+}
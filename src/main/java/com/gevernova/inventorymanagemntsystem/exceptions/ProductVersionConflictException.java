@@ -0,0 +1,7 @@
+package com.gevernova.inventorymanagemntsystem.exceptions;
+
+public class ProductVersionConflictException extends RuntimeException {
+    public ProductVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,120 @@
+import com.gevernova.booklibrarysystem.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookTitleIndexTest {
+
+    @Test
+    @DisplayName("Should rank titles with more, rarer query words and fewer other words first")
+    void shouldRankByBm25() {
+        BookTitleIndex index = new BookTitleIndex();
+        Book hobbit = new Book("The Hobbit", "J.R.R. Tolkien", "Fantasy");
+        Book longHobbit = new Book("The Hobbit, or There and Back Again", "J.R.R. Tolkien", "Fantasy");
+        Book lord = new Book("The Lord of the Rings", "J.R.R. Tolkien", "Fantasy");
+        Book rings = new Book("Rings of Saturn", "W.G. Sebald", "Fiction");
+        for (Book book : List.of(hobbit, longHobbit, lord, rings)) {
+            index.add(book);
+        }
+
+        assertEquals(List.of(hobbit, longHobbit), index.search("HOBBIT", 10));
+        assertEquals(List.of(lord, rings), index.search("lord of the rings", 2));
+        assertEquals(List.of(hobbit), index.search("hobbit", 1));
+        assertTrue(index.search("dragon", 10).isEmpty());
+        assertTrue(index.search("  ,. ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should forget a replaced title and find the book by its new one")
+    void shouldForgetReplacedTitle() {
+        BookTitleIndex index = new BookTitleIndex();
+        Book draft = new Book("b1", "Working Title", "Author", "Genre");
+        index.add(draft);
+        index.add(new Book("b2", "Another Working Copy", "Author", "Genre"));
+        Book renamed = new Book("b1", "Final Title", "Author", "Genre");
+        index.remove(draft);
+        index.add(renamed);
+
+        assertEquals(List.of(renamed), index.search("title", 10));
+        assertEquals(1, index.search("working", 10).size());
+        index.remove(renamed);
+        assertTrue(index.search("final", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should drop the postings of replaced titles and rank like an index built from the survivors")
+    void shouldCompactReplacedTitles() {
+        BookTitleIndex index = new BookTitleIndex();
+        Random random = new Random(11);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Book book = new Book("b" + i, randomTitle(random), "Author", "Genre");
+            books.add(book);
+            index.add(book);
+        }
+        List<Book> replaced = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Book old = books.get(i % 50);
+            Book renamed = new Book(old.getId(), "edition " + i + " of" + randomTitle(random), "Author", "Genre");
+            index.remove(old);
+            index.add(renamed);
+            books.set(i % 50, renamed);
+            if (i >= 20_000 - 50) {
+                replaced.add(renamed);
+            }
+        }
+
+        // Every replacement added three or more postings; without compaction they would all still be held
+        assertTrue(index.postingCount() < 10_000, "postings held: " + index.postingCount());
+        BookTitleIndex rebuilt = new BookTitleIndex();
+        books.stream().filter(book -> !replaced.contains(book)).forEach(rebuilt::add);
+        replaced.forEach(rebuilt::add);
+        for (String query : List.of("edition of", "w1 w2", "w0", "of w5 edition")) {
+            assertEquals(rebuilt.search(query, 20), index.search(query, 20), query);
+        }
+        assertEquals(1, index.search("edition 19999", 1).size());
+        assertTrue(index.search("edition 100", 5).stream().noneMatch(book -> book.getTitle().contains("edition 100 ")));
+    }
+
+    @Test
+    @DisplayName("Should return the same top K with pruning as the head of the full ranking")
+    void shouldMatchExhaustiveRanking() {
+        BookTitleIndex index = new BookTitleIndex();
+        Random random = new Random(7);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Book book = new Book("b" + i, randomTitle(random), "Author", "Genre");
+            books.add(book);
+            index.add(book);
+        }
+        for (int i = 0; i < 2_000; i++) {
+            Book old = books.get(random.nextInt(books.size()));
+            index.remove(old);
+            index.add(new Book(old.getId(), randomTitle(random), "Author", "Genre"));
+        }
+
+        for (int q = 0; q < 300; q++) {
+            String query = randomTitle(random);
+            List<Book> all = index.search(query, books.size());
+            for (int k : new int[]{1, 10, 50}) {
+                assertEquals(all.subList(0, Math.min(k, all.size())), index.search(query, k), query);
+            }
+        }
+    }
+
+    // Skewed toward the low word numbers, so some words are common and some rare, like real titles
+    private static String randomTitle(Random random) {
+        StringBuilder title = new StringBuilder();
+        int words = 1 + random.nextInt(5);
+        for (int w = 0; w < words; w++) {
+            title.append(" w").append((int) (2_000 * Math.pow(random.nextDouble(), 3)));
+        }
+        return title.toString();
+    }
+}
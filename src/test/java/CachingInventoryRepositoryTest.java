@@ -0,0 +1,208 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingInventoryRepositoryTest {
+
+    private SlowInventoryRepository backend;
+    private CachingInventoryRepository inventoryRepository;
+    private InventoryService inventoryService;
+    private Product laptop, phone;
+
+    // Stand-in for a remote backend: every call pays a delay and returns copies, never the stored objects
+    private static class SlowInventoryRepository implements InventoryRepository {
+        private final InventoryRepository storage = new InMemoryInventoryRepository();
+        private final AtomicInteger idLookups = new AtomicInteger();
+
+        private static void pause() {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static Product copy(Product product) {
+            return new Product(product.getId(), product.getName(), product.getCategory(), product.getQuantity(), product.getPrice());
+        }
+
+        @Override
+        public void addProduct(Product product) {
+            pause();
+            storage.addProduct(copy(product));
+        }
+
+        @Override
+        public void removeProduct(String productId) throws ProductNotFoundException {
+            pause();
+            storage.removeProduct(productId);
+        }
+
+        @Override
+        public void updateProduct(Product product) throws ProductNotFoundException {
+            pause();
+            storage.updateProduct(copy(product));
+        }
+
+        @Override
+        public Optional<Product> findProductById(String productId) {
+            pause();
+            idLookups.incrementAndGet();
+            return storage.findProductById(productId).map(SlowInventoryRepository::copy);
+        }
+
+        @Override
+        public List<Product> findAllProducts() {
+            pause();
+            return storage.findAllProducts().stream().map(SlowInventoryRepository::copy).collect(Collectors.toList());
+        }
+
+        @Override
+        public boolean productExists(String productId) {
+            pause();
+            idLookups.incrementAndGet();
+            return storage.productExists(productId);
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws InvalidProductException {
+        backend = new SlowInventoryRepository();
+        inventoryRepository = new CachingInventoryRepository(backend, 2);
+        inventoryService = new InventoryService(inventoryRepository);
+
+        laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        phone = new Product("Phone", ProductCategory.Electronics, 20, 800.00);
+        inventoryService.addNewProduct(laptop);
+        inventoryService.addNewProduct(phone);
+    }
+
+    @Test
+    @DisplayName("Should answer repeated ID lookups from the cache")
+    void shouldServeRepeatedLookupsFromCache() {
+        int lookupsBefore = backend.idLookups.get();
+        for (int i = 0; i < 100; i++) {
+            assertEquals("Laptop", inventoryRepository.findProductById(laptop.getId()).get().getName());
+            assertTrue(inventoryRepository.productExists(laptop.getId()));
+        }
+
+        assertEquals(lookupsBefore + 1, backend.idLookups.get());
+        assertEquals(199, inventoryRepository.hitCount());
+        assertTrue(inventoryRepository.hitRate() > 0.9);
+    }
+
+    @Test
+    @DisplayName("Should drop cached products on every write so reads see the stored state")
+    void shouldInvalidateOnWrites() throws InvalidProductException, ProductNotFoundException {
+        assertEquals(10, inventoryRepository.findProductById(laptop.getId()).get().getQuantity());
+
+        inventoryService.decreaseProductQuantity(laptop.getId(), 4);
+        assertEquals(6, inventoryRepository.findProductById(laptop.getId()).get().getQuantity());
+
+        inventoryService.increaseProductQuantity(laptop.getId(), 1);
+        assertEquals(7, inventoryRepository.findProductById(laptop.getId()).get().getQuantity());
+
+        Product repriced = new Product(laptop.getId(), "Laptop Pro", ProductCategory.Electronics, 7, 1500.00);
+        inventoryRepository.updateProduct(repriced);
+        assertEquals("Laptop Pro", inventoryRepository.findProductById(laptop.getId()).get().getName());
+
+        inventoryService.removeProduct(laptop.getId());
+        assertFalse(inventoryRepository.productExists(laptop.getId()));
+        assertTrue(inventoryRepository.findProductById(laptop.getId()).isEmpty());
+        assertThrows(InvalidProductException.class, () -> inventoryService.decreaseProductQuantity(phone.getId(), 21));
+        assertEquals(20, inventoryRepository.findProductById(phone.getId()).get().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used product when the cache is full")
+    void shouldEvictLeastRecentlyUsed() {
+        Product bread = new Product("Bread", ProductCategory.Grocery, 40, 2.50);
+        inventoryRepository.addProduct(bread);
+
+        inventoryRepository.findProductById(laptop.getId());
+        inventoryRepository.findProductById(phone.getId());
+        inventoryRepository.findProductById(laptop.getId()); // phone is now the least recently used
+        inventoryRepository.findProductById(bread.getId());
+        assertEquals(2, inventoryRepository.cachedCount());
+        assertEquals(1, inventoryRepository.evictionCount());
+
+        int lookupsBefore = backend.idLookups.get();
+        inventoryRepository.findProductById(laptop.getId());
+        assertEquals(lookupsBefore, backend.idLookups.get());
+        inventoryRepository.findProductById(phone.getId());
+        assertEquals(lookupsBefore + 1, backend.idLookups.get());
+    }
+
+    @Test
+    @DisplayName("Should fill the cache when an existence check misses")
+    void shouldCacheOnExistenceCheckMiss() {
+        assertTrue(inventoryRepository.productExists(laptop.getId()));
+        int lookupsBefore = backend.idLookups.get();
+
+        assertEquals("Laptop", inventoryRepository.findProductById(laptop.getId()).get().getName());
+        assertTrue(inventoryRepository.productExists(laptop.getId()));
+        assertEquals(lookupsBefore, backend.idLookups.get());
+        assertFalse(inventoryRepository.productExists("non-existent-id"));
+        assertEquals(1, inventoryRepository.cachedCount());
+    }
+
+    @Test
+    @DisplayName("Should still cache a product loaded while a different product is being written")
+    void shouldCacheDespiteWritesToOtherProducts() throws Exception {
+        // Fixed IDs, so the two products never share an invalidation stamp
+        Product tablet = new Product("tablet", "Tablet", ProductCategory.Electronics, 10, 1200.00);
+        Product monitor = new Product("monitor", "Monitor", ProductCategory.Electronics, 20, 800.00);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        SlowInventoryRepository gatedBackend = new SlowInventoryRepository() {
+            @Override
+            public Optional<Product> findProductById(String productId) {
+                if (productId.equals(tablet.getId()) && loading.getCount() > 0) {
+                    loading.countDown();
+                    try {
+                        written.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.findProductById(productId);
+            }
+        };
+        CachingInventoryRepository cachingRepository = new CachingInventoryRepository(gatedBackend, 10_000);
+        cachingRepository.addProduct(tablet);
+        cachingRepository.addProduct(monitor);
+
+        Thread reader = new Thread(() -> cachingRepository.findProductById(tablet.getId()));
+        reader.start();
+        loading.await();
+        cachingRepository.adjustQuantity(monitor.getId(), -1); // a write elsewhere while the tablet load is in flight
+        written.countDown();
+        reader.join();
+
+        int lookupsBefore = gatedBackend.idLookups.get();
+        assertEquals("Tablet", cachingRepository.findProductById(tablet.getId()).get().getName());
+        assertEquals(lookupsBefore, gatedBackend.idLookups.get());
+    }
+
+    @Test
+    @DisplayName("Should pass catalog-wide queries through to the backend")
+    void shouldPassThroughCatalogQueries() {
+        assertEquals(2, inventoryService.searchProductsByCategory(ProductCategory.Electronics).size());
+        assertEquals(1, inventoryService.searchProductsByName("pho").size());
+        assertEquals(1, inventoryService.filterLowStockItems(15).size());
+        assertEquals(2, inventoryService.getAllProducts().size());
+        assertEquals(0, inventoryRepository.cachedCount());
+    }
+}
@@ -0,0 +1,98 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductAlreadyExists;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductVersionConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarInventoryRepositoryTest {
+
+    private ColumnarInventoryRepository inventoryRepository;
+    private InventoryService inventoryService;
+    private Product laptop, phone, bread, shirt;
+
+    @BeforeEach
+    void setUp() throws InvalidProductException {
+        inventoryRepository = new ColumnarInventoryRepository();
+        inventoryService = new InventoryService(inventoryRepository);
+
+        laptop = new Product("Laptop", ProductCategory.Electronics, 3, 1000.00);
+        phone = new Product("Phone", ProductCategory.Electronics, 10, 500.00);
+        bread = new Product("Bread", ProductCategory.Grocery, 40, 2.50);
+        shirt = new Product("Shirt", ProductCategory.Clothing, 7, 20.00);
+        inventoryService.addNewProduct(laptop);
+        inventoryService.addNewProduct(phone);
+        inventoryService.addNewProduct(bread);
+        inventoryService.addNewProduct(shirt);
+    }
+
+    @Test
+    @DisplayName("Should store and rebuild products column by column")
+    void shouldStoreAndRebuildProducts() throws InvalidProductException, ProductNotFoundException {
+        Product stored = inventoryRepository.findProductById(phone.getId()).get();
+        assertEquals(phone.getName(), stored.getName());
+        assertEquals(phone.getCategory(), stored.getCategory());
+        assertEquals(phone.getQuantity(), stored.getQuantity());
+        assertEquals(phone.getPrice(), stored.getPrice());
+
+        inventoryService.decreaseProductQuantity(phone.getId(), 4);
+        assertEquals(6, inventoryRepository.findProductById(phone.getId()).get().getQuantity());
+        assertThrows(InvalidProductException.class, () -> inventoryService.decreaseProductQuantity(phone.getId(), 7));
+        assertThrows(ProductAlreadyExists.class, () -> inventoryRepository.addProduct(phone));
+    }
+
+    @Test
+    @DisplayName("Should keep rows dense and lookups correct after removals")
+    void shouldKeepRowsDenseAfterRemovals() throws ProductNotFoundException {
+        inventoryService.removeProduct(laptop.getId()); // the last row moves into the freed slot
+
+        assertEquals(3, inventoryRepository.size());
+        assertFalse(inventoryRepository.productExists(laptop.getId()));
+        assertEquals("Shirt", inventoryRepository.findProductById(shirt.getId()).get().getName());
+        List<Product> electronics = inventoryService.searchProductsByCategory(ProductCategory.Electronics);
+        assertEquals(1, electronics.size());
+        assertEquals(phone.getId(), electronics.get(0).getId());
+        assertThrows(ProductNotFoundException.class, () -> inventoryService.removeProduct(laptop.getId()));
+    }
+
+    @Test
+    @DisplayName("Should compute aggregates over the primitive columns")
+    void shouldComputeAggregates() {
+        assertEquals(3 * 1000.00 + 10 * 500.00 + 40 * 2.50 + 7 * 20.00, inventoryRepository.totalStockValue(), 1e-9);
+
+        Map<ProductCategory, Double> byCategory = inventoryRepository.stockValueByCategory();
+        assertEquals(8000.00, byCategory.get(ProductCategory.Electronics), 1e-9);
+        assertEquals(100.00, byCategory.get(ProductCategory.Grocery), 1e-9);
+        assertEquals(0.0, byCategory.get(ProductCategory.Books), 1e-9);
+
+        assertEquals(2, inventoryRepository.countBelowQuantity(10));
+        assertArrayEquals(new int[]{1, 1, 2}, inventoryRepository.quantityHistogram(5, 3)); // [0,5) [5,10) [10,...)
+        assertTrue(inventoryRepository.estimatedFootprintBytes() > 0);
+    }
+
+    @Test
+    @DisplayName("Should version rows so stale optimistic updates are rejected")
+    void shouldRejectStaleVersionedUpdate() throws InvalidProductException, ProductNotFoundException {
+        long version = inventoryRepository.findProductById(phone.getId()).get().getVersion();
+        inventoryService.decreaseProductQuantity(phone.getId(), 1);
+
+        Product discounted = new Product(phone.getId(), "Phone", ProductCategory.Electronics, 10, 450.00);
+        assertThrows(ProductVersionConflictException.class, () -> inventoryRepository.updateProduct(discounted, version));
+
+        Product updated = inventoryService.updateProductOptimistically(phone.getId(), current ->
+                new Product(current.getId(), current.getName(), current.getCategory(), current.getQuantity(), 450.00));
+        Product stored = inventoryRepository.findProductById(phone.getId()).get();
+        assertEquals(450.00, stored.getPrice());
+        assertEquals(9, stored.getQuantity());
+        assertEquals(version + 2, stored.getVersion());
+        assertEquals(updated.getId(), stored.getId());
+    }
+}
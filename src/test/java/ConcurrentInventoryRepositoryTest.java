@@ -0,0 +1,351 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductVersionConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentInventoryRepositoryTest {
+
+    private InventoryRepository inventoryRepository;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepository = new ConcurrentInventoryRepository();
+        inventoryService = new InventoryService(inventoryRepository);
+    }
+
+    @Test
+    @DisplayName("Should support the same CRUD operations as the in-memory repository")
+    void shouldSupportCrudOperations() throws InvalidProductException, ProductNotFoundException {
+        Product product = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        inventoryService.addNewProduct(product);
+        inventoryService.increaseProductQuantity(product.getId(), 5);
+        inventoryService.decreaseProductQuantity(product.getId(), 3);
+
+        assertEquals(12, inventoryRepository.findProductById(product.getId()).get().getQuantity());
+        assertThrows(InvalidProductException.class, () -> inventoryService.decreaseProductQuantity(product.getId(), 13));
+        assertEquals(12, product.getQuantity());
+
+        inventoryService.removeProduct(product.getId());
+        assertFalse(inventoryRepository.productExists(product.getId()));
+        assertThrows(ProductNotFoundException.class, () -> inventoryService.removeProduct(product.getId()));
+        assertThrows(ProductNotFoundException.class, () -> inventoryRepository.adjustQuantity(product.getId(), 1));
+    }
+
+    @Test
+    @DisplayName("Should not lose concurrent quantity increases")
+    void shouldNotLoseConcurrentIncreases() throws Exception {
+        Product product = new Product("Mouse", ProductCategory.Electronics, 1, 20.00);
+        inventoryRepository.addProduct(product);
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int incrementsPerThread = 20_000;
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < incrementsPerThread; i++) {
+                inventoryRepository.adjustQuantity(product.getId(), 1);
+            }
+        });
+
+        assertEquals(1 + threads * incrementsPerThread, product.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should never oversell when many orders race for the same stock")
+    void shouldNeverOversellUnderContention() throws Exception {
+        int stock = 10_000;
+        Product product = new Product("Phone", ProductCategory.Electronics, stock, 500.00);
+        inventoryRepository.addProduct(product);
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < stock; i++) {
+                try {
+                    inventoryRepository.adjustQuantity(product.getId(), -1);
+                    sold.incrementAndGet();
+                } catch (InvalidProductException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(stock, sold.get());
+        assertEquals((threads - 1) * stock, rejected.get());
+        assertEquals(0, product.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should reserve a whole basket or nothing at all")
+    void shouldReserveWholeBasketOrNothing() throws InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 5, 1200.00);
+        Product mouse = new Product("Mouse", ProductCategory.Electronics, 2, 20.00);
+        inventoryService.addNewProduct(laptop);
+        inventoryService.addNewProduct(mouse);
+
+        Map<String, Integer> basket = new LinkedHashMap<>();
+        basket.put(laptop.getId(), 2);
+        basket.put(mouse.getId(), 3); // only 2 in stock
+        assertThrows(InvalidProductException.class, () -> inventoryService.reserve(basket));
+        assertEquals(5, laptop.getQuantity()); // first line was put back
+        assertEquals(2, mouse.getQuantity());
+
+        basket.put(mouse.getId(), 2);
+        inventoryService.reserve(basket);
+        assertEquals(3, laptop.getQuantity());
+        assertEquals(0, mouse.getQuantity());
+
+        inventoryService.release(basket);
+        assertEquals(5, laptop.getQuantity());
+        assertEquals(2, mouse.getQuantity());
+
+        assertThrows(ProductNotFoundException.class, () -> inventoryService.reserve(Map.of("non-existent-id", 1)));
+        assertThrows(InvalidProductException.class, () -> inventoryService.reserve(Map.of(laptop.getId(), 0)));
+    }
+
+    @Test
+    @DisplayName("Should put back every reserved line on any failure, even when one of the undos fails")
+    void shouldRollBackEveryLineWhateverFails() throws InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 5, 1200.00);
+        Product mouse = new Product("Mouse", ProductCategory.Electronics, 5, 20.00);
+        Product keyboard = new Product("Keyboard", ProductCategory.Electronics, 5, 50.00);
+        AtomicInteger mouseAdjustments = new AtomicInteger();
+        ConcurrentInventoryRepository failingRepository = new ConcurrentInventoryRepository() {
+            @Override
+            public int adjustQuantity(String productId, int delta) {
+                if (productId.equals(keyboard.getId())) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                if (productId.equals(mouse.getId()) && mouseAdjustments.incrementAndGet() == 2) {
+                    throw new InvalidProductException("undo rejected");
+                }
+                return super.adjustQuantity(productId, delta);
+            }
+        };
+        InventoryService failingService = new InventoryService(failingRepository);
+        failingService.addNewProduct(laptop);
+        failingService.addNewProduct(mouse);
+        failingService.addNewProduct(keyboard);
+
+        Map<String, Integer> basket = new LinkedHashMap<>();
+        basket.put(laptop.getId(), 1);
+        basket.put(mouse.getId(), 1);
+        basket.put(keyboard.getId(), 1);
+        UncheckedIOException failure = assertThrows(UncheckedIOException.class, () -> failingService.reserve(basket));
+
+        assertEquals(1, failure.getSuppressed().length);
+        assertEquals("undo rejected", failure.getSuppressed()[0].getMessage());
+        assertEquals(5, laptop.getQuantity()); // still put back after the mouse undo failed
+        assertEquals(4, mouse.getQuantity());
+        assertEquals(5, keyboard.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should never oversell when overlapping baskets are reserved concurrently")
+    void shouldNeverOversellWithConcurrentBaskets() throws Exception {
+        int stock = 1_000;
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, stock, 1200.00);
+        Product mouse = new Product("Mouse", ProductCategory.Electronics, stock, 20.00);
+        inventoryRepository.addProduct(laptop);
+        inventoryRepository.addProduct(mouse);
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        AtomicInteger reservedBaskets = new AtomicInteger();
+
+        runConcurrently(threads, () -> {
+            // Half the threads list the lines in the opposite order to the other half
+            Map<String, Integer> basket = new LinkedHashMap<>();
+            boolean reversed = ThreadLocalRandom.current().nextBoolean();
+            basket.put(reversed ? mouse.getId() : laptop.getId(), 1);
+            basket.put(reversed ? laptop.getId() : mouse.getId(), 1);
+            // A basket can fail while a competing basket is putting stock back, so keep going until sold out
+            while (laptop.getQuantity() > 0 || mouse.getQuantity() > 0) {
+                try {
+                    inventoryService.reserve(basket);
+                    reservedBaskets.incrementAndGet();
+                } catch (InvalidProductException e) {
+                    // lost the race for the last units, or a competing basket was mid-rollback
+                }
+            }
+        });
+
+        assertEquals(stock, reservedBaskets.get());
+        assertEquals(0, laptop.getQuantity());
+        assertEquals(0, mouse.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should stream products in parallel while other threads add and remove products")
+    void shouldStreamWhileCatalogChanges() throws Exception {
+        for (int i = 0; i < 10_000; i++) {
+            inventoryRepository.addProduct(new Product("Item " + i, ProductCategory.Others, 1 + i % 50, 1.00));
+        }
+        assertEquals(10_000, inventoryRepository.parallelStream().count());
+        assertEquals(2_000, inventoryService.filterProducts(p -> p.getQuantity() <= 10, true).size());
+
+        AtomicInteger visited = new AtomicInteger();
+        runConcurrently(2, () -> {
+            if (ThreadLocalRandom.current().nextBoolean()) {
+                for (int i = 0; i < 2_000; i++) {
+                    Product product = new Product("Extra " + i, ProductCategory.Books, 1, 1.00);
+                    inventoryRepository.addProduct(product);
+                    inventoryRepository.removeProduct(product.getId());
+                }
+            } else {
+                for (int i = 0; i < 20; i++) {
+                    inventoryRepository.forEach(p -> visited.incrementAndGet());
+                }
+            }
+        });
+        assertEquals(10_000, inventoryRepository.stream().filter(p -> p.getCategory() == ProductCategory.Others).count());
+    }
+
+    @Test
+    @DisplayName("Should keep running aggregates exact under concurrent adds, removals and stock changes")
+    void shouldKeepAggregatesExactUnderConcurrency() throws Exception {
+        List<Product> stable = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            Product product = new Product("Item " + i, ProductCategory.values()[i % ProductCategory.values().length], 1_000, 2.25);
+            inventoryRepository.addProduct(product);
+            stable.add(product);
+        }
+
+        runConcurrently(4, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5_000; i++) {
+                String id = stable.get(random.nextInt(stable.size())).getId();
+                inventoryRepository.adjustQuantity(id, 3);
+                inventoryRepository.adjustQuantity(id, -2);
+                Product shortLived = new Product("Transient", ProductCategory.Books, 7, 9.99);
+                inventoryRepository.addProduct(shortLived);
+                inventoryRepository.removeProduct(shortLived.getId());
+            }
+        });
+
+        assertEquals(inventoryRepository.stream().mapToDouble(p -> p.getQuantity() * p.getPrice()).sum(),
+                inventoryRepository.totalStockValue(), 1e-6);
+        assertEquals(64 * 1_000 + 4 * 5_000, inventoryRepository.unitsByCategory().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(64, inventoryRepository.skuCountByCategory().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    @DisplayName("Should reject an update made against a stale version")
+    void shouldRejectStaleVersionedUpdate() throws InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        inventoryRepository.addProduct(laptop);
+        long version = laptop.getVersion();
+
+        inventoryRepository.adjustQuantity(laptop.getId(), -1); // someone else sells one
+        assertEquals(version + 1, laptop.getVersion());
+
+        Product repriced = new Product(laptop.getId(), "Laptop", ProductCategory.Electronics, 10, 999.00);
+        assertThrows(ProductVersionConflictException.class, () -> inventoryRepository.updateProduct(repriced, version));
+        assertEquals(1200.00, inventoryRepository.findProductById(laptop.getId()).get().getPrice());
+
+        Product repricedFromCurrent = new Product(laptop.getId(), "Laptop", ProductCategory.Electronics, 9, 999.00);
+        inventoryRepository.updateProduct(repricedFromCurrent, laptop.getVersion());
+        assertSame(repricedFromCurrent, inventoryRepository.findProductById(laptop.getId()).get());
+        assertEquals(version + 2, repricedFromCurrent.getVersion());
+
+        // The replaced instance no longer takes stock changes; they go to the stored product
+        inventoryRepository.adjustQuantity(laptop.getId(), -2);
+        assertEquals(9, laptop.getQuantity());
+        assertEquals(7, repricedFromCurrent.getQuantity());
+        assertThrows(ProductNotFoundException.class,
+                () -> inventoryRepository.updateProduct(new Product("Ghost", ProductCategory.Others, 1, 1.00), 0));
+    }
+
+    @Test
+    @DisplayName("Should not lose optimistic updates or stock changes made concurrently to one product")
+    void shouldNotLoseConcurrentOptimisticUpdates() throws Exception {
+        Product product = new Product("Hot item", ProductCategory.Electronics, 10_000, 10.00);
+        inventoryRepository.addProduct(product);
+        int threads = 4;
+        int updatesPerThread = 500;
+
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < updatesPerThread; i++) {
+                // Half the work raises the price by replacing the product, the other half sells stock in place
+                inventoryService.updateProductOptimistically(product.getId(), current ->
+                        new Product(current.getId(), current.getName(), current.getCategory(), current.getQuantity(), current.getPrice() + 1));
+                inventoryRepository.adjustQuantity(product.getId(), -1);
+            }
+        });
+
+        Product stored = inventoryRepository.findProductById(product.getId()).get();
+        assertEquals(10.00 + threads * updatesPerThread, stored.getPrice());
+        assertEquals(10_000 - threads * updatesPerThread, stored.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should not lose stock updates spread across many products")
+    void shouldNotLoseUpdatesAcrossProducts() throws Exception {
+        int productCount = 64;
+        int initialQuantity = 1_000;
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product("Item " + i, ProductCategory.Others, initialQuantity, 1.00);
+            inventoryRepository.addProduct(product);
+            products.add(product);
+        }
+
+        runConcurrently(4, () -> {
+            // Adding then removing one unit leaves every product unchanged if no update is lost
+            int index = ThreadLocalRandom.current().nextInt(productCount);
+            for (int i = 0; i < 10_000; i++) {
+                String id = products.get(index).getId();
+                inventoryRepository.adjustQuantity(id, 1);
+                inventoryRepository.adjustQuantity(id, -1);
+                index = (index + 7) % productCount;
+            }
+        });
+
+        for (Product product : products) {
+            assertEquals(initialQuantity, product.getQuantity());
+        }
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+import com.gevernova.booklibrarysystem.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLibraryTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private Library library;
+
+    @BeforeEach
+    void setUp() {
+        library = new Library();
+    }
+
+    @Test
+    @DisplayName("Should let exactly one of many concurrent users borrow the same copy")
+    void shouldLetOnlyOneUserBorrowTheSameCopy() throws Exception {
+        Book book = new Book("Dune", "Frank Herbert", "Science Fiction");
+        library.addBook(book);
+        List<User> users = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            User user = new User("Reader " + t);
+            users.add(user);
+            library.addUser(user);
+        }
+        AtomicInteger borrowed = new AtomicInteger();
+        AtomicInteger unavailable = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+
+        runConcurrently(THREADS, () -> {
+            User user = users.get(next.getAndIncrement());
+            try {
+                library.borrowBook(user.getId(), book.getId());
+                borrowed.incrementAndGet();
+            } catch (BookUnavailableException e) {
+                unavailable.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, borrowed.get());
+        assertEquals(THREADS - 1, unavailable.get());
+        assertEquals(1, users.stream().filter(user -> user.getBorrowedBooks().contains(book)).count());
+        assertTrue(book.isBorrowed());
+    }
+
+    @Test
+    @DisplayName("Should keep the borrowing limit when one user checks out many books at once")
+    void shouldKeepBorrowingLimitUnderConcurrency() throws Exception {
+        User user = new User("Alice");
+        library.addUser(user);
+        List<Book> books = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Book book = new Book("Title " + t, "Author", "Genre");
+            books.add(book);
+            library.addBook(book);
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger limited = new AtomicInteger();
+
+        runConcurrently(THREADS, () -> {
+            try {
+                library.borrowBook(user.getId(), books.get(next.getAndIncrement()).getId());
+            } catch (BookLimitExceededException e) {
+                limited.incrementAndGet();
+            }
+        });
+
+        assertEquals(3, user.getNumberOfBorrowedBooks());
+        assertEquals(THREADS - 3, limited.get());
+        assertEquals(3, books.stream().filter(Book::isBorrowed).count());
+    }
+
+    @Test
+    @DisplayName("Should stay consistent when users keep borrowing and returning a few popular books")
+    void shouldStayConsistentUnderBorrowReturnChurn() throws Exception {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Book book = new Book("Popular " + i, "Author", "Genre");
+            books.add(book);
+            library.addBook(book);
+        }
+        List<User> users = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            User user = new User("Reader " + t);
+            users.add(user);
+            library.addUser(user);
+        }
+        AtomicInteger next = new AtomicInteger();
+
+        runConcurrently(THREADS, () -> {
+            User user = users.get(next.getAndIncrement());
+            for (int i = 0; i < 2_000; i++) {
+                Book book = books.get(i % books.size());
+                try {
+                    library.borrowBook(user.getId(), book.getId());
+                    library.returnBook(user.getId(), book.getId());
+                } catch (BookUnavailableException e) {
+                    // someone else has it; try the next one
+                }
+            }
+        });
+
+        for (Book book : books) {
+            assertFalse(book.isBorrowed());
+        }
+        assertEquals(books.size(), library.getAvailableBookCount());
+        assertEquals(0, library.getBorrowedBookCount());
+        assertEquals(books.size(), library.getAvailableBooks().size());
+        for (User user : users) {
+            assertEquals(0, user.getNumberOfBorrowedBooks());
+            assertTrue(user.canBorrowMoreBooks());
+        }
+    }
+
+    @Test
+    @DisplayName("Should serve every hold on a popular book exactly once as holders pass it along")
+    void shouldServeEveryHoldOnceUnderContention() throws Exception {
+        Book book = new Book("Dune", "Frank Herbert", "Science Fiction");
+        library.addBook(book);
+        List<User> users = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            User user = new User("Reader " + t);
+            users.add(user);
+            library.addUser(user);
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger served = new AtomicInteger();
+        int rounds = 200;
+
+        runConcurrently(THREADS, () -> {
+            User user = users.get(next.getAndIncrement());
+            for (int i = 0; i < rounds; i++) {
+                Book received = library.placeHold(user.getId(), book.getId()).get(30, TimeUnit.SECONDS);
+                assertSame(book, received);
+                assertTrue(user.getBorrowedBooks().contains(book));
+                served.incrementAndGet();
+                library.returnBook(user.getId(), book.getId());
+            }
+        });
+
+        assertEquals(THREADS * rounds, served.get());
+        assertFalse(book.isBorrowed());
+        assertEquals(1, library.getAvailableBookCount());
+        assertEquals(0, library.getHoldCount(book.getId()));
+        for (User user : users) {
+            assertEquals(0, user.getNumberOfBorrowedBooks());
+        }
+    }
+
+    @Test
+    @DisplayName("Should lend each copy of a book to exactly one of many concurrent users")
+    void shouldLendEachCopyOnce() throws Exception {
+        int copies = 70; // spans two words of the copy bitmap
+        Book book = new Book("Dune", "Frank Herbert", "Science Fiction", copies);
+        library.addBook(book);
+        List<User> users = new ArrayList<>();
+        for (int u = 0; u < copies + THREADS * 3; u++) {
+            User user = new User("Reader " + u);
+            users.add(user);
+            library.addUser(user);
+        }
+        AtomicInteger next = new AtomicInteger();
+        Set<Integer> lent = ConcurrentHashMap.newKeySet();
+        AtomicInteger unavailable = new AtomicInteger();
+
+        runConcurrently(THREADS, () -> {
+            int u;
+            while ((u = next.getAndIncrement()) < users.size()) {
+                try {
+                    library.borrowBook(users.get(u).getId(), book.getId());
+                    assertTrue(lent.add(users.get(u).getBorrowedCopies().get(0).getCopyNumber()));
+                } catch (BookUnavailableException e) {
+                    unavailable.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(copies, lent.size());
+        assertEquals(users.size() - copies, unavailable.get());
+        assertEquals(0, book.getAvailableCopies());
+        assertEquals(0, library.getAvailableBookCount());
+        assertEquals(1, library.getBorrowedBookCount());
+
+        next.set(0);
+        runConcurrently(THREADS, () -> {
+            int u;
+            while ((u = next.getAndIncrement()) < users.size()) {
+                User user = users.get(u);
+                if (!user.getBorrowedCopies().isEmpty()) {
+                    library.returnBook(user.getId(), book.getId());
+                }
+            }
+        });
+        assertEquals(copies, book.getAvailableCopies());
+        assertEquals(List.of(book), library.getAvailableBooks());
+        assertEquals(0, library.getBorrowedBookCount());
+    }
+
+    @Test
+    @DisplayName("Should keep a multi-copy book's listings in line with its counter while copies churn")
+    void shouldKeepListingsInLineWithCopies() throws Exception {
+        Book book = new Book("Dune", "Frank Herbert", "Science Fiction", 2);
+        library.addBook(book);
+        List<User> users = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            User user = new User("Reader " + t);
+            users.add(user);
+            library.addUser(user);
+        }
+        AtomicInteger next = new AtomicInteger();
+
+        runConcurrently(THREADS, () -> {
+            User user = users.get(next.getAndIncrement());
+            for (int i = 0; i < 2_000; i++) {
+                try {
+                    library.borrowBook(user.getId(), book.getId());
+                    library.returnBook(user.getId(), book.getId());
+                } catch (BookUnavailableException e) {
+                    // both copies were out; try again
+                }
+            }
+        });
+
+        assertEquals(2, book.getAvailableCopies());
+        assertEquals(List.of(book), library.getAvailableBooks());
+        assertEquals(1, library.getAvailableBookCount());
+        assertTrue(library.getBorrowedBooks().isEmpty());
+        assertEquals(0, library.getBorrowedBookCount());
+    }
+
+    @Test
+    @DisplayName("Should remove cancelled holds and drop emptied queues while holds are placed, cancelled and served")
+    void shouldDropCancelledHoldsAndEmptyQueues() throws Exception {
+        BookHoldQueues queues = new BookHoldQueues();
+        User reader = new User("Reader");
+        CompletableFuture<Book> kept = queues.place("b0", reader);
+        CompletableFuture<Book> withdrawn = queues.place("b0", reader);
+        assertTrue(withdrawn.cancel(false));
+        assertEquals(1, queues.waitingCount("b0"));
+        CompletableFuture<Book> only = queues.place("b1", reader);
+        assertTrue(only.cancel(false));
+        assertEquals(0, queues.waitingCount("b1"));
+        assertEquals(1, queues.queueCount()); // b1's queue went with its only hold
+        assertNotNull(queues.claimNext("b0"));
+        assertFalse(kept.cancel(false)); // already claimed
+        assertEquals(0, queues.queueCount());
+
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger served = new AtomicInteger();
+        AtomicInteger cancelled = new AtomicInteger();
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < 5_000; i++) {
+                String bookId = "b" + ThreadLocalRandom.current().nextInt(4);
+                CompletableFuture<Book> hold = queues.place(bookId, reader);
+                placed.incrementAndGet();
+                if (i % 2 == 0 && hold.cancel(false)) {
+                    cancelled.incrementAndGet();
+                }
+                if (queues.claimNext(bookId) != null) {
+                    served.incrementAndGet();
+                }
+            }
+        });
+        for (int b = 0; b < 4; b++) {
+            while (queues.claimNext("b" + b) != null) {
+                served.incrementAndGet();
+            }
+            assertEquals(0, queues.waitingCount("b" + b));
+        }
+        assertEquals(placed.get(), served.get() + cancelled.get());
+        assertEquals(0, queues.queueCount());
+    }
+
+    @Test
+    @DisplayName("Should never lose a book added while another thread empties its genre or author bucket")
+    void shouldKeepBooksAddedWhileBucketsEmpty() throws Exception {
+        BookGenreIndex genres = new BookGenreIndex();
+        BookAuthorIndex authors = new BookAuthorIndex();
+        Set<Book> kept = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(THREADS, () -> {
+            for (int i = 0; i < 20_000; i++) {
+                Book book = new Book("Poems " + i, "Ann Poet", "Poetry");
+                genres.add(book);
+                authors.add(book);
+                if (i % 1_000 == 999) {
+                    kept.add(book); // stays in the index while the other threads keep emptying the buckets
+                } else {
+                    genres.remove(book);
+                    authors.remove(book);
+                }
+            }
+        });
+
+        assertEquals(kept, Set.copyOf(genres.find("Poetry")));
+        assertEquals(kept, Set.copyOf(authors.search("Ann Poet")));
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inventory benchmarks. They need a few GB of heap and take a while, so they only run when asked for:
+ * mvn test -Dtest=InventoryBenchmarkTest -Dbenchmark=true -DargLine=-Xmx4g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class InventoryBenchmarkTest {
+
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+    private static final String[] WORDS = {
+            "Laptop", "Phone", "Cable", "Charger", "Shirt", "Jacket", "Novel", "Atlas", "Kettle", "Toaster",
+            "Bread", "Cheese", "Monitor", "Keyboard", "Lamp", "Blender", "Sofa", "Pillow", "Camera", "Speaker"
+    };
+
+    private static Product benchmarkProduct(int i) throws InvalidProductException {
+        String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " Model " + i;
+        return new Product(name, CATEGORIES[i % CATEGORIES.length], 1 + i % 500, 1 + (i % 10_000) / 10.0);
+    }
+
+    private static double medianMicros(Runnable query, int runs) {
+        long[] samples = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[runs / 2] / 1_000.0;
+    }
+
+    @Test
+    @DisplayName("Benchmark: trigram name index vs full scan at 1M products")
+    void benchmarkNameSearch() throws InvalidProductException {
+        int productCount = 1_000_000;
+        InventoryRepository scanned = new InMemoryInventoryRepository();
+        InventoryRepository indexed = new InMemoryInventoryRepository(true);
+        for (int i = 0; i < productCount; i++) {
+            Product product = benchmarkProduct(i);
+            scanned.addProduct(product);
+            indexed.addProduct(product);
+        }
+
+        for (String query : new String[]{"model 123456", "toaster sofa", "keyboard", "ph"}) {
+            List<Product> expected = scanned.findProductsByName(query);
+            assertEquals(expected.size(), indexed.findProductsByName(query).size());
+            double scanMicros = medianMicros(() -> scanned.findProductsByName(query), 11);
+            double indexMicros = medianMicros(() -> indexed.findProductsByName(query), 11);
+            System.out.printf("name search '%s' (%d hits): scan %,.0f us, trigram index %,.0f us (%.1fx)%n",
+                    query, expected.size(), scanMicros, indexMicros, scanMicros / indexMicros);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @Test
+    @DisplayName("Benchmark: columnar store footprint and aggregate speed vs object store at 2M products")
+    void benchmarkColumnarStore() throws Exception {
+        int productCount = 2_000_000;
+
+        long before = usedHeapAfterGc();
+        InMemoryInventoryRepository objectStore = new InMemoryInventoryRepository();
+        for (int i = 0; i < productCount; i++) {
+            objectStore.addProduct(benchmarkProduct(i));
+        }
+        long objectStoreBytes = usedHeapAfterGc() - before;
+        assertEquals(productCount, objectStore.stream().count()); // keeps the store reachable until it was measured
+
+        objectStore = null; // let the object store and its products go before measuring the columnar one
+        before = usedHeapAfterGc();
+        ColumnarInventoryRepository columnarStore = new ColumnarInventoryRepository();
+        for (int i = 0; i < productCount; i++) {
+            columnarStore.addProduct(benchmarkProduct(i));
+        }
+        long columnarStoreBytes = usedHeapAfterGc() - before;
+        assertEquals(productCount, columnarStore.size());
+
+        System.out.printf("object store: %,d bytes (%d B/product)%n", objectStoreBytes, objectStoreBytes / productCount);
+        System.out.printf("columnar store: %,d bytes measured (%d B/product), %,d bytes estimated%n",
+                columnarStoreBytes, columnarStoreBytes / productCount, columnarStore.estimatedFootprintBytes());
+
+        InMemoryInventoryRepository comparison = new InMemoryInventoryRepository();
+        columnarStore.findAllProducts().forEach(comparison::addProduct);
+        double expectedValue = comparison.stream().mapToDouble(p -> p.getQuantity() * p.getPrice()).sum();
+        assertEquals(expectedValue, columnarStore.totalStockValue(), expectedValue * 1e-9);
+        double streamMicros = medianMicros(() -> comparison.stream().mapToDouble(p -> p.getQuantity() * p.getPrice()).sum(), 11);
+        double columnMicros = medianMicros(columnarStore::totalStockValue, 11);
+        double countMicros = medianMicros(() -> columnarStore.countBelowQuantity(50), 11);
+        System.out.printf("total stock value: object stream %,.0f us, columnar %,.0f us; columnar count below 50: %,.0f us%n",
+                streamMicros, columnMicros, countMicros);
+    }
+
+    @Test
+    @DisplayName("Benchmark: persistent store restart with 2M products in the snapshot and a 100k-record log tail")
+    void benchmarkPersistentRestart(@TempDir Path directory) throws Exception {
+        int productCount = 2_000_000;
+        int tailUpdates = 100_000;
+        List<String> ids = new ArrayList<>();
+        int expectedFirstQuantity;
+        long start = System.nanoTime();
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory, Integer.MAX_VALUE, false)) {
+            // Writers share fsyncs through group commit, so load from several threads
+            int threads = 8;
+            Thread[] writers = new Thread[threads];
+            List<List<String>> idsPerWriter = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int writer = t;
+                List<String> writerIds = new ArrayList<>();
+                idsPerWriter.add(writerIds);
+                writers[t] = new Thread(() -> {
+                    for (int i = writer; i < productCount; i += threads) {
+                        Product product = benchmarkProduct(i);
+                        repository.addProduct(product);
+                        writerIds.add(product.getId());
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            idsPerWriter.forEach(ids::addAll);
+            System.out.printf("persistent store: logged %,d adds in %,d ms%n", productCount, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            repository.snapshot();
+            System.out.printf("persistent store: snapshot of %,d products in %,d ms%n", productCount, (System.nanoTime() - start) / 1_000_000);
+            for (int i = 0; i < tailUpdates; i++) {
+                repository.adjustQuantity(ids.get(i), 1);
+            }
+            expectedFirstQuantity = repository.findProductById(ids.get(0)).get().getQuantity();
+        }
+
+        start = System.nanoTime();
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory, Integer.MAX_VALUE, false)) {
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("persistent store: restart (snapshot + %,d-record tail) in %,d ms%n", tailUpdates, elapsedMillis);
+            assertEquals(productCount, reopened.stream().count());
+            assertEquals(expectedFirstQuantity, reopened.findProductById(ids.get(0)).get().getQuantity());
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: compact UUID map vs HashMap<String, Product> at 2M products")
+    void benchmarkProductIdMap() throws Exception {
+        int productCount = 2_000_000;
+        Product[] products = new Product[productCount];
+        for (int i = 0; i < productCount; i++) {
+            products[i] = benchmarkProduct(i);
+        }
+        // Lookups arrive as fresh Strings (e.g. parsed from a request), so their hash is not cached yet
+        String[] lookupIds = new String[1_000_000];
+        Random random = new Random(7);
+        for (int i = 0; i < lookupIds.length; i++) {
+            lookupIds[i] = new String(products[random.nextInt(productCount)].getId().toCharArray());
+        }
+
+        long before = usedHeapAfterGc();
+        Map<String, Product> hashMap = new HashMap<>();
+        for (Product product : products) {
+            hashMap.put(product.getId(), product);
+        }
+        long hashMapBytes = usedHeapAfterGc() - before;
+        assertEquals(productCount, hashMap.size());
+
+        before = usedHeapAfterGc();
+        ProductIdMap compactMap = new ProductIdMap();
+        for (Product product : products) {
+            compactMap.put(product.getId(), product);
+        }
+        long compactMapBytes = usedHeapAfterGc() - before;
+        assertEquals(productCount, compactMap.size());
+
+        System.out.printf("HashMap<String, Product>: %d B/product; ProductIdMap: %d B/product (table %d B/product)%n",
+                hashMapBytes / productCount, compactMapBytes / productCount, compactMap.tableBytes() / productCount);
+
+        for (int round = 0; round < 3; round++) {
+            String[] fresh = lookupIds.clone();
+            for (int i = 0; i < fresh.length; i++) {
+                fresh[i] = new String(fresh[i].toCharArray());
+            }
+            long start = System.nanoTime();
+            for (String id : fresh) {
+                assertNotNull(hashMap.get(id));
+            }
+            double hashMapNanos = (System.nanoTime() - start) / (double) fresh.length;
+            start = System.nanoTime();
+            for (String id : lookupIds) {
+                assertNotNull(compactMap.get(id));
+            }
+            double compactNanos = (System.nanoTime() - start) / (double) lookupIds.length;
+            System.out.printf("lookup round %d: HashMap %.0f ns, ProductIdMap %.0f ns%n", round, hashMapNanos, compactNanos);
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: parallel catalog import vs one-by-one addNewProduct at 2M rows")
+    void benchmarkCatalogImport(@TempDir Path directory) throws Exception {
+        int rowCount = 2_000_000;
+        Path file = directory.resolve("catalog.csv");
+        StringBuilder csv = new StringBuilder("name,category,quantity,price\n");
+        for (int i = 0; i < rowCount; i++) {
+            String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " Model " + i;
+            csv.append(name).append(',').append(CATEGORIES[i % CATEGORIES.length]).append(',')
+                    .append(1 + i % 500).append(',').append(1 + (i % 10_000) / 10.0).append('\n');
+        }
+        Files.writeString(file, csv);
+        csv = null;
+
+        InventoryRepository oneByOne = new InMemoryInventoryRepository();
+        long start = System.nanoTime();
+        for (String line : Files.readAllLines(file).subList(1, rowCount + 1)) {
+            String[] fields = line.split(",");
+            Product product = new Product(fields[0], ProductCategory.valueOf(fields[1]), Integer.parseInt(fields[2]), Double.parseDouble(fields[3]));
+            if (!oneByOne.productExists(product.getId())) {
+                oneByOne.addProduct(product);
+            }
+        }
+        double oneByOneRowsPerSecond = rowCount / ((System.nanoTime() - start) / 1_000_000_000.0);
+        oneByOne = null;
+
+        InventoryRepository imported = new InMemoryInventoryRepository();
+        ImportReport report = new ProductCatalogImporter(imported).importFile(file, ProductCatalogImporter.Format.CSV);
+        assertEquals(rowCount, report.getRowsImported());
+        assertTrue(report.getRejects().isEmpty());
+        System.out.printf("catalog import: one by one %,.0f rows/s, parallel importer %,.0f rows/s (%.1fx)%n",
+                oneByOneRowsPerSecond, report.getRowsPerSecond(), report.getRowsPerSecond() / oneByOneRowsPerSecond);
+    }
+
+    @Test
+    @DisplayName("Benchmark: ConcurrentInventoryRepository stock-update throughput as thread count grows")
+    void benchmarkConcurrentStockUpdates() throws Exception {
+        ConcurrentInventoryRepository repository = new ConcurrentInventoryRepository();
+        int productCount = 1024;
+        int initialQuantity = 1_000_000;
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < productCount; i++) {
+            Product product = new Product("Item " + i, ProductCategory.Others, initialQuantity, 1.00);
+            repository.addProduct(product);
+            products.add(product);
+        }
+        int operationsPerThread = 200_000;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                int firstIndex = (t * productCount) / threads;
+                workers[t] = new Thread(() -> {
+                    // Each thread walks the catalog from its own start, adding then removing one unit
+                    int index = firstIndex;
+                    for (int i = 0; i < operationsPerThread; i += 2) {
+                        String id = products.get(index).getId();
+                        repository.adjustQuantity(id, 1);
+                        repository.adjustQuantity(id, -1);
+                        index = (index + 7) % productCount;
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsedNanos = System.nanoTime() - start;
+            double opsPerSecond = threads * (double) operationsPerThread / (elapsedNanos / 1_000_000_000.0);
+            System.out.printf("ConcurrentInventoryRepository: %d thread(s) -> %,.0f stock updates/s%n", threads, opsPerSecond);
+
+            for (Product product : products) {
+                assertEquals(initialQuantity, product.getQuantity());
+            }
+        }
+    }
+}
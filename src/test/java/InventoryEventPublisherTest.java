@@ -0,0 +1,246 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryEventPublisherTest {
+
+    private InventoryEventPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should emit an event for every add, stock change and removal made through the service")
+    void shouldEmitEventsForServiceChanges() throws InvalidProductException, ProductNotFoundException {
+        publisher = new InventoryEventPublisher();
+        List<InventoryChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        publisher.addListener(received::addAll);
+        InventoryService inventoryService = new InventoryService(new ConcurrentInventoryRepository(), publisher);
+
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        inventoryService.addNewProduct(laptop);
+        inventoryService.increaseProductQuantity(laptop.getId(), 5);
+        inventoryService.decreaseProductQuantity(laptop.getId(), 3);
+        inventoryService.reserve(Map.of(laptop.getId(), 2));
+        inventoryService.release(Map.of(laptop.getId(), 2));
+        assertThrows(InvalidProductException.class, () -> inventoryService.decreaseProductQuantity(laptop.getId(), 100));
+        inventoryService.removeProduct(laptop.getId());
+        publisher.close();
+
+        assertEquals(6, received.size()); // the rejected decrease changed nothing, so it is not reported
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i, received.get(i).getSequence());
+            assertEquals(laptop.getId(), received.get(i).getProductId());
+        }
+        assertEquals(InventoryChangeEvent.Type.ADDED, received.get(0).getType());
+        assertEquals(10, received.get(0).getQuantity());
+        assertEquals(InventoryChangeEvent.Type.QUANTITY_CHANGED, received.get(2).getType());
+        assertEquals(15, received.get(2).getPreviousQuantity());
+        assertEquals(12, received.get(2).getQuantity());
+        assertEquals(10, received.get(3).getQuantity());
+        assertEquals(12, received.get(4).getQuantity());
+        assertEquals(InventoryChangeEvent.Type.REMOVED, received.get(5).getType());
+        assertEquals(12, received.get(5).getPreviousQuantity());
+    }
+
+    @Test
+    @DisplayName("Should hand events to listeners in batches no larger than the configured size")
+    void shouldDeliverInBoundedBatches() {
+        publisher = new InventoryEventPublisher(1024, 16, InventoryEventPublisher.Backpressure.BLOCK);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        publisher.addListener(events -> {
+            awaitQuietly(gate);
+            batchSizes.add(events.size());
+        });
+
+        for (int i = 0; i < 500; i++) {
+            assertTrue(publisher.publish(InventoryChangeEvent.Type.QUANTITY_CHANGED, "p" + i, i, i + 1));
+        }
+        gate.countDown();
+        publisher.close();
+
+        assertEquals(500, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 16));
+        assertTrue(batchSizes.size() < 500, "events queued behind a slow listener should be batched");
+    }
+
+    @Test
+    @DisplayName("Should drop events instead of slowing stock changes when listeners fall behind")
+    void shouldDropWhenListenerIsSlow() throws InvalidProductException, ProductNotFoundException {
+        publisher = new InventoryEventPublisher(64, 8, InventoryEventPublisher.Backpressure.DROP);
+        CountDownLatch gate = new CountDownLatch(1);
+        publisher.addListener(events -> awaitQuietly(gate));
+        InventoryService inventoryService = new InventoryService(new ConcurrentInventoryRepository(), publisher);
+        Product phone = new Product("Phone", ProductCategory.Electronics, 100_000, 500.00);
+        inventoryService.addNewProduct(phone);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            inventoryService.decreaseProductQuantity(phone.getId(), 1);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        gate.countDown();
+
+        assertEquals(90_000, phone.getQuantity());
+        assertTrue(publisher.droppedCount() > 0);
+        assertEquals(10_001, publisher.publishedCount() + publisher.droppedCount());
+        assertTrue(elapsedMillis < 10_000, "a blocked listener must not stall the service: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("Should deliver every event exactly once from many producer threads under BLOCK")
+    void shouldNotLoseEventsUnderBlock() throws InterruptedException {
+        publisher = new InventoryEventPublisher(32, 8, InventoryEventPublisher.Backpressure.BLOCK);
+        List<InventoryChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        publisher.addListener(received::addAll);
+        int producers = 4;
+        int eventsPerProducer = 5_000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            String productId = "product-" + p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    publisher.publish(InventoryChangeEvent.Type.QUANTITY_CHANGED, productId, i, i + 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        publisher.close();
+
+        assertEquals(0, publisher.droppedCount());
+        assertEquals(producers * eventsPerProducer, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i, received.get(i).getSequence());
+        }
+        // Events from one producer keep their order
+        for (int p = 0; p < producers; p++) {
+            String productId = "product-" + p;
+            int expected = 0;
+            for (InventoryChangeEvent event : received) {
+                if (event.getProductId().equals(productId)) {
+                    assertEquals(expected++, event.getPreviousQuantity());
+                }
+            }
+            assertEquals(eventsPerProducer, expected);
+        }
+        assertFalse(publisher.publish(InventoryChangeEvent.Type.ADDED, "late", 0, 1));
+    }
+
+    @Test
+    @DisplayName("Should report events dropped under DROP on the next event, with no gap in the sequence")
+    void shouldReportDroppedEventsOnNextEvent() {
+        publisher = new InventoryEventPublisher(64, 8, InventoryEventPublisher.Backpressure.DROP);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<InventoryChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        publisher.addListener(events -> {
+            awaitQuietly(gate);
+            received.addAll(events);
+        });
+
+        for (int i = 0; i < 1_000; i++) {
+            publisher.publish(InventoryChangeEvent.Type.QUANTITY_CHANGED, "p", i, i + 1);
+        }
+        gate.countDown();
+        while (publisher.backlog() > 0) {
+            Thread.onSpinWait();
+        }
+        assertTrue(publisher.publish(InventoryChangeEvent.Type.QUANTITY_CHANGED, "p", 1_000, 1_001));
+        publisher.close();
+
+        assertTrue(publisher.droppedCount() > 0);
+        assertEquals(publisher.publishedCount(), received.size());
+        long reportedDrops = 0;
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(i, received.get(i).getSequence());
+            reportedDrops += received.get(i).getDroppedBefore();
+        }
+        assertEquals(publisher.droppedCount(), reportedDrops);
+        assertEquals(publisher.droppedCount(), received.get(received.size() - 1).getDroppedBefore());
+    }
+
+    @Test
+    @DisplayName("Should count a failing listener, pass it to the failure handler and keep serving the others")
+    void shouldReportListenerFailures() {
+        publisher = new InventoryEventPublisher();
+        List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+        publisher.setFailureHandler((listener, failure) -> failures.add(failure));
+        publisher.addListener(events -> {
+            throw new IllegalStateException("listener is broken");
+        });
+        List<InventoryChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        publisher.addListener(received::addAll);
+
+        publisher.publish(InventoryChangeEvent.Type.ADDED, "p", 0, 1);
+        publisher.close();
+
+        assertEquals(1, received.size());
+        assertEquals(1, publisher.listenerFailureCount());
+        assertEquals(1, failures.size());
+        assertEquals("listener is broken", failures.get(0).getMessage());
+    }
+
+    @Test
+    @DisplayName("Should publish concurrent stock changes to one product in the order they were made")
+    void shouldKeepPerProductOrderAcrossThreads() throws InterruptedException, InvalidProductException {
+        publisher = new InventoryEventPublisher(1024, 64, InventoryEventPublisher.Backpressure.BLOCK);
+        List<InventoryChangeEvent> received = Collections.synchronizedList(new ArrayList<>());
+        publisher.addListener(received::addAll);
+        InventoryService inventoryService = new InventoryService(new ConcurrentInventoryRepository(), publisher);
+        Product phone = new Product("Phone", ProductCategory.Electronics, 1, 500.00);
+        inventoryService.addNewProduct(phone);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    inventoryService.increaseProductQuantity(phone.getId(), 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        publisher.close();
+
+        assertEquals(8_001, received.size());
+        int expectedPrevious = 1;
+        for (InventoryChangeEvent event : received.subList(1, received.size())) {
+            assertEquals(expectedPrevious, event.getPreviousQuantity());
+            expectedPrevious = event.getQuantity();
+        }
+        assertEquals(8_001, expectedPrevious);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -6,8 +6,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -125,6 +127,82 @@ class InventoryServiceTest {
         assertTrue(lowStock.stream().anyMatch(p -> p.getId().equals(productThree.getId())));
     }
 
+    @Test
+    @DisplayName("Should keep low stock filtering in step with quantity changes")
+    void shouldKeepLowStockFilteringInStepWithQuantityChanges() throws InvalidProductException, ProductNotFoundException {
+        Product productOne = new Product("Laptop", ProductCategory.Electronics, 3, 1200.00);
+        Product productTwo = new Product("Bread", ProductCategory.Grocery, 8, 2.50);
+
+        inventoryService.addNewProduct(productOne);
+        inventoryService.addNewProduct(productTwo);
+        inventoryService.increaseProductQuantity(productOne.getId(), 10); // 13, no longer low
+        inventoryService.decreaseProductQuantity(productTwo.getId(), 6);  // 2, now low
+
+        List<Product> lowStock = inventoryService.filterLowStockItems(5);
+        assertEquals(1, lowStock.size());
+        assertEquals(productTwo.getId(), lowStock.get(0).getId());
+        assertTrue(inventoryService.filterLowStockItems(2).isEmpty()); // threshold is exclusive
+
+        inventoryService.removeProduct(productTwo.getId());
+        assertTrue(inventoryService.filterLowStockItems(5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should notify low stock subscribers once when a product crosses the threshold")
+    void shouldNotifyLowStockSubscribersOnCrossing() throws InvalidProductException, ProductNotFoundException {
+        List<Product> notified = new ArrayList<>();
+        Consumer<Product> listener = notified::add;
+        inventoryService.subscribeToLowStock(5, listener);
+        Product product = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        inventoryService.addNewProduct(product);
+
+        inventoryService.decreaseProductQuantity(product.getId(), 4); // 6, still above
+        assertTrue(notified.isEmpty());
+        inventoryService.decreaseProductQuantity(product.getId(), 2); // 4, crosses below 5
+        inventoryService.decreaseProductQuantity(product.getId(), 1); // 3, already below
+        assertEquals(1, notified.size());
+        assertEquals(product.getId(), notified.get(0).getId());
+
+        Product lowFromStart = new Product("Mouse", ProductCategory.Electronics, 2, 20.00);
+        inventoryService.addNewProduct(lowFromStart);
+        assertEquals(2, notified.size());
+
+        inventoryService.unsubscribeFromLowStock(listener);
+        inventoryService.addNewProduct(new Product("Cable", ProductCategory.Electronics, 1, 5.00));
+        assertEquals(2, notified.size());
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.subscribeToLowStock(-1, p -> { }));
+    }
+
+    @Test
+    @DisplayName("Should notify low stock subscribers when an optimistic update crosses the threshold")
+    void shouldNotifyLowStockSubscribersFromOptimisticUpdate() throws Exception {
+        List<Product> notified = new ArrayList<>();
+        inventoryService.subscribeToLowStock(5, notified::add);
+        Product product = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        inventoryService.addNewProduct(product);
+
+        inventoryService.updateProductOptimistically(product.getId(), current ->
+                withQuantity(current, 3)); // crosses below 5
+        inventoryService.updateProductOptimistically(product.getId(), current ->
+                withQuantity(current, 2)); // already below
+        assertEquals(1, notified.size());
+        assertEquals(3, notified.get(0).getQuantity());
+
+        inventoryService.updateProductOptimistically(product.getId(), current ->
+                withQuantity(current, 8)); // back above
+        inventoryService.updateProductOptimistically(product.getId(), current ->
+                withQuantity(current, 4)); // crosses again
+        assertEquals(2, notified.size());
+    }
+
+    private static Product withQuantity(Product current, int quantity) {
+        try {
+            return new Product(current.getId(), current.getName(), current.getCategory(), quantity, current.getPrice());
+        } catch (InvalidProductException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Test
     @DisplayName("Should sort products by category and price")
     void shouldSortProductsByCategoryAndPrice() throws InvalidProductException {
@@ -150,6 +228,85 @@ class InventoryServiceTest {
         assertEquals(productOne.getId(), sortedProducts.get(4).getId()); // Novel (BOOKS, 15.00)
     }
 
+    @Test
+    @DisplayName("Should list the cheapest products in a category in price order")
+    void shouldListCheapestProductsInCategory() throws InvalidProductException, ProductNotFoundException {
+        Product productOne = new Product("Novel", ProductCategory.Books, 5, 15.00);
+        Product productTwo = new Product("Atlas", ProductCategory.Books, 2, 40.00);
+        Product productThree = new Product("Comic", ProductCategory.Books, 9, 5.00);
+        Product productFour = new Product("Milk", ProductCategory.Grocery, 10, 3.00);
+
+        inventoryService.addNewProduct(productOne);
+        inventoryService.addNewProduct(productTwo);
+        inventoryService.addNewProduct(productThree);
+        inventoryService.addNewProduct(productFour);
+
+        List<Product> cheapestBooks = inventoryService.findCheapestProductsInCategory(ProductCategory.Books, 2);
+        assertEquals(2, cheapestBooks.size());
+        assertEquals(productThree.getId(), cheapestBooks.get(0).getId()); // Comic (5.00)
+        assertEquals(productOne.getId(), cheapestBooks.get(1).getId()); // Novel (15.00)
+
+        inventoryService.removeProduct(productThree.getId());
+        assertEquals(productOne.getId(), inventoryService.findCheapestProductsInCategory(ProductCategory.Books, 1).get(0).getId());
+        assertEquals(2, inventoryService.findCheapestProductsInCategory(ProductCategory.Books, 10).size());
+    }
+
+    @Test
+    @DisplayName("Should return top-K products by price and stock, and products in a price range")
+    void shouldFindTopKAndPriceRange() throws InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 5, 1200.00);
+        Product phone = new Product("Phone", ProductCategory.Electronics, 30, 800.00);
+        Product cable = new Product("Cable", ProductCategory.Electronics, 2, 10.00);
+        Product novel = new Product("Novel", ProductCategory.Books, 12, 15.00);
+        Product kettle = new Product("Kettle", ProductCategory.Home_appliances, 8, 40.00);
+        for (Product product : List.of(laptop, phone, cable, novel, kettle)) {
+            inventoryService.addNewProduct(product);
+        }
+
+        assertEquals(List.of(laptop, phone), inventoryService.findMostExpensiveProductsInCategory(ProductCategory.Electronics, 2));
+        assertEquals(List.of(laptop, phone, kettle), inventoryService.findMostExpensiveProducts(3));
+        assertEquals(List.of(cable, laptop), inventoryService.findLowestStockItems(2));
+        assertEquals(List.of(cable, novel, kettle), inventoryService.findProductsInPriceRange(10.00, 40.00));
+        assertEquals(List.of(cable), inventoryService.findProductsInPriceRange(ProductCategory.Electronics, 0.01, 799.99));
+        assertTrue(inventoryService.findProductsInPriceRange(2_000.00, 3_000.00).isEmpty());
+
+        // The orderings follow stock changes and removals
+        inventoryService.increaseProductQuantity(cable.getId(), 100);
+        inventoryService.removeProduct(laptop.getId());
+        assertEquals(List.of(kettle, novel), inventoryService.findLowestStockItems(2));
+        assertEquals(List.of(phone), inventoryService.findMostExpensiveProductsInCategory(ProductCategory.Electronics, 1));
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.findLowestStockItems(-1));
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.findProductsInPriceRange(50.00, 10.00));
+    }
+
+    @Test
+    @DisplayName("Should give the same top-K and price-range answers with and without indexes")
+    void shouldAnswerTopKWithoutIndexes() throws InvalidProductException {
+        InventoryService unindexed = new InventoryService(new ColumnarInventoryRepository());
+        for (int i = 0; i < 200; i++) {
+            Product product = new Product("Item " + i, ProductCategory.values()[i % 6], 1 + (i * 37) % 101, 1 + (i * 53) % 97);
+            inventoryService.addNewProduct(product);
+            unindexed.addNewProduct(product);
+        }
+
+        assertEquals(ids(inventoryService.findMostExpensiveProductsInCategory(ProductCategory.Books, 7)),
+                ids(unindexed.findMostExpensiveProductsInCategory(ProductCategory.Books, 7)));
+        assertEquals(ids(inventoryService.findMostExpensiveProducts(25)), ids(unindexed.findMostExpensiveProducts(25)));
+        assertEquals(ids(inventoryService.findProductsInPriceRange(20.0, 60.0)), ids(unindexed.findProductsInPriceRange(20.0, 60.0)));
+        List<Integer> lowestStock = new ArrayList<>();
+        inventoryService.findLowestStockItems(10).forEach(p -> lowestStock.add(p.getQuantity()));
+        List<Integer> lowestStockUnindexed = new ArrayList<>();
+        unindexed.findLowestStockItems(10).forEach(p -> lowestStockUnindexed.add(p.getQuantity()));
+        assertEquals(lowestStock, lowestStockUnindexed);
+    }
+
+    private static List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>();
+        products.forEach(p -> ids.add(p.getId()));
+        return ids;
+    }
+
     @Test
     @DisplayName("Should search products by name correctly")
     void shouldSearchProductsByNameCorrectly() throws InvalidProductException {
@@ -183,6 +340,75 @@ class InventoryServiceTest {
         assertEquals(productOne.getId(), electronics.get(0).getId());
     }
 
+    @Test
+    @DisplayName("Should keep category search in step with added and removed products")
+    void shouldKeepCategorySearchInStepWithRemovals() throws InvalidProductException, ProductNotFoundException {
+        Product productOne = new Product("Laptop", ProductCategory.Electronics, 5, 1200.00);
+        Product productTwo = new Product("Phone", ProductCategory.Electronics, 8, 600.00);
+
+        inventoryService.addNewProduct(productOne);
+        inventoryService.addNewProduct(productTwo);
+        inventoryService.increaseProductQuantity(productTwo.getId(), 2);
+        inventoryService.removeProduct(productOne.getId());
+
+        List<Product> electronics = inventoryService.searchProductsByCategory(ProductCategory.Electronics);
+        assertEquals(1, electronics.size());
+        assertEquals(productTwo.getId(), electronics.get(0).getId());
+        assertTrue(inventoryService.searchProductsByCategory(ProductCategory.Grocery).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should search products by name through the trigram name index")
+    void shouldSearchProductsByNameThroughTrigramIndex() throws InvalidProductException, ProductNotFoundException {
+        InventoryService indexedService = new InventoryService(new InMemoryInventoryRepository(true));
+        Product productOne = new Product("Laptop Pro", ProductCategory.Electronics, 5, 1500.00);
+        Product productTwo = new Product("Gaming LAPTOP", ProductCategory.Electronics, 3, 1800.00);
+        Product productThree = new Product("Lapdesk and Top cover", ProductCategory.Others, 15, 20.00);
+
+        indexedService.addNewProduct(productOne);
+        indexedService.addNewProduct(productTwo);
+        indexedService.addNewProduct(productThree);
+
+        assertEquals(2, indexedService.searchProductsByName("laptop").size()); // "Lapdesk and Top" shares trigrams but is no match
+        assertEquals(3, indexedService.searchProductsByName("la").size()); // too short for a trigram, falls back to a scan
+        assertTrue(indexedService.searchProductsByName("tablet").isEmpty());
+
+        indexedService.decreaseProductQuantity(productOne.getId(), 1);
+        indexedService.removeProduct(productTwo.getId());
+        List<Product> laptops = indexedService.searchProductsByName("LapTop");
+        assertEquals(1, laptops.size());
+        assertEquals(productOne.getId(), laptops.get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Should keep stock value and per-category totals in step with every change")
+    void shouldMaintainAggregatesIncrementally() throws InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        Product mouse = new Product("Mouse", ProductCategory.Electronics, 50, 19.99);
+        Product bread = new Product("Bread", ProductCategory.Grocery, 40, 2.50);
+        inventoryService.addNewProduct(laptop);
+        inventoryService.addNewProduct(mouse);
+        inventoryService.addNewProduct(bread);
+
+        assertEquals(12_000.00 + 999.50 + 100.00, inventoryService.getTotalStockValue(), 1e-9);
+        assertEquals(2L, inventoryService.getSkuCountByCategory().get(ProductCategory.Electronics));
+        assertEquals(0L, inventoryService.getSkuCountByCategory().get(ProductCategory.Books));
+        assertEquals(60L, inventoryService.getUnitsByCategory().get(ProductCategory.Electronics));
+
+        inventoryService.decreaseProductQuantity(laptop.getId(), 4);
+        inventoryService.increaseProductQuantity(bread.getId(), 10);
+        inventoryService.removeProduct(mouse.getId());
+
+        assertEquals(7_200.00 + 125.00, inventoryService.getTotalStockValue(), 1e-9);
+        assertEquals(1L, inventoryService.getSkuCountByCategory().get(ProductCategory.Electronics));
+        assertEquals(6L, inventoryService.getUnitsByCategory().get(ProductCategory.Electronics));
+        assertEquals(50L, inventoryService.getUnitsByCategory().get(ProductCategory.Grocery));
+
+        // The running totals agree with a full pass over the catalog
+        assertEquals(inventoryService.getAllProducts().stream().mapToDouble(p -> p.getQuantity() * p.getPrice()).sum(),
+                inventoryService.getTotalStockValue(), 1e-9);
+    }
+
     // Additional test for InvalidProductException from Product constructor
     @Test
     @DisplayName("Should throw InvalidProductException for null product name")
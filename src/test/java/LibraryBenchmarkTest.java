@@ -0,0 +1,346 @@
+import com.gevernova.booklibrarysystem.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Library benchmarks. They take a while, so they only run when asked for:
+ * mvn test -Dtest=LibraryBenchmarkTest -Dbenchmark=true -DargLine=-Xmx4g
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LibraryBenchmarkTest {
+
+    // Library logs every checkout; System.out is synchronized and would turn any benchmark into a console benchmark
+    private static <T> T withoutConsoleOutput(ThrowingSupplier<T> body) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            return body.get();
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private interface ThrowingSupplier<T> {
+        T get() throws Exception;
+    }
+
+    @Test
+    @DisplayName("Benchmark: checkout/return throughput as threads contend for 1k books")
+    void benchmarkCheckoutContention() throws Exception {
+        int bookCount = 1_000;
+        Library library = new Library();
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < bookCount; i++) {
+            Book book = new Book("Title " + i, "Author " + i % 50, "Genre " + i % 10);
+            books.add(book);
+        }
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        List<User> users = new ArrayList<>();
+        for (int t = 0; t < maxThreads; t++) {
+            users.add(new User("Reader " + t));
+        }
+        withoutConsoleOutput(() -> {
+            books.forEach(library::addBook);
+            users.forEach(library::addUser);
+            return null;
+        });
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            int threadCount = threads;
+            long[] result = withoutConsoleOutput(() -> runCheckouts(library, books, users, threadCount, 500));
+            System.out.printf("%2d threads: %,.0f checkouts/s (%,d checkouts, %,d found the copy taken)%n",
+                    threadCount, result[0] / (result[2] / 1_000_000_000.0), result[0], result[1]);
+        }
+        assertTrue(books.stream().noneMatch(Book::isBorrowed));
+    }
+
+    // Each thread borrows and returns random books for the given time; returns {checkouts, unavailable, elapsed nanos}
+    private static long[] runCheckouts(Library library, List<Book> books, List<User> users, int threads, long millis) throws Exception {
+        AtomicLong checkouts = new AtomicLong();
+        AtomicLong unavailable = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        long[] deadline = new long[1];
+        for (int t = 0; t < threads; t++) {
+            User user = users.get(t);
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long done = 0;
+                long taken = 0;
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < deadline[0]) {
+                    Book book = books.get(random.nextInt(books.size()));
+                    try {
+                        library.borrowBook(user.getId(), book.getId());
+                        library.returnBook(user.getId(), book.getId());
+                        done++;
+                    } catch (BookUnavailableException e) {
+                        taken++;
+                    }
+                }
+                checkouts.addAndGet(done);
+                unavailable.addAndGet(taken);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        deadline[0] = begin + millis * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return new long[]{checkouts.get(), unavailable.get(), System.nanoTime() - begin};
+    }
+
+    @Test
+    @DisplayName("Benchmark: loan ledger replay rate at 1M, 10M and 30M events")
+    void benchmarkLoanLedgerReplay(@TempDir Path directory) throws Exception {
+        int bookCount = 1_000_000;
+        String[] bookIds = new String[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            bookIds[i] = UUID.randomUUID().toString();
+        }
+        String[] userIds = new String[100_000];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = UUID.randomUUID().toString();
+        }
+
+        long written = 0;
+        for (long target : new long[]{1_000_000, 10_000_000, 30_000_000}) {
+            try (LoanLedger ledger = new LoanLedger(directory, Integer.MAX_VALUE)) {
+                long record = 0;
+                // Borrow a book, then return it on the next pass, so the log holds a realistic mix
+                for (; written < target; written++) {
+                    int book = (int) ((written / 2) % bookCount);
+                    String user = userIds[(int) ((written / 2) % userIds.length)];
+                    record = written % 2 == 0 ? ledger.appendBorrow(bookIds[book], user) : ledger.appendReturn(bookIds[book], user);
+                    if (written % 100_000 == 0) {
+                        ledger.commit(record);
+                    }
+                }
+                ledger.commit(record);
+            }
+            long start = System.nanoTime();
+            try (LoanLedger reopened = new LoanLedger(directory, Integer.MAX_VALUE)) {
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+                assertEquals(target, reopened.getRecoveredRecords());
+                System.out.printf("ledger replay: %,d events in %,.0f ms (%,.0f events/s)%n",
+                        target, seconds * 1000, target / seconds);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: ledger-backed borrows and returns one call at a time vs applyAll batches")
+    void benchmarkBatchCheckouts(@TempDir Path directory) throws Exception {
+        int bookCount = 10_000;
+        int rounds = 5;
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            Library library = new Library(ledger);
+            List<Book> books = new ArrayList<>();
+            List<User> users = new ArrayList<>();
+            withoutConsoleOutput(() -> {
+                for (int i = 0; i < bookCount; i++) {
+                    Book book = new Book("Title " + i, "Author", "Genre");
+                    books.add(book);
+                    library.addBook(book);
+                }
+                for (int i = 0; i < bookCount / 3 + 1; i++) {
+                    User user = new User("Reader " + i);
+                    users.add(user);
+                    library.addUser(user);
+                }
+                return null;
+            });
+            // Every book is borrowed by the reader it maps to and then returned, three books per reader
+            List<LoanOperation> operations = new ArrayList<>();
+            for (int i = 0; i < bookCount; i++) {
+                operations.add(LoanOperation.borrow(users.get(i / 3).getId(), books.get(i).getId()));
+            }
+            for (int i = 0; i < bookCount; i++) {
+                operations.add(LoanOperation.giveBack(users.get(i / 3).getId(), books.get(i).getId()));
+            }
+
+            long singleNanos = withoutConsoleOutput(() -> {
+                long start = System.nanoTime();
+                for (int round = 0; round < rounds; round++) {
+                    for (LoanOperation operation : operations) {
+                        if (operation.getType() == LoanOperation.Type.BORROW) {
+                            library.borrowBook(operation.getUserId(), operation.getBookId());
+                        } else {
+                            library.returnBook(operation.getUserId(), operation.getBookId());
+                        }
+                    }
+                }
+                return System.nanoTime() - start;
+            });
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                for (int from = 0; from < operations.size(); from += 1_000) {
+                    for (LoanResult result : library.applyAll(operations.subList(from, from + 1_000))) {
+                        assertTrue(result.isSuccess());
+                    }
+                }
+            }
+            long batchNanos = System.nanoTime() - start;
+
+            long total = (long) operations.size() * rounds;
+            System.out.printf("one at a time: %,.0f ops/s%n", total / (singleNanos / 1_000_000_000.0));
+            System.out.printf("batches of 1k: %,.0f ops/s%n", total / (batchNanos / 1_000_000_000.0));
+            assertEquals(bookCount, library.getAvailableBookCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Benchmark: title search latency percentiles over 5M titles")
+    void benchmarkTitleSearch() {
+        int titleCount = 5_000_000;
+        int vocabulary = 200_000;
+        Random random = new Random(42);
+        BookTitleIndex index = new BookTitleIndex();
+        long start = System.nanoTime();
+        for (int i = 0; i < titleCount; i++) {
+            index.add(new Book("b" + i, randomTitle(random, vocabulary), "Author", "Genre"));
+        }
+        System.out.printf("indexed %,d titles in %,d ms%n", titleCount, (System.nanoTime() - start) / 1_000_000);
+
+        int queries = 20_000;
+        long[] latencies = new long[queries];
+        long hits = 0;
+        for (int q = 0; q < queries; q++) {
+            String query = queryWords(random, vocabulary);
+            long begin = System.nanoTime();
+            hits += index.search(query, 10).size();
+            latencies[q] = System.nanoTime() - begin;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("top-10 search over %,d queries: p50 %,d us, p90 %,d us, p99 %,d us, p99.9 %,d us, max %,d us%n",
+                queries, percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[queries - 1] / 1_000);
+        assertTrue(hits > 0);
+    }
+
+    // Word numbers follow a steep power law, so a few words ("the", "of") are in a large share of titles
+    private static String word(Random random, int vocabulary) {
+        return "w" + (int) (vocabulary * Math.pow(random.nextDouble(), 4));
+    }
+
+    private static String randomTitle(Random random, int vocabulary) {
+        StringBuilder title = new StringBuilder(word(random, vocabulary));
+        for (int words = 1 + random.nextInt(6); words > 1; words--) {
+            title.append(' ').append(word(random, vocabulary));
+        }
+        return title.toString();
+    }
+
+    private static String queryWords(Random random, int vocabulary) {
+        StringBuilder query = new StringBuilder(word(random, vocabulary));
+        for (int words = 1 + random.nextInt(3); words > 1; words--) {
+            query.append(' ').append(word(random, vocabulary));
+        }
+        return query.toString();
+    }
+
+    private static long percentile(long[] sortedNanos, double fraction) {
+        return sortedNanos[(int) Math.min(sortedNanos.length - 1, Math.floor(fraction * sortedNanos.length))] / 1_000;
+    }
+
+    @Test
+    @DisplayName("Benchmark: 50-row pages deep into 1M available books, offset vs page token")
+    void benchmarkDeepPaging() throws Exception {
+        int bookCount = 1_000_000;
+        Library library = new Library();
+        withoutConsoleOutput(() -> {
+            for (int i = 0; i < bookCount; i++) {
+                library.addBook(new Book(String.format("b%07d", i), "Title " + i, "Author " + i % 1_000, "Genre"));
+            }
+            return null;
+        });
+        String token = null;
+        for (int i = 0; i < 5_000; i++) {
+            token = library.getAvailableBooks(token, 50).getNextPageToken(); // warm up and walk 250k rows in
+        }
+        int pages = 2_000;
+        int depth = 900_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            assertEquals(50, library.getAvailableBooks(depth, 50).size());
+        }
+        long offsetNanos = (System.nanoTime() - start) / pages;
+        String deepToken = library.getAvailableBooks(null, depth).getNextPageToken();
+        start = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            assertEquals(50, library.getAvailableBooks(deepToken, 50).getItems().size());
+        }
+        long tokenNanos = (System.nanoTime() - start) / pages;
+        System.out.printf("page at row %,d: offset %,d us, token %,d us%n", depth, offsetNanos / 1_000, tokenNanos / 1_000);
+    }
+
+    @Test
+    @DisplayName("Benchmark: memory and availability scan, 25k titles x 40 copies as one Book per copy vs copy-counted Books")
+    void benchmarkCopyCountedBooks() throws Exception {
+        int titleCount = 25_000;
+        int copies = 40;
+        long before = usedHeap();
+        List<Book> books = new ArrayList<>(titleCount * copies);
+        for (int t = 0; t < titleCount; t++) {
+            for (int c = 0; c < copies; c++) {
+                // Strings built per copy, the way copies arrive from a catalog feed
+                books.add(new Book("Title " + t, "Author " + t % 1_000, "Genre " + t % 20));
+            }
+        }
+        long bookBytes = usedHeap() - before;
+        before = usedHeap();
+        List<Book> titles = new ArrayList<>(titleCount);
+        for (int t = 0; t < titleCount; t++) {
+            titles.add(new Book("Title " + t, "Author " + t % 1_000, "Genre " + t % 20, copies));
+        }
+        long titleBytes = usedHeap() - before;
+
+        long bookScan = 0;
+        long titleScan = 0;
+        long available = 0;
+        for (int round = 0; round < 20; round++) {
+            long start = System.nanoTime();
+            available += books.stream().filter(book -> !book.isBorrowed()).count();
+            bookScan = System.nanoTime() - start;
+            start = System.nanoTime();
+            available += titles.stream().mapToInt(Book::getAvailableCopies).sum();
+            titleScan = System.nanoTime() - start;
+        }
+        System.out.printf("one Book per copy: %,d MB, available-copies scan %,d us%n", bookBytes >> 20, bookScan / 1_000);
+        System.out.printf("copy-counted Book: %,d MB, available-copies scan %,d us%n", titleBytes >> 20, titleScan / 1_000);
+        assertEquals(2L * 20 * titleCount * copies, available);
+        assertEquals(titleCount * copies, books.size()); // keeps both collections reachable until measured
+        assertEquals(titleCount, titles.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -3,8 +3,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -110,6 +116,21 @@ class LibraryTest {
         assertFalse(bookTwo.isBorrowed());
     }
 
+    @Test
+    @DisplayName("Should treat a null user or book ID as not found")
+    void shouldTreatNullIdsAsNotFound() {
+        assertThrows(IllegalArgumentException.class, () -> library.borrowBook(null, bookOne.getId()));
+        assertThrows(IllegalArgumentException.class, () -> library.borrowBook(userOne.getId(), null));
+        assertThrows(IllegalArgumentException.class, () -> library.returnBook(null, bookOne.getId()));
+        assertThrows(IllegalArgumentException.class, () -> library.returnBook(userOne.getId(), null));
+        assertThrows(IllegalArgumentException.class, () -> library.placeHold(null, bookOne.getId()));
+        assertThrows(IllegalArgumentException.class, () -> library.placeHold(userOne.getId(), null));
+        assertEquals(Optional.empty(), library.findBookById(null));
+        assertEquals(Optional.empty(), library.findUserById(null));
+        assertEquals(0, library.getHoldCount(null));
+        assertFalse(bookOne.isBorrowed());
+    }
+
     @Test
     @DisplayName("Should list all available books correctly")
     void shouldListAvailableBooksCorrectly() {
@@ -138,6 +159,289 @@ class LibraryTest {
         assertFalse(borrowedBooks.contains(bookThree));
     }
 
+    @Test
+    @DisplayName("Should keep availability counts and pages in step with borrows and returns")
+    void shouldKeepAvailabilityCountsAndPages() {
+        assertEquals(5, library.getAvailableBookCount());
+        assertEquals(0, library.getBorrowedBookCount());
+
+        library.borrowBook(userOne.getId(), bookOne.getId());
+        library.borrowBook(userTwo.getId(), bookTwo.getId());
+        assertEquals(3, library.getAvailableBookCount());
+        assertEquals(2, library.getBorrowedBookCount());
+
+        List<Book> firstPage = library.getAvailableBooks(0, 2);
+        List<Book> secondPage = library.getAvailableBooks(2, 2);
+        assertEquals(2, firstPage.size());
+        assertEquals(1, secondPage.size());
+        assertEquals(3, Stream.concat(firstPage.stream(), secondPage.stream()).distinct().count());
+        assertFalse(firstPage.contains(bookOne));
+        assertFalse(secondPage.contains(bookOne));
+        assertEquals(2, library.getBorrowedBooks(0, 10).size());
+
+        library.returnBook(userOne.getId(), bookOne.getId());
+        assertEquals(4, library.getAvailableBookCount());
+        assertEquals(1, library.getBorrowedBookCount());
+        assertEquals(List.of(bookTwo), library.getBorrowedBooks(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> library.getAvailableBooks(-1, 10));
+    }
+
+    @Test
+    @DisplayName("Should hand a returned book to the users holding it in order")
+    void shouldHandReturnedBookToHoldersInOrder() {
+        User userThree = new User("Carol");
+        library.addUser(userThree);
+        library.borrowBook(userOne.getId(), bookOne.getId());
+
+        CompletableFuture<Book> bobsHold = library.placeHold(userTwo.getId(), bookOne.getId());
+        CompletableFuture<Book> carolsHold = library.placeHold(userThree.getId(), bookOne.getId());
+        assertFalse(bobsHold.isDone());
+        assertEquals(2, library.getHoldCount(bookOne.getId()));
+
+        library.returnBook(userOne.getId(), bookOne.getId());
+        assertSame(bookOne, bobsHold.getNow(null));
+        assertFalse(carolsHold.isDone());
+        assertTrue(userTwo.getBorrowedBooks().contains(bookOne));
+        assertFalse(userOne.getBorrowedBooks().contains(bookOne));
+        assertTrue(bookOne.isBorrowed());
+        assertFalse(library.getAvailableBooks().contains(bookOne)); // never back on the shelf
+
+        library.returnBook(userTwo.getId(), bookOne.getId());
+        assertSame(bookOne, carolsHold.getNow(null));
+        assertTrue(userThree.getBorrowedBooks().contains(bookOne));
+        assertEquals(0, library.getHoldCount(bookOne.getId()));
+
+        library.returnBook(userThree.getId(), bookOne.getId());
+        assertFalse(bookOne.isBorrowed());
+        assertEquals(5, library.getAvailableBookCount());
+    }
+
+    @Test
+    @DisplayName("Should fill a hold at once when the book is on the shelf and skip cancelled holds")
+    void shouldFillHoldOnShelfAndSkipCancelledHolds() {
+        CompletableFuture<Book> immediate = library.placeHold(userOne.getId(), bookTwo.getId());
+        assertSame(bookTwo, immediate.getNow(null));
+        assertTrue(userOne.getBorrowedBooks().contains(bookTwo));
+
+        CompletableFuture<Book> cancelled = library.placeHold(userTwo.getId(), bookTwo.getId());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(0, library.getHoldCount(bookTwo.getId()));
+
+        library.returnBook(userOne.getId(), bookTwo.getId());
+        assertFalse(bookTwo.isBorrowed());
+        assertFalse(userTwo.getBorrowedBooks().contains(bookTwo));
+        assertThrows(IllegalArgumentException.class, () -> library.placeHold(userOne.getId(), "missing"));
+    }
+
+    @Test
+    @DisplayName("Should fail a hold whose user is at the borrowing limit when their turn comes")
+    void shouldFailHoldOfUserAtLimit() {
+        library.borrowBook(userOne.getId(), bookOne.getId());
+        CompletableFuture<Book> hold = library.placeHold(userTwo.getId(), bookOne.getId());
+        library.borrowBook(userTwo.getId(), bookTwo.getId());
+        library.borrowBook(userTwo.getId(), bookThree.getId());
+        library.borrowBook(userTwo.getId(), bookFour.getId());
+
+        library.returnBook(userOne.getId(), bookOne.getId());
+
+        ExecutionException failure = assertThrows(ExecutionException.class, hold::get);
+        assertInstanceOf(BookLimitExceededException.class, failure.getCause());
+        assertFalse(bookOne.isBorrowed());
+        assertTrue(library.getAvailableBooks().contains(bookOne));
+    }
+
+    @Test
+    @DisplayName("Should apply a batch in order and report each operation's result without throwing")
+    void shouldApplyBatchAndReportResultsPerItem() {
+        LoanResult[] results = library.applyAll(Arrays.asList(
+                LoanOperation.borrow(userOne.getId(), bookOne.getId()),
+                LoanOperation.borrow(userTwo.getId(), bookOne.getId()),
+                LoanOperation.giveBack(userOne.getId(), bookOne.getId()),
+                LoanOperation.borrow(userTwo.getId(), bookOne.getId()),
+                LoanOperation.giveBack(userOne.getId(), bookTwo.getId()),
+                LoanOperation.giveBack(userOne.getId(), bookOne.getId()),
+                LoanOperation.borrow("missing", bookOne.getId()),
+                LoanOperation.borrow(userOne.getId(), null),
+                null));
+
+        assertArrayEquals(new LoanResult[]{
+                LoanResult.BORROWED,
+                LoanResult.BOOK_UNAVAILABLE,
+                LoanResult.RETURNED,
+                LoanResult.BORROWED,
+                LoanResult.NOT_BORROWED,
+                LoanResult.NOT_BORROWED_BY_USER,
+                LoanResult.USER_NOT_FOUND,
+                LoanResult.BOOK_NOT_FOUND,
+                LoanResult.INVALID_OPERATION}, results);
+        assertTrue(userTwo.getBorrowedBooks().contains(bookOne));
+        assertEquals(0, userOne.getNumberOfBorrowedBooks());
+        assertEquals(1, library.getBorrowedBookCount());
+    }
+
+    @Test
+    @DisplayName("Should report the borrowing limit per item in a batch")
+    void shouldReportLimitPerItemInBatch() {
+        LoanResult[] results = library.applyAll(Arrays.asList(
+                LoanOperation.borrow(userOne.getId(), bookOne.getId()),
+                LoanOperation.borrow(userOne.getId(), bookTwo.getId()),
+                LoanOperation.borrow(userOne.getId(), bookThree.getId()),
+                LoanOperation.borrow(userOne.getId(), bookFour.getId()),
+                LoanOperation.giveBack(userOne.getId(), bookOne.getId()),
+                LoanOperation.borrow(userOne.getId(), bookFour.getId())));
+
+        assertEquals(LoanResult.LIMIT_REACHED, results[3]);
+        assertEquals(LoanResult.BORROWED, results[5]);
+        assertEquals(3, userOne.getNumberOfBorrowedBooks());
+        assertTrue(library.getAvailableBooks().contains(bookOne));
+    }
+
+    @Test
+    @DisplayName("Should rank books by title words, best match first")
+    void shouldSearchTitlesRanked() {
+        Book ringsOfSaturn = new Book("The Rings of Saturn", "W.G. Sebald", "Fiction");
+        library.addBook(ringsOfSaturn);
+
+        assertEquals(List.of(bookOne, ringsOfSaturn), library.searchByTitle("lord of the rings", 2));
+        assertEquals(List.of(bookFour), library.searchByTitle("the HOBBIT", 1));
+        assertTrue(library.searchByTitle("dragon", 5).isEmpty());
+        assertTrue(library.searchByTitle(null, 5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> library.searchByTitle("hobbit", 0));
+
+        library.addBook(new Book(bookFour.getId(), "There and Back Again", "J.R.R. Tolkien", "Fantasy"));
+        assertTrue(library.searchByTitle("hobbit", 5).isEmpty());
+        assertEquals(bookFour.getId(), library.searchByTitle("back again", 5).get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Should page through every listing with tokens, in ID order, without repeats")
+    void shouldPageThroughListingsWithTokens() {
+        library.borrowBook(userOne.getId(), bookThree.getId());
+        library.addBook(new Book("Farmer Giles of Ham", "J.R.R. Tolkien", "Fantasy"));
+
+        assertEquals(readAll(token -> library.getAvailableBooks(token, 2)), library.streamAvailableBooks().toList());
+        assertEquals(5, readAll(token -> library.getAvailableBooks(token, 2)).size());
+        assertEquals(List.of(bookThree), readAll(token -> library.getBorrowedBooks(token, 2)));
+        assertEquals(3, readAll(token -> library.findBooksByAuthor("tolkien", token, 2)).size());
+        assertEquals(readAll(token -> library.findBooksByAuthor("j tolk", token, 1)),
+                library.streamBooksByAuthor("J.R.R. Tolkien").toList());
+        assertEquals(3, readAll(token -> library.findBooksByGenre(" FANTASY ", token, 1)).size());
+        assertEquals(library.streamUsers().toList(), readAll(token -> library.getAllUsers(token, 1)));
+        assertEquals(2, library.streamUsers().count());
+
+        Page<Book> empty = library.findBooksByGenre("Poetry", null, 10);
+        assertTrue(empty.getItems().isEmpty());
+        assertFalse(empty.hasNextPage());
+        assertThrows(IllegalArgumentException.class, () -> library.getAvailableBooks((String) null, 0));
+        assertThrows(IllegalArgumentException.class, () -> library.getAllUsers("not a token!", 10));
+    }
+
+    @Test
+    @DisplayName("Should resume after the last item seen even if books change between pages")
+    void shouldResumeAfterLastItemWhenBooksChange() {
+        Page<Book> first = library.getAvailableBooks((String) null, 2);
+        assertTrue(first.hasNextPage());
+        Book lastSeen = first.getItems().get(1);
+        library.borrowBook(userOne.getId(), first.getItems().get(0).getId()); // leaves the listing before the cursor
+        library.borrowBook(userTwo.getId(), lastSeen.getId()); // the cursor's own book leaves too
+
+        List<Book> rest = readAll(token -> library.getAvailableBooks(token, 2), first.getNextPageToken());
+        assertEquals(3, rest.size());
+        assertTrue(rest.stream().allMatch(book -> book.getId().compareTo(lastSeen.getId()) > 0));
+    }
+
+    private static <T> List<T> readAll(Function<String, Page<T>> pages) {
+        return readAll(pages, null);
+    }
+
+    private static <T> List<T> readAll(Function<String, Page<T>> pages, String token) {
+        List<T> all = new ArrayList<>();
+        do {
+            Page<T> page = pages.apply(token);
+            all.addAll(page.getItems());
+            token = page.getNextPageToken();
+        } while (token != null);
+        return all;
+    }
+
+    @Test
+    @DisplayName("Should lend distinct copies of a book until none are left")
+    void shouldLendCopiesOfBook() {
+        Book dune = new Book("Dune", "Frank Herbert", "Science Fiction", 2);
+        library.addBook(dune);
+
+        library.borrowBook(userOne.getId(), dune.getId());
+        library.borrowBook(userTwo.getId(), dune.getId());
+        BookCopy first = userOne.getBorrowedCopies().get(0);
+        assertNotEquals(first.getId(), userTwo.getBorrowedCopies().get(0).getId());
+        assertEquals(dune.getId(), dune.getCopyId(1));
+        assertEquals(0, dune.getAvailableCopies());
+        assertFalse(library.getAvailableBooks().contains(dune));
+        assertThrows(BookUnavailableException.class, () -> library.borrowBook(userOne.getId(), dune.getId()));
+        assertEquals(1, userOne.getNumberOfBorrowedBooks());
+
+        library.returnBook(userOne.getId(), dune.getId());
+        assertEquals(1, dune.getAvailableCopies());
+        assertTrue(library.getAvailableBooks().contains(dune));
+        assertTrue(library.getBorrowedBooks().contains(dune)); // the other copy is still out
+        assertTrue(userOne.getBorrowedCopies().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> library.returnBook(userOne.getId(), dune.getId()));
+        library.borrowBook(userOne.getId(), dune.getId());
+        assertEquals(first.getCopyNumber(), userOne.getBorrowedCopies().get(0).getCopyNumber());
+    }
+
+    @Test
+    @DisplayName("Should count copies towards the borrowing limit")
+    void shouldCountCopiesTowardsLimit() {
+        Book atlas = new Book("Road Atlas", "Cartography Team", "Reference", 10);
+        library.addBook(atlas);
+        library.borrowBook(userOne.getId(), bookOne.getId());
+        library.borrowBook(userOne.getId(), atlas.getId());
+        library.borrowBook(userOne.getId(), atlas.getId());
+
+        assertThrows(BookLimitExceededException.class, () -> library.borrowBook(userOne.getId(), atlas.getId()));
+        assertThrows(BookLimitExceededException.class, () -> library.borrowBook(userOne.getId(), bookTwo.getId()));
+        assertEquals(8, atlas.getAvailableCopies());
+        assertEquals(3, userOne.getNumberOfBorrowedBooks());
+        assertThrows(IllegalArgumentException.class, () -> new Book("Empty", "Nobody", "None", 0));
+    }
+
+    @Test
+    @DisplayName("Should list, search, hold and batch a book held in several copies like any other book")
+    void shouldTreatMultiCopyBookLikeAnyBook() throws Exception {
+        Book dune = new Book("Dune", "Frank Herbert", "Science Fiction", 2);
+        library.addBook(dune);
+        User carol = new User("Carol");
+        library.addUser(carol);
+
+        assertEquals(List.of(dune), library.findBooksByAuthor("herbert"));
+        assertEquals(List.of(dune), library.findBooksByGenre("science fiction"));
+        assertEquals(List.of(dune), library.searchByTitle("dune", 5));
+        assertTrue(library.streamAvailableBooks().anyMatch(dune::equals));
+
+        LoanResult[] results = library.applyAll(List.of(
+                LoanOperation.borrow(userOne.getId(), dune.getId()),
+                LoanOperation.borrow(userTwo.getId(), dune.getId()),
+                LoanOperation.borrow(carol.getId(), dune.getId())));
+        assertArrayEquals(new LoanResult[] {LoanResult.BORROWED, LoanResult.BORROWED, LoanResult.BOOK_UNAVAILABLE}, results);
+        assertFalse(library.getAvailableBooks(null, 10).getItems().contains(dune));
+        assertTrue(library.getBorrowedBooks(null, 10).getItems().contains(dune));
+
+        CompletableFuture<Book> hold = library.placeHold(carol.getId(), dune.getId());
+        assertFalse(hold.isDone());
+        library.returnBook(userTwo.getId(), dune.getId());
+        assertEquals(dune, hold.get());
+        assertEquals(List.of(dune), carol.getBorrowedBooks());
+        assertEquals(0, dune.getAvailableCopies()); // the returned copy went to the hold, not the shelf
+
+        results = library.applyAll(List.of(
+                LoanOperation.giveBack(userOne.getId(), dune.getId()),
+                LoanOperation.giveBack(carol.getId(), dune.getId())));
+        assertArrayEquals(new LoanResult[] {LoanResult.RETURNED, LoanResult.RETURNED}, results);
+        assertEquals(2, dune.getAvailableCopies());
+        assertFalse(library.getBorrowedBooks().contains(dune));
+    }
+
     @Test
     @DisplayName("Should filter books by author correctly")
     void shouldFilterBooksByAuthorCorrectly() {
@@ -164,6 +468,46 @@ class LibraryTest {
         assertTrue(romanceBooks.contains(bookTwo));
     }
 
+    @Test
+    @DisplayName("Should find authors by word prefix, ignoring case")
+    void shouldFindAuthorsByWordPrefix() {
+        assertEquals(2, library.findBooksByAuthor("tolk").size());
+        assertEquals(2, library.findBooksByAuthor("J.R.R. TOL").size());
+        assertEquals(List.of(bookTwo), library.findBooksByAuthor("  jane   aus "));
+        assertEquals(List.of(bookThree), library.findBooksByAuthor("orwell george"));
+        assertTrue(library.findBooksByAuthor("Jane Orwell").isEmpty());
+        assertTrue(library.findBooksByAuthor("Dickens").isEmpty());
+
+        Book silmarillion = new Book("The Silmarillion", "J.R.R. Tolkien", "Fantasy");
+        library.addBook(silmarillion);
+        assertEquals(3, library.findBooksByAuthor("Tolkien").size());
+    }
+
+    @Test
+    @DisplayName("Should check multi-word author queries against the author a book was last added with")
+    void shouldMatchMultiWordQueriesAgainstCurrentAuthor() {
+        Book reissue = new Book(bookThree.getId(), "1984", "Eric Arthur Blair", "Dystopian");
+        library.addBook(reissue);
+
+        assertTrue(library.findBooksByAuthor("george orwell").isEmpty());
+        assertEquals(List.of(reissue), library.findBooksByAuthor("blair eric"));
+        assertEquals(List.of(reissue), library.findBooksByAuthor("ar bla e"));
+        assertTrue(library.findBooksByAuthor("eric orwell").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should find genres by exact normalized match")
+    void shouldFindGenresByExactNormalizedMatch() {
+        assertEquals(2, library.findBooksByGenre("  FANTASY ").size());
+        assertEquals(List.of(bookThree), library.findBooksByGenre("dystopian"));
+        assertTrue(library.findBooksByGenre("Fant").isEmpty());
+        assertTrue(library.findBooksByGenre("Horror").isEmpty());
+
+        Book scienceFiction = new Book("Dune", "Frank Herbert", "Science  Fiction");
+        library.addBook(scienceFiction);
+        assertEquals(List.of(scienceFiction), library.findBooksByGenre("science fiction"));
+    }
+
     @Test
     @DisplayName("Should return Optional.of(Book) if book found by ID")
     void shouldReturnOptionalOfBookIfBookFoundById() {
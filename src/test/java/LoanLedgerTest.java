@@ -0,0 +1,214 @@
+import com.gevernova.booklibrarysystem.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoanLedgerTest {
+
+    @TempDir
+    Path directory;
+
+    private final Book dune = new Book("Dune", "Frank Herbert", "Science Fiction");
+    private final Book emma = new Book("Emma", "Jane Austen", "Romance");
+    private final Book hobbit = new Book("The Hobbit", "J.R.R. Tolkien", "Fantasy");
+    private final User alice = new User("Alice");
+    private final User bob = new User("Bob");
+
+    private static List<Path> logFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".log")).collect(Collectors.toList());
+        }
+    }
+
+    // A freshly started library: the same books and users, added back with their original IDs
+    private Library reload(LoanLedger ledger) {
+        Library library = new Library(ledger);
+        for (Book book : List.of(dune, emma, hobbit)) {
+            library.addBook(new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getGenre()));
+        }
+        for (User user : List.of(alice, bob)) {
+            library.addUser(new User(user.getId(), user.getName()));
+        }
+        return library;
+    }
+
+    @Test
+    @DisplayName("Should restore every loan after a restart")
+    void shouldRestoreLoansAfterRestart() throws IOException {
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            Library library = reload(ledger);
+            library.borrowBook(alice.getId(), dune.getId());
+            library.borrowBook(alice.getId(), emma.getId());
+            library.borrowBook(bob.getId(), hobbit.getId());
+            library.returnBook(alice.getId(), dune.getId());
+        }
+
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            Library library = reload(ledger);
+            assertEquals(2, library.restoreLoans());
+            assertFalse(library.findBookById(dune.getId()).get().isBorrowed());
+            assertTrue(library.findBookById(emma.getId()).get().isBorrowed());
+            assertEquals(1, library.findUserById(alice.getId()).get().getNumberOfBorrowedBooks());
+            assertEquals(1, library.findUserById(bob.getId()).get().getNumberOfBorrowedBooks());
+            assertEquals(2, library.getBorrowedBookCount());
+            assertThrows(BookUnavailableException.class, () -> library.borrowBook(alice.getId(), hobbit.getId()));
+            library.returnBook(bob.getId(), hobbit.getId()); // the restored loan can be returned as usual
+        }
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            assertEquals(1, ledger.currentLoans().size());
+            assertEquals(alice.getId(), ledger.currentLoans().get(emma.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore loans of individual copies after a restart")
+    void shouldRestoreCopyLoans() throws IOException {
+        Book atlas = new Book("Road Atlas", "Cartography Team", "Reference", 3);
+        BookCopy aliceCopy;
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            Library library = reload(ledger);
+            library.addBook(atlas);
+            library.borrowBook(bob.getId(), atlas.getId());
+            library.borrowBook(alice.getId(), atlas.getId());
+            library.returnBook(bob.getId(), atlas.getId());
+            aliceCopy = library.findUserById(alice.getId()).get().getBorrowedCopies().get(0);
+            assertEquals(atlas.getId() + "#2", aliceCopy.getId());
+        }
+
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            Library library = reload(ledger);
+            Book reloaded = new Book(atlas.getId(), atlas.getTitle(), atlas.getAuthor(), atlas.getGenre(), 3);
+            library.addBook(reloaded);
+            assertEquals(1, library.restoreLoans());
+            assertEquals(0, library.restoreLoans()); // a second restore finds the copy already out
+            assertEquals(2, reloaded.getAvailableCopies());
+            assertTrue(library.getAvailableBooks().contains(reloaded));
+            assertTrue(library.getBorrowedBooks().contains(reloaded));
+            List<BookCopy> copies = library.findUserById(alice.getId()).get().getBorrowedCopies();
+            assertEquals(1, copies.size());
+            assertEquals(aliceCopy.getId(), copies.get(0).getId());
+            library.borrowBook(bob.getId(), atlas.getId());
+            assertNotEquals(aliceCopy.getCopyNumber(),
+                    library.findUserById(bob.getId()).get().getBorrowedCopies().get(0).getCopyNumber());
+        }
+    }
+
+    @Test
+    @DisplayName("Should load the snapshot and replay only the log written after it")
+    void shouldLoadSnapshotAndReplayTail() throws IOException {
+        try (LoanLedger ledger = new LoanLedger(directory, 5)) {
+            Library library = reload(ledger);
+            for (int i = 0; i < 6; i++) {
+                library.borrowBook(alice.getId(), dune.getId());
+                library.returnBook(alice.getId(), dune.getId()); // 12 events cross the snapshot interval twice
+            }
+            library.borrowBook(bob.getId(), dune.getId());
+        }
+        assertTrue(Files.exists(directory.resolve("loans.snapshot")));
+        assertEquals(1, logFiles(directory).size()); // older generations were folded into the snapshot
+
+        try (LoanLedger ledger = new LoanLedger(directory, 5)) {
+            // Snapshots run in the background, so where the last one cut the log depends on timing; the one
+            // started at the fifth event at least has finished by close(), and only the tail after it is replayed
+            assertTrue(ledger.getRecoveredRecords() <= 8, "replayed " + ledger.getRecoveredRecords());
+            assertEquals(bob.getId(), ledger.currentLoans().get(dune.getId()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should ignore a torn record at the end of the log")
+    void shouldIgnoreTornLogTail() throws IOException {
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            ledger.commit(ledger.appendBorrow(dune.getId(), alice.getId()));
+        }
+        Path log = logFiles(directory).get(0);
+        // Simulate a crash half-way through appending the next record
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            assertEquals(1, ledger.currentLoans().size());
+            ledger.commit(ledger.appendBorrow("local-copy-17", "member 42")); // IDs that are not UUIDs
+        }
+        try (LoanLedger ledger = new LoanLedger(directory)) {
+            assertEquals(2, ledger.getRecoveredRecords());
+            assertEquals("member 42", ledger.currentLoans().get("local-copy-17"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should report a snapshot too short to hold a header as an I/O error")
+    void shouldRejectTruncatedSnapshot() throws IOException {
+        Files.write(directory.resolve("loans.snapshot"), new byte[]{1, 2});
+
+        assertThrows(UncheckedIOException.class, () -> new LoanLedger(directory));
+    }
+
+    @Test
+    @DisplayName("Should keep a failed background snapshot off the borrower's path")
+    void shouldNotFailBorrowWhenSnapshotFails() throws IOException {
+        // A directory where the snapshot's temporary file should go makes every snapshot attempt fail
+        Files.createDirectories(directory.resolve("loans.snapshot.tmp"));
+        LoanLedger ledger = new LoanLedger(directory, 2);
+        try (ledger) {
+            Library library = reload(ledger);
+            library.borrowBook(alice.getId(), dune.getId());
+            library.borrowBook(alice.getId(), emma.getId()); // crosses the snapshot interval
+            library.borrowBook(bob.getId(), hobbit.getId());
+        }
+        assertNotNull(ledger.getSnapshotFailure()); // close() waited for the background snapshot
+
+        try (LoanLedger reopened = new LoanLedger(directory, 2)) {
+            assertEquals(3, reopened.currentLoans().size());
+            assertFalse(Files.exists(directory.resolve("loans.snapshot")));
+            assertThrows(UncheckedIOException.class, reopened::snapshot); // a caller who asks for one still hears about it
+        }
+    }
+
+    @Test
+    @DisplayName("Should print books and users whose IDs are shorter than the usual eight-character prefix")
+    void shouldPrintShortIds() {
+        assertTrue(new Book("b1", "Dune", "Frank Herbert", "Science Fiction").toString().contains("id='b1'"));
+        assertTrue(new User("u1", "Alice").toString().contains("id='u1'"));
+    }
+
+    @Test
+    @DisplayName("Should fail a hold, not leave it pending, when the ledger cannot commit its handoff")
+    void shouldFailHoldWhenHandoffCommitFails() throws IOException {
+        AtomicBoolean failCommits = new AtomicBoolean();
+        try (LoanLedger ledger = new LoanLedger(directory) {
+            @Override
+            public void commit(long record) {
+                if (failCommits.get()) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                super.commit(record);
+            }
+        }) {
+            Library library = reload(ledger);
+            library.borrowBook(alice.getId(), dune.getId());
+            CompletableFuture<Book> hold = library.placeHold(bob.getId(), dune.getId());
+
+            failCommits.set(true);
+            assertThrows(UncheckedIOException.class, () -> library.returnBook(alice.getId(), dune.getId()));
+            assertTrue(hold.isCompletedExceptionally());
+            ExecutionException failure = assertThrows(ExecutionException.class, hold::get);
+            assertInstanceOf(UncheckedIOException.class, failure.getCause());
+            assertEquals(1, library.findUserById(bob.getId()).get().getNumberOfBorrowedBooks()); // applied in memory
+            failCommits.set(false);
+        }
+    }
+}
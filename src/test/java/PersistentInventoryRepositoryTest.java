@@ -0,0 +1,237 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import com.gevernova.inventorymanagemntsystem.exceptions.ProductNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentInventoryRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Path> logFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".wal")).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore every logged mutation after a restart")
+    void shouldRestoreLoggedMutationsAfterRestart() throws IOException, InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        Product bread = new Product("Bread", ProductCategory.Grocery, 8, 2.50);
+        Product shirt = new Product("Shirt", ProductCategory.Clothing, 4, 25.00);
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory)) {
+            InventoryService inventoryService = new InventoryService(repository);
+            inventoryService.addNewProduct(laptop);
+            inventoryService.addNewProduct(bread);
+            inventoryService.addNewProduct(shirt);
+            inventoryService.decreaseProductQuantity(laptop.getId(), 3);
+            inventoryService.increaseProductQuantity(bread.getId(), 2);
+            inventoryService.removeProduct(shirt.getId());
+        }
+
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory)) {
+            assertEquals(2, reopened.findAllProducts().size());
+            Product restoredLaptop = reopened.findProductById(laptop.getId()).get();
+            assertEquals("Laptop", restoredLaptop.getName());
+            assertEquals(ProductCategory.Electronics, restoredLaptop.getCategory());
+            assertEquals(7, restoredLaptop.getQuantity());
+            assertEquals(1200.00, restoredLaptop.getPrice());
+            assertEquals(10, reopened.findProductById(bread.getId()).get().getQuantity());
+            assertFalse(reopened.productExists(shirt.getId()));
+            assertEquals(1, reopened.findProductsByCategory(ProductCategory.Grocery).size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should load the snapshot and replay only the log written after it")
+    void shouldLoadSnapshotAndReplayTail() throws IOException, InvalidProductException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 100, 1200.00);
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory, 5, false)) {
+            repository.addProduct(laptop);
+            for (int i = 0; i < 12; i++) {
+                repository.adjustQuantity(laptop.getId(), -1); // crosses the snapshot interval twice
+            }
+        }
+        assertTrue(Files.exists(directory.resolve("inventory.snapshot")));
+        assertEquals(1, logFiles(directory).size()); // older generations were folded into the snapshot
+
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory, 5, false)) {
+            assertEquals(88, reopened.findProductById(laptop.getId()).get().getQuantity());
+            reopened.adjustQuantity(laptop.getId(), -8);
+            reopened.snapshot();
+        }
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory, 5, false)) {
+            assertEquals(80, reopened.findProductById(laptop.getId()).get().getQuantity());
+        }
+    }
+
+    @Test
+    @DisplayName("Should ignore a torn record at the end of the log")
+    void shouldIgnoreTornLogTail() throws IOException, InvalidProductException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory)) {
+            repository.addProduct(laptop);
+            repository.adjustQuantity(laptop.getId(), 5);
+        }
+        Path log = logFiles(directory).get(0);
+        // Simulate a crash half-way through appending the next record
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory)) {
+            assertEquals(15, reopened.findProductById(laptop.getId()).get().getQuantity());
+            reopened.adjustQuantity(laptop.getId(), 1); // appended where the torn record was cut off
+        }
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory)) {
+            assertEquals(16, reopened.findProductById(laptop.getId()).get().getQuantity());
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer indexed queries from a working set bulk-loaded out of the snapshot")
+    void shouldIndexProductsLoadedFromSnapshot() throws IOException, InvalidProductException {
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory)) {
+            repository.addProduct(new Product("Laptop", ProductCategory.Electronics, 5, 1200.00));
+            repository.addProduct(new Product("Mouse", ProductCategory.Electronics, 50, 20.00));
+            repository.addProduct(new Product("Desk", ProductCategory.Home_appliances, 2, 300.00));
+            repository.snapshot();
+        }
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory)) {
+            assertEquals(List.of("Mouse", "Laptop"), reopened.streamProductsByPrice(ProductCategory.Electronics)
+                    .map(Product::getName).collect(Collectors.toList()));
+            assertEquals(List.of("Desk", "Laptop"), reopened.findProductsBelowQuantity(10).stream()
+                    .map(Product::getName).collect(Collectors.toList()));
+            assertEquals(5 * 1200.00 + 50 * 20.00 + 2 * 300.00, reopened.totalStockValue(), 0.001);
+            assertEquals(2L, reopened.skuCountByCategory().get(ProductCategory.Electronics));
+        }
+    }
+
+    @Test
+    @DisplayName("Should report a snapshot too short to hold a header as an I/O error")
+    void shouldRejectTruncatedSnapshot() throws IOException {
+        Files.write(directory.resolve("inventory.snapshot"), new byte[]{1, 2});
+
+        assertThrows(UncheckedIOException.class, () -> new PersistentInventoryRepository(directory));
+    }
+
+    @Test
+    @DisplayName("Should put back every reserved line, the failing one included, when a commit fails mid-basket")
+    void shouldUndoLineWhoseCommitFailed() throws IOException, InvalidProductException, ProductNotFoundException {
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 5, 1200.00);
+        Product mouse = new Product("Mouse", ProductCategory.Electronics, 5, 20.00);
+        Product keyboard = new Product("Keyboard", ProductCategory.Electronics, 5, 50.00);
+        AtomicBoolean failNextMouseCommit = new AtomicBoolean(true);
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory) {
+            @Override
+            public int adjustQuantity(String productId, int delta) {
+                int updated = super.adjustQuantity(productId, delta);
+                // The change is applied and its record queued, as when the group commit's write fails
+                if (productId.equals(mouse.getId()) && failNextMouseCommit.getAndSet(false)) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                return updated;
+            }
+        }) {
+            InventoryService inventoryService = new InventoryService(repository);
+            inventoryService.addNewProduct(laptop);
+            inventoryService.addNewProduct(mouse);
+            inventoryService.addNewProduct(keyboard);
+
+            Map<String, Integer> basket = new LinkedHashMap<>();
+            basket.put(laptop.getId(), 2);
+            basket.put(mouse.getId(), 3);
+            basket.put(keyboard.getId(), 1);
+            assertThrows(UncheckedIOException.class, () -> inventoryService.reserve(basket));
+
+            assertEquals(5, repository.findProductById(laptop.getId()).get().getQuantity());
+            assertEquals(5, repository.findProductById(mouse.getId()).get().getQuantity());
+            assertEquals(5, repository.findProductById(keyboard.getId()).get().getQuantity());
+        }
+
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory)) {
+            for (Product product : List.of(laptop, mouse, keyboard)) {
+                assertEquals(5, reopened.findProductById(product.getId()).get().getQuantity());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep a failed background snapshot off the writer's path")
+    void shouldNotFailWriteWhenSnapshotFails() throws IOException, InvalidProductException {
+        // A directory where the snapshot's temporary file should go makes every snapshot attempt fail
+        Files.createDirectories(directory.resolve("inventory.snapshot.tmp"));
+        Product laptop = new Product("Laptop", ProductCategory.Electronics, 10, 1200.00);
+        PersistentInventoryRepository repository = new PersistentInventoryRepository(directory, 2, false);
+        try (repository) {
+            repository.addProduct(laptop);
+            repository.adjustQuantity(laptop.getId(), -1); // crosses the snapshot interval
+            repository.adjustQuantity(laptop.getId(), -1);
+        }
+        assertNotNull(repository.getSnapshotFailure()); // close() waited for the background snapshot
+
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory, 2, false)) {
+            assertEquals(8, reopened.findProductById(laptop.getId()).get().getQuantity());
+            assertFalse(Files.exists(directory.resolve("inventory.snapshot")));
+            assertThrows(UncheckedIOException.class, reopened::snapshot); // a caller who asks for one still hears about it
+        }
+    }
+
+    @Test
+    @DisplayName("Should restore every product written by concurrent writers across snapshots")
+    void shouldRestoreConcurrentWritesAcrossSnapshots() throws Exception {
+        int products = 32;
+        List<Product> catalog = new ArrayList<>();
+        try (PersistentInventoryRepository repository = new PersistentInventoryRepository(directory, 50, false)) {
+            for (int i = 0; i < products; i++) {
+                Product product = new Product("Item " + i, ProductCategory.Others, 1_000, 1.0 + i);
+                catalog.add(product);
+                repository.addProduct(product);
+            }
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                int offset = t;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        repository.adjustQuantity(catalog.get((offset + i * 7) % products).getId(), -1);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertNull(repository.getSnapshotFailure());
+            for (Product product : catalog) {
+                product.setQuantity(repository.findProductById(product.getId()).get().getQuantity());
+            }
+        }
+
+        try (PersistentInventoryRepository reopened = new PersistentInventoryRepository(directory, 50, false)) {
+            int total = 0;
+            for (Product product : catalog) {
+                int quantity = reopened.findProductById(product.getId()).get().getQuantity();
+                assertEquals(product.getQuantity(), quantity);
+                total += quantity;
+            }
+            assertEquals(products * 1_000 - 4 * 500, total);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogImporterTest {
+
+    @TempDir
+    Path directory;
+
+    private Path write(String fileName, String content) throws IOException {
+        Path file = directory.resolve(fileName);
+        Files.writeString(file, content);
+        return file;
+    }
+
+    @Test
+    @DisplayName("Should import valid CSV rows and report each rejected row with its line number")
+    void shouldImportCsvAndReportRejects() throws IOException {
+        Path file = write("catalog.csv", "name,category,quantity,price\n"
+                + "Laptop,Electronics,10,1200.00\n"
+                + "\"Cable, USB-C\",electronics,50,9.99\r\n"
+                + "\n"
+                + "Bread,Grocery,0,2.50\n"
+                + "Shirt,Shoes,4,25.00\n"
+                + "Novel,Books,3,abc\n"
+                + "Atlas,Books,3\n");
+        InventoryRepository repository = new InMemoryInventoryRepository();
+
+        ImportReport report = new ProductCatalogImporter(repository).importFile(file, ProductCatalogImporter.Format.CSV);
+
+        assertEquals(6, report.getRowsRead());
+        assertEquals(2, report.getRowsImported());
+        List<String> names = repository.stream().map(Product::getName).sorted().collect(Collectors.toList());
+        assertEquals(List.of("Cable, USB-C", "Laptop"), names);
+        List<Long> rejectedLines = report.getRejects().stream().map(ImportReport.Reject::getLineNumber).collect(Collectors.toList());
+        assertEquals(List.of(5L, 6L, 7L, 8L), rejectedLines);
+        assertEquals("quantity must be positive", report.getRejects().get(0).getReason());
+    }
+
+    @Test
+    @DisplayName("Should import NDJSON rows, ignoring unknown keys")
+    void shouldImportNdjson() throws IOException {
+        Path file = write("catalog.ndjson",
+                "{\"name\": \"Kettle \\\"Deluxe\\\"\", \"category\": \"Home_appliances\", \"quantity\": 7, \"price\": 39.5, \"sku\": \"K-1\"}\n"
+                        + "{\"name\": \"Cheese\", \"category\": \"Grocery\", \"quantity\": 2}\n"
+                        + "not json\n");
+        InventoryRepository repository = new ConcurrentInventoryRepository();
+
+        ImportReport report = new ProductCatalogImporter(repository).importFile(file, ProductCatalogImporter.Format.NDJSON);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(1, report.getRowsImported());
+        Product kettle = repository.findAllProducts().get(0);
+        assertEquals("Kettle \"Deluxe\"", kettle.getName());
+        assertEquals(ProductCategory.Home_appliances, kettle.getCategory());
+        assertEquals(7, kettle.getQuantity());
+        assertEquals(2, report.getRejects().size());
+        assertEquals(2, report.getRejects().get(0).getLineNumber());
+    }
+
+    @Test
+    @DisplayName("Should give the same result and line numbers when the file is split into many chunks")
+    void shouldImportAcrossChunks() throws IOException {
+        StringBuilder csv = new StringBuilder("name,category,quantity,price\n");
+        int rows = 5_000;
+        for (int i = 0; i < rows; i++) {
+            csv.append("Item ").append(i).append(",Others,").append(i % 10 == 0 ? -1 : 1 + i % 5).append(",1.25\n");
+        }
+        Path file = write("catalog.csv", csv.toString());
+        InventoryRepository repository = new InMemoryInventoryRepository();
+        List<Integer> batchSizes = new ArrayList<>();
+
+        ImportReport report = new ProductCatalogImporter(repository, 1024, batch -> batchSizes.add(batch.size()))
+                .importFile(file, ProductCatalogImporter.Format.CSV);
+
+        assertEquals(rows, report.getRowsRead());
+        assertEquals(rows - rows / 10, report.getRowsImported());
+        assertEquals(rows - rows / 10, repository.findAllProducts().size());
+        assertTrue(batchSizes.size() > 1);
+        assertEquals(rows - rows / 10, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        for (int i = 0; i < report.getRejects().size(); i++) {
+            assertEquals(2 + 10L * i, report.getRejects().get(i).getLineNumber()); // header is line 1, item 0 is line 2
+        }
+    }
+
+    @Test
+    @DisplayName("Should publish imported products through the service's low-stock subscriptions")
+    void shouldNotifyLowStockOnImport() throws IOException {
+        Path file = write("catalog.csv", "Laptop,Electronics,2,1200.00\nCable,Electronics,50,9.99\n");
+        InventoryService inventoryService = new InventoryService(new InMemoryInventoryRepository());
+        List<String> lowStock = new ArrayList<>();
+        inventoryService.subscribeToLowStock(5, product -> lowStock.add(product.getName()));
+
+        ImportReport report = inventoryService.importCatalog(file, ProductCatalogImporter.Format.CSV);
+
+        assertEquals(2, report.getRowsImported());
+        assertEquals(List.of("Laptop"), lowStock);
+        Map<ProductCategory, Long> skus = inventoryService.getSkuCountByCategory();
+        assertEquals(2L, skus.get(ProductCategory.Electronics));
+    }
+}
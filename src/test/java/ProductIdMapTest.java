@@ -0,0 +1,62 @@
+import com.gevernova.inventorymanagemntsystem.*;
+
+import com.gevernova.inventorymanagemntsystem.exceptions.InvalidProductException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductIdMapTest {
+
+    @Test
+    @DisplayName("Should behave like a HashMap through random puts and removes")
+    void shouldBehaveLikeHashMap() throws InvalidProductException {
+        ProductIdMap map = new ProductIdMap();
+        Map<String, Product> expected = new HashMap<>();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            products.add(new Product("Item " + i, ProductCategory.Others, 1, 1.00));
+        }
+        Random random = new Random(42);
+        for (int step = 0; step < 50_000; step++) {
+            Product product = products.get(random.nextInt(products.size()));
+            if (random.nextInt(3) == 0) {
+                assertSame(expected.remove(product.getId()), map.remove(product.getId()));
+            } else {
+                assertSame(expected.put(product.getId(), product), map.put(product.getId(), product));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Product product : products) {
+            assertSame(expected.get(product.getId()), map.get(product.getId()));
+        }
+        assertEquals(expected.size(), map.values().size());
+        assertEquals(expected.size(), StreamSupport.stream(map.spliterator(), true).count());
+    }
+
+    @Test
+    @DisplayName("Should keep IDs that are not canonical UUIDs distinct")
+    void shouldKeepNonCanonicalIdsDistinct() throws InvalidProductException {
+        ProductIdMap map = new ProductIdMap();
+        Product product = new Product("Laptop", ProductCategory.Electronics, 1, 1.00);
+        String upperCaseId = product.getId().toUpperCase();
+
+        map.put(product.getId(), product);
+        assertNull(map.get(upperCaseId)); // a different String, even though it parses to the same UUID
+        assertNull(map.get("some-non-existent-uuid"));
+        assertNull(map.get(null));
+
+        map.put("legacy-id-1", product);
+        assertSame(product, map.get("legacy-id-1"));
+        assertEquals(2, map.size());
+        assertSame(product, map.remove("legacy-id-1"));
+        assertEquals(1, map.size());
+    }
+}